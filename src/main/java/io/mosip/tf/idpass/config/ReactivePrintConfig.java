@@ -0,0 +1,92 @@
+package io.mosip.tf.idpass.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.netty.channel.ChannelOption;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.ipc.netty.resources.LoopResources;
+import reactor.ipc.netty.resources.PoolResources;
+
+/**
+ * Beans of the reactive profile, started with
+ * --spring.profiles.active=local1,reactive
+ *
+ * The embedded server and the WebClient share one small set of event loop
+ * threads, which only move bytes. Card generation runs on a bounded worker
+ * scheduler whose queue holds as many cards as the callback admits, so a
+ * full worker queue never blocks an event loop.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactivePrintConfig {
+
+	private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+	/** 0 uses one event loop per core. */
+	@Value("${mosip.print.reactive.event-loop-threads:0}")
+	private int eventLoopThreads;
+
+	/** 0 uses two workers per core. */
+	@Value("${mosip.print.reactive.worker-threads:0}")
+	private int workerThreads;
+
+	@Value("${mosip.print.reactive.max-in-flight:256}")
+	private int maxInFlight;
+
+	@Value("${mosip.print.reactive.max-connections:500}")
+	private int maxConnections;
+
+	@Value("${mosip.print.reactive.connect-timeout-millis:5000}")
+	private int connectTimeoutMillis;
+
+	@Bean(destroyMethod = "dispose")
+	public LoopResources printLoopResources() {
+		return LoopResources.create("print-http", eventLoopThreads > 0 ? eventLoopThreads : CORES, true);
+	}
+
+	@Bean
+	public NettyServerCustomizer printNettyServerCustomizer(
+			@Qualifier("printLoopResources") LoopResources printLoopResources) {
+		return options -> options.loopResources(printLoopResources);
+	}
+
+	@Bean(destroyMethod = "dispose")
+	public PoolResources printPoolResources() {
+		return PoolResources.fixed("print-http", maxConnections);
+	}
+
+	@Bean
+	public WebClient printWebClient(WebClient.Builder builder,
+			@Qualifier("printLoopResources") LoopResources printLoopResources,
+			@Qualifier("printPoolResources") PoolResources printPoolResources) {
+		return builder.clientConnector(new ReactorClientHttpConnector(options -> options
+				.loopResources(printLoopResources).poolResources(printPoolResources)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis))).build();
+	}
+
+	/**
+	 * Workers for decryption, rendering and the calls still made through the
+	 * blocking clients.
+	 */
+	@Bean(destroyMethod = "dispose")
+	public Scheduler printWorkerScheduler() {
+		int workers = workerThreads > 0 ? workerThreads : CORES * 2;
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(maxInFlight), new CustomizableThreadFactory("print-worker-"));
+		executor.allowCoreThreadTimeOut(true);
+		return Schedulers.fromExecutorService(executor);
+	}
+}
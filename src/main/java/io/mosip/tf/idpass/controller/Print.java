@@ -1,8 +1,19 @@
 package io.mosip.tf.idpass.controller;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -10,23 +21,50 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 import io.mosip.kernel.websub.api.annotation.PreAuthenticateContentAndVerifyIntent;
 import io.mosip.tf.idpass.logger.PrintLogger;
 import io.mosip.tf.idpass.model.EventModel;
+import io.mosip.tf.idpass.model.PrintBatch;
+import io.mosip.tf.idpass.model.PrintBatchItem;
+import io.mosip.tf.idpass.service.PrintJobDispatcher;
 import io.mosip.tf.idpass.service.PrintService;
+import io.mosip.tf.idpass.util.JsonUtil;
+import io.mosip.tf.idpass.util.PrintEventDeduplicator;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping(value = "/print")
 public class Print {
 
+	/** Newline delimited JSON, one object per line. */
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+	private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
 	/** The printservice. */
 	@Autowired
 	private PrintService printService;
+
+	/** The print job dispatcher. */
+	@Autowired
+	private PrintJobDispatcher printJobDispatcher;
+
+	/** Skips redelivered events. */
+	@Autowired
+	private PrintEventDeduplicator printEventDeduplicator;
 	
 	@Value("${mosip.event.topic}")
 	private String topic;
 
+	@Value("${mosip.print.batch.max-size:10000}")
+	private int batchMaxSize;
+
+	/** How long the results of a batch are streamed, other requests keep the default. */
+	@Value("${mosip.print.batch.timeout-millis:3600000}")
+	private long batchTimeoutMillis;
+
 	Logger printLogger = PrintLogger.getLogger(Print.class);
 
 
@@ -41,9 +79,83 @@ public class Print {
 	//@PreAuthenticateContentAndVerifyIntent(secret = "${mosip.event.secret}", callback = "/v1/print/print/callback/notifyPrint", topic = "${mosip.event.topic}")
 	public ResponseEntity<String> handleSubscribeEvent(@RequestBody EventModel eventModel) throws Exception {
 		printLogger.info("event recieved from websub"+", id: {}",eventModel.getEvent().getId());
-		boolean isPrinted = printService.generateCard(eventModel);
+		if (printJobDispatcher.isEnabled()) {
+			if (!printJobDispatcher.dispatch(eventModel)) {
+				HttpHeaders headers = new HttpHeaders();
+				headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(printJobDispatcher.getRetryAfterSeconds()));
+				return new ResponseEntity<>("print queue is full, retry later.", headers,
+						HttpStatus.SERVICE_UNAVAILABLE);
+			}
+			return new ResponseEntity<>("request accepted.", HttpStatus.ACCEPTED);
+		}
+		boolean isPrinted = printEventDeduplicator.execute(eventModel, () -> printService.generateCard(eventModel));
 		printLogger.info("printing status : {} for event id: {}",isPrinted,eventModel.getEvent().getId());
 		return new ResponseEntity<>("request accepted.", HttpStatus.OK);
 	}
 
+	/**
+	 * Prints a batch of events. The outcome of each event is streamed back as
+	 * one JSON line as soon as its card is done, so the lines are not in the
+	 * order of the events. The last line holds the throughput figures of the
+	 * batch. A batch the print workers have no room for is refused with 503.
+	 *
+	 * @param eventModels
+	 * @return
+	 */
+	@PostMapping(path = "/batch/notifyPrint", consumes = MediaType.APPLICATION_JSON_VALUE, produces = APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<ResponseBodyEmitter> handleBatchEvent(@RequestBody List<EventModel> eventModels) {
+		printLogger.info("batch of {} events recieved", eventModels.size());
+		if (eventModels.size() > batchMaxSize) {
+			printLogger.warn("batch of {} events refused, the limit is {}", eventModels.size(), batchMaxSize);
+			return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+		}
+		PrintBatch batch;
+		try {
+			batch = printService.generateCards(eventModels);
+		} catch (RejectedExecutionException e) {
+			printLogger.warn("batch of {} events refused, the print workers are busy", eventModels.size());
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.header(HttpHeaders.RETRY_AFTER, String.valueOf(printJobDispatcher.getRetryAfterSeconds())).build();
+		}
+		ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchTimeoutMillis);
+		writeBatch(batch, emitter);
+		return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(emitter);
+	}
+
+	private void writeBatch(PrintBatch batch, ResponseBodyEmitter emitter) {
+		List<CompletableFuture<Void>> written = new ArrayList<>(batch.getItems().size());
+		for (CompletableFuture<PrintBatchItem> item : batch.getItems()) {
+			written.add(item.handle((result, e) -> {
+				writeLine(emitter, e == null ? result
+						: Collections.singletonMap("error",
+								String.valueOf(e instanceof CompletionException ? e.getCause() : e)));
+				return null;
+			}));
+		}
+		// the summary goes after the line of the last card
+		CompletableFuture.allOf(written.toArray(new CompletableFuture<?>[0])).thenCompose(v -> batch.getSummary())
+				.whenComplete((summary, e) -> {
+					if (e != null) {
+						printLogger.error("print batch failed", e);
+						emitter.completeWithError(e);
+						return;
+					}
+					printLogger.info("print batch of {} events done in {} ms, {} printed, {} failed, {} cards/s",
+							summary.getCount(), summary.getElapsedMillis(), summary.getPrinted(),
+							summary.getFailed(), String.format("%.1f", summary.getCardsPerSecond()));
+					writeLine(emitter, Collections.singletonMap("summary", summary));
+					emitter.complete();
+				});
+	}
+
+	private void writeLine(ResponseBodyEmitter emitter, Object value) {
+		try {
+			byte[] line = (JsonUtil.writeValueAsString(value) + "\n").getBytes(StandardCharsets.UTF_8);
+			emitter.send(line, APPLICATION_NDJSON);
+		} catch (IOException | IllegalStateException e) {
+			// the client went away or the stream timed out, the cards are printed all the same
+			printLogger.debug("print batch line not sent", e);
+		}
+	}
+
 }
@@ -0,0 +1,163 @@
+package io.mosip.tf.idpass.controller;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.mosip.tf.idpass.exception.CryptoManagerException;
+import io.mosip.tf.idpass.logger.PrintLogger;
+import io.mosip.tf.idpass.model.PartnerKey;
+import io.mosip.tf.idpass.service.PrintJobDispatcher;
+import io.mosip.tf.idpass.util.PartnerKeyStore;
+
+/**
+ * Operations on the print queue.
+ */
+@RestController
+@RequestMapping(value = "/print/admin")
+public class PrintAdmin {
+
+	/** The print job dispatcher. */
+	@Autowired
+	private PrintJobDispatcher printJobDispatcher;
+
+	/** The partner key store. */
+	@Autowired
+	private PartnerKeyStore partnerKeyStore;
+
+	Logger printLogger = PrintLogger.getLogger(PrintAdmin.class);
+
+	/**
+	 * Counts the events in the dead letter directory.
+	 *
+	 * @return
+	 */
+	@GetMapping(path = "/dead-letters", produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<Map<String, Integer>> getDeadLetters() {
+		Map<String, Integer> response = new LinkedHashMap<>();
+		response.put("count", printJobDispatcher.getDeadLetterCount());
+		return new ResponseEntity<>(response, HttpStatus.OK);
+	}
+
+	/**
+	 * Puts the oldest dead lettered events back on the print queue.
+	 *
+	 * @param limit most events re-driven
+	 * @return
+	 */
+	@PostMapping(path = "/dead-letters/redrive", produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<Map<String, Integer>> redriveDeadLetters(
+			@RequestParam(value = "limit", defaultValue = "1000") int limit) {
+		if (!printJobDispatcher.isEnabled()) {
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+		printLogger.info("re-drive of up to {} dead lettered print events requested", limit);
+		Map<String, Integer> response = new LinkedHashMap<>();
+		response.put("redriven", printJobDispatcher.redriveDeadLetters(limit));
+		response.put("remaining", printJobDispatcher.getDeadLetterCount());
+		return new ResponseEntity<>(response, HttpStatus.OK);
+	}
+
+	/**
+	 * Lists the partner keys of the key ring, the primary key first.
+	 *
+	 * @return
+	 */
+	@GetMapping(path = "/partner-keys", produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> getPartnerKeys() {
+		return new ResponseEntity<>(describe(partnerKeyStore.getKeys()), HttpStatus.OK);
+	}
+
+	/**
+	 * Loads the partner keystores again, after a key was rotated. The current
+	 * keys stay in use if a keystore can not be loaded.
+	 *
+	 * @return
+	 */
+	@PostMapping(path = "/partner-keys/reload", produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> reloadPartnerKeys() {
+		printLogger.info("partner key reload requested");
+		try {
+			return new ResponseEntity<>(describe(partnerKeyStore.reload()), HttpStatus.OK);
+		} catch (CryptoManagerException e) {
+			printLogger.error("partner key reload failed, the current keys stay in use", e);
+			return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	/**
+	 * Adds the keys of a keystore to the key ring.
+	 *
+	 * @param keystore filename, password and alias (comma separated, * for
+	 *                 every key)
+	 * @return the keys added
+	 */
+	@PostMapping(path = "/partner-keys", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> addPartnerKeys(@RequestBody Map<String, String> keystore) {
+		String filename = keystore.get("filename");
+		String password = keystore.get("password");
+		if (filename == null || password == null) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		printLogger.info("partner keys of {} added to the key ring", filename);
+		try {
+			return new ResponseEntity<>(describe(partnerKeyStore.add(filename, password,
+					keystore.getOrDefault("alias", "*"))), HttpStatus.OK);
+		} catch (CryptoManagerException e) {
+			printLogger.error("partner keys of " + filename + " could not be added", e);
+			return new ResponseEntity<>(HttpStatus.UNPROCESSABLE_ENTITY);
+		}
+	}
+
+	/**
+	 * Takes a partner key out of the key ring.
+	 *
+	 * @param thumbprint hex encoded certificate thumbprint
+	 * @return
+	 */
+	@DeleteMapping(path = "/partner-keys/{thumbprint}")
+	public ResponseEntity<Void> retirePartnerKey(@PathVariable("thumbprint") String thumbprint) {
+		printLogger.info("partner key {} retired", thumbprint);
+		try {
+			return new ResponseEntity<>(partnerKeyStore.retire(thumbprint) ? HttpStatus.NO_CONTENT
+					: HttpStatus.NOT_FOUND);
+		} catch (CryptoManagerException e) {
+			// the last key of the ring stays
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+	}
+
+	private List<Map<String, Object>> describe(List<PartnerKey> keys) {
+		// the ring lists the primary key first, and may be empty when no keystore loaded
+		List<PartnerKey> ring = partnerKeyStore.getKeys();
+		PartnerKey primary = ring.isEmpty() ? null : ring.get(0);
+		List<Map<String, Object>> response = new ArrayList<>();
+		for (PartnerKey key : keys) {
+			Map<String, Object> description = new LinkedHashMap<>();
+			description.put("alias", key.getAlias());
+			description.put("thumbprint", Hex.encodeHexString(key.getThumbprint()));
+			description.put("source", key.getSource());
+			description.put("loadedAt", key.getLoadedAt());
+			description.put("primary", key == primary);
+			response.add(description);
+		}
+		return response;
+	}
+
+}
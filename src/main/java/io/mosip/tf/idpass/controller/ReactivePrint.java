@@ -0,0 +1,222 @@
+package io.mosip.tf.idpass.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.mosip.tf.idpass.exception.DataShareException;
+import io.mosip.tf.idpass.logger.PrintLogger;
+import io.mosip.tf.idpass.model.Event;
+import io.mosip.tf.idpass.model.EventModel;
+import io.mosip.tf.idpass.model.PrintBatch;
+import io.mosip.tf.idpass.service.PrintJobDispatcher;
+import io.mosip.tf.idpass.service.PrintService;
+import io.mosip.tf.idpass.util.JsonUtil;
+import io.mosip.tf.idpass.util.PrintEventDeduplicator;
+import io.mosip.tf.idpass.util.ReactiveRestApiClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * WebFlux counterpart of {@link Print} for the reactive profile.
+ *
+ * The credential is downloaded from datashare without holding a thread, the
+ * card is then generated on the bounded print workers. At most max-in-flight
+ * cards are admitted at a time, further events are answered with 503 and
+ * Retry-After so websub redelivers them later instead of queueing them here.
+ * The same answer is given when the workers refuse the work because their
+ * queue is full.
+ *
+ * WebFlux has no servlet context path, so the mappings carry it themselves.
+ *
+ * Publishes print.reactive.in-flight (gauge).
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping(value = "${mosip.print.reactive.context-path:/v1/print}/print")
+public class ReactivePrint {
+
+	/** The printservice. */
+	@Autowired
+	private PrintService printService;
+
+	/** The print job dispatcher. */
+	@Autowired
+	private PrintJobDispatcher printJobDispatcher;
+
+	/** Skips redelivered events. */
+	@Autowired
+	private PrintEventDeduplicator printEventDeduplicator;
+
+	@Autowired
+	private ReactiveRestApiClient reactiveRestApiClient;
+
+	@Autowired
+	@Qualifier("printWorkerScheduler")
+	private Scheduler printWorkerScheduler;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${mosip.print.batch.max-size:10000}")
+	private int batchMaxSize;
+
+	@Value("${mosip.print.reactive.max-in-flight:256}")
+	private int maxInFlight;
+
+	@Value("${mosip.print.reactive.retry-after-seconds:5}")
+	private int retryAfterSeconds;
+
+	private Semaphore inFlight;
+
+	Logger printLogger = PrintLogger.getLogger(ReactivePrint.class);
+
+	@PostConstruct
+	public void init() {
+		inFlight = new Semaphore(maxInFlight);
+		Gauge.builder("print.reactive.in-flight", inFlight, s -> maxInFlight - s.availablePermits())
+				.description("cards admitted by the reactive callback and not done yet").register(meterRegistry);
+	}
+
+	/**
+	 * Same as {@link Print#handleSubscribeEvent(EventModel)}.
+	 *
+	 * @param eventModel
+	 * @return
+	 */
+	@PostMapping(path = "/callback/notifyPrint", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	public Mono<ResponseEntity<String>> handleSubscribeEvent(@RequestBody EventModel eventModel) {
+		printLogger.info("event recieved from websub" + ", id: {}", eventModel.getEvent().getId());
+		if (printJobDispatcher.isEnabled()) {
+			// the dispatcher may write the event to its journal first
+			return Mono.fromCallable(() -> printJobDispatcher.dispatch(eventModel))
+					.subscribeOn(printWorkerScheduler)
+					.map(accepted -> accepted ? new ResponseEntity<>("request accepted.", HttpStatus.ACCEPTED)
+							: unavailable(printJobDispatcher.getRetryAfterSeconds()))
+					.onErrorResume(ReactivePrint::isRejected,
+							e -> Mono.just(unavailable(printJobDispatcher.getRetryAfterSeconds())));
+		}
+		if (!inFlight.tryAcquire()) {
+			printLogger.warn("event id: {} refused, {} cards already in flight", eventModel.getEvent().getId(),
+					maxInFlight);
+			return Mono.just(unavailable(retryAfterSeconds));
+		}
+		return Mono.fromFuture(printEventDeduplicator.executeAsync(eventModel, () -> print(eventModel).toFuture()))
+				.onErrorResume(e -> !isRejected(e), e -> {
+					printLogger.error(e.getMessage(), e);
+					return Mono.just(false);
+				})
+				.doFinally(signal -> inFlight.release())
+				.map(isPrinted -> {
+					printLogger.info("printing status : {} for event id: {}", isPrinted, eventModel.getEvent().getId());
+					return new ResponseEntity<>("request accepted.", HttpStatus.OK);
+				})
+				.onErrorResume(ReactivePrint::isRejected, e -> {
+					printLogger.warn("event id: {} refused, the print workers are busy", eventModel.getEvent().getId());
+					return Mono.just(unavailable(retryAfterSeconds));
+				});
+	}
+
+	/**
+	 * Same as {@link Print#handleBatchEvent(List)}, one JSON line per card in
+	 * completion order and the summary last.
+	 *
+	 * @param eventModels
+	 * @return
+	 */
+	@PostMapping(path = "/batch/notifyPrint", consumes = MediaType.APPLICATION_JSON_VALUE, produces = Print.APPLICATION_NDJSON_VALUE)
+	public Mono<ResponseEntity<Flux<String>>> handleBatchEvent(@RequestBody List<EventModel> eventModels) {
+		printLogger.info("batch of {} events recieved", eventModels.size());
+		if (eventModels.size() > batchMaxSize) {
+			printLogger.warn("batch of {} events refused, the limit is {}", eventModels.size(), batchMaxSize);
+			return Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build());
+		}
+		// loading the batch template calls the blocking clients
+		return Mono.fromCallable(() -> printService.generateCards(eventModels)).subscribeOn(printWorkerScheduler)
+				.map(batch -> ResponseEntity.ok().contentType(MediaType.parseMediaType(Print.APPLICATION_NDJSON_VALUE))
+						.body(lines(batch)))
+				.onErrorResume(ReactivePrint::isRejected, e -> {
+					printLogger.warn("batch of {} events refused, the print workers are busy", eventModels.size());
+					return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+							.header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds)).build());
+				});
+	}
+
+	private Flux<String> lines(PrintBatch batch) {
+		Flux<String> items = Flux.fromIterable(batch.getItems())
+				.flatMap(item -> Mono.fromFuture(item).map(this::line)
+						.onErrorResume(e -> Mono.just(line(Collections.singletonMap("error", String.valueOf(e))))));
+		Mono<String> summary = Mono.fromFuture(batch.getSummary()).map(s -> {
+			printLogger.info("print batch of {} events done in {} ms, {} printed, {} failed, {} cards/s",
+					s.getCount(), s.getElapsedMillis(), s.getPrinted(), s.getFailed(),
+					String.format("%.1f", s.getCardsPerSecond()));
+			return line(Collections.singletonMap("summary", s));
+		});
+		return items.concatWith(summary);
+	}
+
+	/**
+	 * Downloads the credential without blocking, then generates the card on a
+	 * print worker.
+	 */
+	private Mono<Boolean> print(EventModel eventModel) {
+		return credential(eventModel).publishOn(printWorkerScheduler)
+				.flatMap(credential -> Mono.fromCallable(() -> printService.printCredential(eventModel, credential)));
+	}
+
+	private Mono<String> credential(EventModel eventModel) {
+		Event event = eventModel.getEvent();
+		if (event.getDataShareUri() == null || event.getDataShareUri().isEmpty()) {
+			return Mono.just(event.getData().get("credential").toString());
+		}
+		return reactiveRestApiClient.getApi(URI.create(event.getDataShareUri()), String.class)
+				.switchIfEmpty(Mono.error(new DataShareException()))
+				.onErrorMap(e -> !(e instanceof DataShareException), e -> {
+					printLogger.error("credential download failed for event id: " + event.getId(), e);
+					return new DataShareException();
+				});
+	}
+
+	/** Whether the print workers refused the work, their queue being full. */
+	private static boolean isRejected(Throwable e) {
+		return e instanceof RejectedExecutionException || e.getCause() instanceof RejectedExecutionException;
+	}
+
+	private ResponseEntity<String> unavailable(int retryAfter) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+		return new ResponseEntity<>("print queue is full, retry later.", headers, HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+	private String line(Object value) {
+		try {
+			return JsonUtil.writeValueAsString(value) + "\n";
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
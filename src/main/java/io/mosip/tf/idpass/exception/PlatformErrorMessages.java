@@ -71,7 +71,11 @@ public enum PlatformErrorMessages {
 	CERTIFICATE_THUMBPRINT_ERROR(PlatformConstants.PRT_PRINT_PREFIX + "026", "certificate thumbprint failure"),
 	PRT_INVALID_KEY_EXCEPTION(PlatformConstants.PRT_PRINT_PREFIX + "027", "invalid key"),
 	PRT_PDF_SIGN_EXCEPTION(PlatformConstants.PRT_PRINT_PREFIX + "028", "error occured while signing pdf"),
-	PRT_UNKNOWN_DECRYPTION_EXCEPTION(PlatformConstants.PRT_PRINT_PREFIX + "029", "Unknown Error in data decryption.");
+	PRT_UNKNOWN_DECRYPTION_EXCEPTION(PlatformConstants.PRT_PRINT_PREFIX + "029", "Unknown Error in data decryption."),
+	/** The print event journal could not be read or written. */
+	PRT_JOURNAL_EXCEPTION(PlatformConstants.PRT_PRINT_PREFIX + "030", "Print event journal failure"),
+	/** A failed print event could not be written to or read from the dead letter directory. */
+	PRT_DEAD_LETTER_EXCEPTION(PlatformConstants.PRT_PRINT_PREFIX + "031", "Print dead letter store failure");
 	
 
 
@@ -0,0 +1,30 @@
+package io.mosip.tf.idpass.exception;
+
+/**
+ * The Class PrintDeadLetterException.
+ */
+public class PrintDeadLetterException extends BaseUncheckedException {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Instantiates a new print dead letter exception.
+	 *
+	 * @param message the message
+	 */
+	public PrintDeadLetterException(String message) {
+		super(PlatformErrorMessages.PRT_DEAD_LETTER_EXCEPTION.getCode(), message);
+	}
+
+	/**
+	 * Instantiates a new print dead letter exception.
+	 *
+	 * @param message the message
+	 * @param cause   the cause
+	 */
+	public PrintDeadLetterException(String message, Throwable cause) {
+		super(PlatformErrorMessages.PRT_DEAD_LETTER_EXCEPTION.getCode(), message, cause);
+	}
+
+}
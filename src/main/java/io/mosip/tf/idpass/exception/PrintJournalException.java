@@ -0,0 +1,30 @@
+package io.mosip.tf.idpass.exception;
+
+/**
+ * The Class PrintJournalException.
+ */
+public class PrintJournalException extends BaseUncheckedException {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Instantiates a new print journal exception.
+	 *
+	 * @param message the message
+	 */
+	public PrintJournalException(String message) {
+		super(PlatformErrorMessages.PRT_JOURNAL_EXCEPTION.getCode(), message);
+	}
+
+	/**
+	 * Instantiates a new print journal exception.
+	 *
+	 * @param message the message
+	 * @param cause   the cause
+	 */
+	public PrintJournalException(String message, Throwable cause) {
+		super(PlatformErrorMessages.PRT_JOURNAL_EXCEPTION.getCode(), message, cause);
+	}
+
+}
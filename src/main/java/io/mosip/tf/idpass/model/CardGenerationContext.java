@@ -0,0 +1,91 @@
+package io.mosip.tf.idpass.model;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.mosip.tf.idpass.logger.LogDescription;
+import io.mosip.tf.idpass.utils.IDPassLiteDTO;
+import lombok.Data;
+
+/**
+ * State of one card as it moves through the generation stages. Each stage
+ * reads what the previous stages left here and adds its own output.
+ */
+@Data
+public class CardGenerationContext {
+
+	/** The event received from websub. */
+	private EventModel eventModel;
+
+	/** Encrypted credential, inline or downloaded from datashare. */
+	private String credential;
+
+	/**
+	 * Decrypted verifiable credential text, only kept when the credential is
+	 * verified.
+	 */
+	private String decodedCredential;
+
+	/** Decrypted verifiable credential, parsed once. */
+	private JsonNode credentialDocument;
+
+	/** Set by the verify stage when the credential must not be printed. */
+	private boolean rejected;
+
+	/**
+	 * Completed with the verify stage, true when the card may be printed. Work
+	 * started before the credential is verified stops once it completes with
+	 * false.
+	 */
+	private final CompletableFuture<Boolean> verification = new CompletableFuture<>();
+
+	/**
+	 * credentialSubject of the credential document with the protected
+	 * attributes decrypted in place. Only read once the extract stage is done.
+	 */
+	private ObjectNode credentialSubject;
+
+	private String uin;
+
+	private String password;
+
+	/** Template attributes. */
+	private Map<String, Object> attributes = new LinkedHashMap<>();
+
+	/** Generated documents. */
+	private Map<String, byte[]> byteMap = new HashMap<>();
+
+	private IDPassLiteDTO idPassLite;
+
+	/** Rendered card before signing. */
+	private byte[] unsignedPdf;
+
+	/** Signed card. */
+	private byte[] pdfBytes;
+
+	/** Audit description of the document generation. */
+	private LogDescription description = new LogDescription();
+
+	private boolean transactionSuccessful;
+
+	/** Resources shared by the cards of a batch, null for a single card. */
+	private PrintBatchResources batchResources;
+
+	public CardGenerationContext(EventModel eventModel) {
+		this.eventModel = eventModel;
+	}
+
+	public Event getEvent() {
+		return eventModel.getEvent();
+	}
+
+	/** Whether the credential failed verification, work for it can be dropped. */
+	public boolean isVerificationFailed() {
+		return Boolean.FALSE.equals(verification.getNow(null));
+	}
+}
@@ -0,0 +1,26 @@
+package io.mosip.tf.idpass.model;
+
+import lombok.Data;
+
+/**
+ * A print event that failed for good, as kept in the dead letter directory
+ * until it is re-driven.
+ */
+@Data
+public class DeadLetter {
+
+	/** The event received from websub. */
+	private EventModel eventModel;
+
+	/** Print attempts made before giving up. */
+	private int attempts;
+
+	/** Last error, exception class and message. */
+	private String error;
+
+	/** Whether the last error was worth retrying. */
+	private boolean retryable;
+
+	/** UTC time of the last attempt. */
+	private String failedAt;
+}
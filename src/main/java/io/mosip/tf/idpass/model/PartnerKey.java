@@ -0,0 +1,52 @@
+package io.mosip.tf.idpass.model;
+
+import java.security.KeyStore.PrivateKeyEntry;
+
+/**
+ * Partner key unlocked from the keystore, with the certificate thumbprint
+ * the credentials are encrypted for. Never changes once built, a reload
+ * builds a new one.
+ */
+public final class PartnerKey {
+
+	private final String alias;
+
+	private final PrivateKeyEntry privateKeyEntry;
+
+	private final byte[] thumbprint;
+
+	private final String source;
+
+	private final long loadedAt;
+
+	public PartnerKey(String alias, PrivateKeyEntry privateKeyEntry, byte[] thumbprint, String source,
+			long loadedAt) {
+		this.alias = alias;
+		this.privateKeyEntry = privateKeyEntry;
+		this.thumbprint = thumbprint.clone();
+		this.source = source;
+		this.loadedAt = loadedAt;
+	}
+
+	public String getAlias() {
+		return alias;
+	}
+
+	public PrivateKeyEntry getPrivateKeyEntry() {
+		return privateKeyEntry;
+	}
+
+	public byte[] getThumbprint() {
+		return thumbprint.clone();
+	}
+
+	/** Keystore the key was read from. */
+	public String getSource() {
+		return source;
+	}
+
+	/** Epoch millis of the load. */
+	public long getLoadedAt() {
+		return loadedAt;
+	}
+}
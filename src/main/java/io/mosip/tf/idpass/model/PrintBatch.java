@@ -0,0 +1,53 @@
+package io.mosip.tf.idpass.model;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A batch of events being printed. The items complete one by one, in no
+ * particular order, as their cards are done.
+ */
+public class PrintBatch {
+
+	private final List<CompletableFuture<PrintBatchItem>> items;
+
+	/** System.nanoTime() at which the batch was started. */
+	private final long startedAt;
+
+	public PrintBatch(List<CompletableFuture<PrintBatchItem>> items, long startedAt) {
+		this.items = items;
+		this.startedAt = startedAt;
+	}
+
+	/** One future per event, in the order of the events. */
+	public List<CompletableFuture<PrintBatchItem>> getItems() {
+		return items;
+	}
+
+	/**
+	 * Completes with the throughput figures once every item has completed.
+	 */
+	public CompletableFuture<PrintBatchSummary> getSummary() {
+		return CompletableFuture.allOf(items.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+			long elapsed = Math.max(System.nanoTime() - startedAt, 1);
+			PrintBatchSummary summary = new PrintBatchSummary();
+			long totalMillis = 0;
+			for (CompletableFuture<PrintBatchItem> future : items) {
+				PrintBatchItem item = future.join();
+				if (item.isPrinted()) {
+					summary.setPrinted(summary.getPrinted() + 1);
+				} else {
+					summary.setFailed(summary.getFailed() + 1);
+				}
+				totalMillis += item.getMillis();
+				summary.setMaxMillis(Math.max(summary.getMaxMillis(), item.getMillis()));
+			}
+			summary.setCount(items.size());
+			summary.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsed));
+			summary.setCardsPerSecond(summary.getPrinted() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed);
+			summary.setMeanMillis(items.isEmpty() ? 0 : totalMillis / items.size());
+			return summary;
+		});
+	}
+}
@@ -0,0 +1,23 @@
+package io.mosip.tf.idpass.model;
+
+import lombok.Data;
+
+/**
+ * Outcome of one event of a print batch.
+ */
+@Data
+public class PrintBatchItem {
+
+	/** Position of the event in the batch. */
+	private int index;
+
+	private String eventId;
+
+	private boolean printed;
+
+	/** Why the card was not printed, null when printed. */
+	private String error;
+
+	/** Time spent on the card, queueing excluded. */
+	private long millis;
+}
@@ -0,0 +1,19 @@
+package io.mosip.tf.idpass.model;
+
+import io.mosip.tf.idpass.spi.TemplateManager;
+import lombok.Data;
+
+/**
+ * Resources loaded once for a batch of cards instead of once per card. A
+ * resource that could not be loaded is left null and each card of the batch
+ * loads it itself.
+ */
+@Data
+public class PrintBatchResources {
+
+	/** Card template text fetched from masterdata. */
+	private String templateText;
+
+	/** Velocity engine the template is merged with. */
+	private TemplateManager templateManager;
+}
@@ -0,0 +1,27 @@
+package io.mosip.tf.idpass.model;
+
+import lombok.Data;
+
+/**
+ * Throughput figures of a completed print batch.
+ */
+@Data
+public class PrintBatchSummary {
+
+	private int count;
+
+	private int printed;
+
+	private int failed;
+
+	/** Wall clock time from the start of the batch to its last card. */
+	private long elapsedMillis;
+
+	private double cardsPerSecond;
+
+	/** Mean time spent on one card. */
+	private long meanMillis;
+
+	/** Slowest card. */
+	private long maxMillis;
+}
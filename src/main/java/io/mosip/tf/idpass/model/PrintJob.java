@@ -0,0 +1,35 @@
+package io.mosip.tf.idpass.model;
+
+import lombok.Data;
+
+/**
+ * A credential event accepted by the callback endpoint and waiting to be
+ * printed by a dispatcher worker.
+ */
+@Data
+public class PrintJob {
+
+	/** The event received from websub. */
+	private EventModel eventModel;
+
+	/** System.nanoTime() at which the job was last put on the queue. */
+	private long enqueuedAt;
+
+	/** Id of the journal entry, -1 when the job is not journaled. */
+	private long journalId = -1;
+
+	/** Priority lane of the job, 0 is the most urgent. */
+	private int lane;
+
+	/** Print attempts started so far. */
+	private int attempts;
+
+	public PrintJob(EventModel eventModel) {
+		this.eventModel = eventModel;
+		this.enqueuedAt = System.nanoTime();
+	}
+
+	public String getEventId() {
+		return eventModel.getEvent() != null ? eventModel.getEvent().getId() : null;
+	}
+}
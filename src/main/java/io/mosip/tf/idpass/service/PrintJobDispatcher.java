@@ -0,0 +1,50 @@
+package io.mosip.tf.idpass.service;
+
+import io.mosip.tf.idpass.model.EventModel;
+
+/**
+ * Accept-then-process front of the print service. Events are put on a bounded
+ * in-memory queue and printed by a pool of worker threads, so the websub
+ * callback can be acknowledged without waiting for the card.
+ */
+public interface PrintJobDispatcher {
+
+	/**
+	 * Whether the asynchronous mode is switched on.
+	 *
+	 * @return true if events should be dispatched instead of printed inline
+	 */
+	public boolean isEnabled();
+
+	/**
+	 * Queue the event for printing.
+	 *
+	 * @param eventModel
+	 * @return false if the queue is full and the event was not accepted
+	 */
+	public boolean dispatch(EventModel eventModel);
+
+	/**
+	 * Seconds a rejected publisher should wait before redelivering.
+	 *
+	 * @return the Retry-After value
+	 */
+	public int getRetryAfterSeconds();
+
+	/**
+	 * Queue the oldest dead lettered events again, as fresh jobs. Stops early
+	 * when the queue is full.
+	 *
+	 * @param limit most events re-driven
+	 * @return the number of events re-driven
+	 */
+	public int redriveDeadLetters(int limit);
+
+	/**
+	 * Events waiting in the dead letter directory.
+	 *
+	 * @return the count
+	 */
+	public int getDeadLetterCount();
+
+}
@@ -1,6 +1,11 @@
 package io.mosip.tf.idpass.service;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import io.mosip.tf.idpass.model.EventModel;
+import io.mosip.tf.idpass.model.PrintBatch;
+import io.mosip.tf.idpass.model.PrintBatchResources;
 
 public interface PrintService {
     
@@ -14,6 +19,73 @@ public interface PrintService {
 	 */
 	public boolean generateCard(EventModel eventModel) throws Exception;
 
+	/**
+	 * Get the card, throwing the failure instead of logging it so the caller
+	 * can decide whether to retry.
+	 * 
+	 * @param eventModel
+	 * @return false if the credential was rejected by verification
+	 * @throws Exception why the card could not be generated
+	 */
+	public boolean printCard(EventModel eventModel) throws Exception;
+
+	/**
+	 * Same as {@link #printCard(EventModel)} for a credential the caller has
+	 * already downloaded from datashare.
+	 * 
+	 * @param eventModel
+	 * @param credential the encrypted credential of the event
+	 * @return false if the credential was rejected by verification
+	 * @throws Exception why the card could not be generated
+	 */
+	public boolean printCredential(EventModel eventModel, String credential) throws Exception;
+
+	/**
+	 * Get the card through the staged pipeline. Each step runs on the thread
+	 * pool of its stage, so the calling thread is only used to queue the
+	 * first step.
+	 * 
+	 * @param eventModel
+	 * @return completes with false if the credential was rejected by
+	 *         verification, exceptionally if the card could not be generated
+	 * @throws java.util.concurrent.RejectedExecutionException if the first
+	 *                                                         stage is full
+	 */
+	public CompletableFuture<Boolean> generateCardStaged(EventModel eventModel);
+
+	/**
+	 * Get the cards of a batch of events. The cards are generated in parallel
+	 * and share the template, which is loaded once for the batch. Each
+	 * credential is decrypted with the partner key it was encrypted for.
+	 * Redeliveries of printed events are skipped as for single events.
+	 * 
+	 * @param eventModels
+	 * @return the batch, its items complete as the cards are done
+	 * @throws java.util.concurrent.RejectedExecutionException if the batch queue
+	 *                                                         has no room for
+	 *                                                         every card
+	 */
+	public PrintBatch generateCards(List<EventModel> eventModels);
+
+	/**
+	 * Load the template once for many cards.
+	 * 
+	 * @return the resources, those that failed to load are null
+	 */
+	public PrintBatchResources loadBatchResources();
+
+	/**
+	 * Get the signed card of an event without publishing it: the card is
+	 * neither uploaded to datashare nor announced on websub.
+	 * 
+	 * @param eventModel
+	 * @param resources  shared resources, may be null
+	 * @return the signed pdf, null if the credential was rejected by
+	 *         verification
+	 * @throws Exception why the card could not be generated
+	 */
+	public byte[] generateCardPdf(EventModel eventModel, PrintBatchResources resources) throws Exception;
+
 	// Map<String, byte[]> getDocuments(String credentialSubject, String sign,
 	// String cardType,
 	// boolean isPasswordProtected);
@@ -0,0 +1,401 @@
+package io.mosip.tf.idpass.service.impl;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.mosip.tf.idpass.exception.PrintDeadLetterException;
+import io.mosip.tf.idpass.exception.PrintJournalException;
+import io.mosip.tf.idpass.logger.PrintLogger;
+import io.mosip.tf.idpass.model.DeadLetter;
+import io.mosip.tf.idpass.model.EventModel;
+import io.mosip.tf.idpass.model.PrintJob;
+import io.mosip.tf.idpass.service.PrintJobDispatcher;
+import io.mosip.tf.idpass.service.PrintService;
+import io.mosip.tf.idpass.util.DateUtils;
+import io.mosip.tf.idpass.util.PrintDeadLetterStore;
+import io.mosip.tf.idpass.util.PrintEventDeduplicator;
+import io.mosip.tf.idpass.util.PrintEventJournal;
+import io.mosip.tf.idpass.util.PrintPipelineStages;
+import io.mosip.tf.idpass.util.PrintPriorityLanes;
+import io.mosip.tf.idpass.util.PrintRetryScheduler;
+import io.mosip.tf.idpass.util.PriorityLaneQueue;
+
+/**
+ * Bounded queue and worker pool behind /print/callback/notifyPrint. When the
+ * staged pipeline is enabled the events go to its first stage instead and
+ * the worker pool is not used.
+ *
+ * With priority lanes enabled the queue has one lane per priority class and
+ * the workers serve the lanes by weight, so urgent reprints do not wait
+ * behind bulk issuance. With the pipeline enabled as well, a single worker
+ * feeds the lanes to the first stage, waiting while that stage is full, so
+ * the lanes decide which job enters the pipeline next.
+ *
+ * A job failing on a service the card depends on is retried with backoff by
+ * the {@link PrintRetryScheduler}. A job failing for good, or out of
+ * attempts, is moved to the {@link PrintDeadLetterStore} and can be re-driven
+ * from there.
+ */
+@Service
+public class PrintJobDispatcherImpl implements PrintJobDispatcher {
+
+	private Logger printLogger = PrintLogger.getLogger(PrintJobDispatcherImpl.class);
+
+	@Autowired
+	private PrintService printService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private PrintEventJournal printEventJournal;
+
+	@Autowired
+	private PrintEventDeduplicator printEventDeduplicator;
+
+	@Autowired
+	private PrintPipelineStages pipelineStages;
+
+	@Autowired
+	private PrintPriorityLanes priorityLanes;
+
+	@Autowired
+	private PrintRetryScheduler retryScheduler;
+
+	@Autowired
+	private PrintDeadLetterStore deadLetterStore;
+
+	@Value("${mosip.print.async.enabled:false}")
+	private boolean enabled;
+
+	@Value("${mosip.print.async.queue-capacity:1000}")
+	private int queueCapacity;
+
+	@Value("${mosip.print.async.worker-threads:4}")
+	private int workerThreads;
+
+	@Value("${mosip.print.async.retry-after-seconds:30}")
+	private int retryAfterSeconds;
+
+	@Value("${mosip.print.async.shutdown-timeout-seconds:60}")
+	private int shutdownTimeoutSeconds;
+
+	private ThreadPoolExecutor executor;
+
+	private Timer queueWaitTimer;
+
+	private Counter rejectedCounter;
+
+	@PostConstruct
+	public void init() {
+		if (!enabled) {
+			return;
+		}
+		BlockingQueue<Runnable> queue = priorityLanes.isEnabled() ? priorityLanes.newQueue(queueCapacity)
+				: new ArrayBlockingQueue<>(queueCapacity);
+		// feeding the pipeline takes one thread, more would take jobs out of lane order
+		int threads = pipelineStages.isEnabled() ? 1 : workerThreads;
+		executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue,
+				new CustomizableThreadFactory("print-worker-"), new ThreadPoolExecutor.AbortPolicy());
+		Gauge.builder("print.queue.depth", executor, e -> e.getQueue().size())
+				.description("print jobs waiting for a worker").register(meterRegistry);
+		Gauge.builder("print.queue.active", executor, ThreadPoolExecutor::getActiveCount)
+				.description("print jobs being processed").register(meterRegistry);
+		queueWaitTimer = Timer.builder("print.queue.wait").description("time a print job spent in the queue")
+				.register(meterRegistry);
+		rejectedCounter = Counter.builder("print.queue.rejected").description("events refused because the queue was full")
+				.register(meterRegistry);
+		printLogger.info("print dispatcher started with {} workers and queue capacity {}{}", threads,
+				queueCapacity, isLaneFed() ? ", feeding the pipeline by priority lane" : "");
+		if (printEventJournal.isEnabled()) {
+			replay(printEventJournal.drainRecovered());
+		}
+	}
+
+	/**
+	 * Puts the events left unfinished by the previous run back on the queue. This
+	 * blocks for free slots instead of rejecting, so it runs off the startup
+	 * thread.
+	 */
+	private void replay(List<PrintJob> jobs) {
+		if (jobs.isEmpty()) {
+			return;
+		}
+		executor.prestartAllCoreThreads();
+		Thread replayer = new Thread(() -> {
+			try {
+				for (PrintJob job : jobs) {
+					job.setLane(priorityLanes.laneOf(job.getEventModel()));
+					if (pipelineStages.isEnabled() && !isLaneFed()) {
+						submitStagedWhenFree(job);
+					} else {
+						executor.getQueue().put(new PrintJobTask(job));
+					}
+				}
+				printLogger.info("{} journaled print events replayed", jobs.size());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, "print-journal-replay");
+		replayer.setDaemon(true);
+		replayer.start();
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public boolean dispatch(EventModel eventModel) {
+		if (printEventDeduplicator.isDuplicate(eventModel)) {
+			return true;
+		}
+		PrintJob job = new PrintJob(eventModel);
+		job.setLane(priorityLanes.laneOf(eventModel));
+		if (printEventJournal.isEnabled()) {
+			try {
+				job.setJournalId(printEventJournal.append(eventModel));
+			} catch (PrintJournalException e) {
+				printLogger.error("could not journal event id: " + job.getEventId(), e);
+				return false;
+			}
+		}
+		try {
+			enqueue(job);
+			return true;
+		} catch (RejectedExecutionException e) {
+			if (job.getJournalId() >= 0) {
+				printEventJournal.markDone(job.getJournalId());
+			}
+			rejectedCounter.increment();
+			printLogger.warn("print queue is full, event id: {} rejected", job.getEventId());
+			return false;
+		}
+	}
+
+	/** Whether jobs reach the pipeline through the priority lanes. */
+	private boolean isLaneFed() {
+		return pipelineStages.isEnabled() && priorityLanes.isEnabled();
+	}
+
+	/**
+	 * Queues the job for the workers, or hands it straight to the pipeline
+	 * when no lanes order it.
+	 *
+	 * @throws RejectedExecutionException if the queue or first stage is full
+	 */
+	private void enqueue(PrintJob job) {
+		if (pipelineStages.isEnabled() && !isLaneFed()) {
+			submitStaged(job);
+		} else {
+			executor.execute(new PrintJobTask(job));
+		}
+	}
+
+	@Override
+	public int getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+
+	private void process(PrintJob job) {
+		long waited = System.nanoTime() - job.getEnqueuedAt();
+		queueWaitTimer.record(waited, TimeUnit.NANOSECONDS);
+		priorityLanes.recordWait(job.getLane(), waited);
+		job.setAttempts(job.getAttempts() + 1);
+		boolean isPrinted;
+		try {
+			isPrinted = printEventDeduplicator.execute(job.getEventModel(),
+					() -> printService.printCard(job.getEventModel()));
+		} catch (Exception e) {
+			fail(job, e);
+			return;
+		}
+		finish(job, isPrinted);
+	}
+
+	/**
+	 * Moves a job from its lane to the first stage of the pipeline, waiting
+	 * for room there.
+	 */
+	private void feed(PrintJob job) {
+		long waited = System.nanoTime() - job.getEnqueuedAt();
+		queueWaitTimer.record(waited, TimeUnit.NANOSECONDS);
+		priorityLanes.recordWait(job.getLane(), waited);
+		try {
+			submitStagedWhenFree(job);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			// the journal entry stays, so the event is replayed on restart
+			printLogger.warn("print dispatcher stopped before event id: {} reached the pipeline", job.getEventId());
+		}
+	}
+
+	private void submitStaged(PrintJob job) {
+		job.setAttempts(job.getAttempts() + 1);
+		try {
+			printEventDeduplicator
+					.executeAsync(job.getEventModel(), () -> printService.generateCardStaged(job.getEventModel()))
+					.whenComplete((isPrinted, e) -> {
+						if (e != null) {
+							fail(job, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+						} else {
+							finish(job, isPrinted);
+						}
+					});
+		} catch (RejectedExecutionException e) {
+			// a full first stage is not an attempt
+			job.setAttempts(job.getAttempts() - 1);
+			throw e;
+		}
+	}
+
+	private void submitStagedWhenFree(PrintJob job) throws InterruptedException {
+		while (true) {
+			try {
+				submitStaged(job);
+				return;
+			} catch (RejectedExecutionException e) {
+				TimeUnit.MILLISECONDS.sleep(100);
+			}
+		}
+	}
+
+	/**
+	 * Retries the job later, or moves it to the dead letter directory when the
+	 * failure is terminal or the job is out of attempts.
+	 */
+	private void fail(PrintJob job, Throwable failure) {
+		printLogger.error("printing failed for event id: " + job.getEventId() + ", attempt " + job.getAttempts(),
+				failure);
+		if (retryScheduler.retry(job, failure, this::redispatch)) {
+			return;
+		}
+		DeadLetter deadLetter = new DeadLetter();
+		deadLetter.setEventModel(job.getEventModel());
+		deadLetter.setAttempts(job.getAttempts());
+		deadLetter.setError(failure.getClass().getName() + ": " + failure.getMessage());
+		deadLetter.setRetryable(retryScheduler.isRetryable(failure));
+		deadLetter.setFailedAt(DateUtils.getUTCCurrentDateTimeString());
+		try {
+			deadLetterStore.store(deadLetter);
+		} catch (PrintDeadLetterException e) {
+			// the journal entry stays, so the event is replayed on restart
+			printLogger.error("event id: " + job.getEventId() + " could not be dead lettered", e);
+			return;
+		}
+		if (job.getJournalId() >= 0) {
+			printEventJournal.markDone(job.getJournalId());
+		}
+	}
+
+	/**
+	 * Puts a job due for retry back on the queue, or schedules it again if the
+	 * queue is full.
+	 */
+	private void redispatch(PrintJob job) {
+		job.setEnqueuedAt(System.nanoTime());
+		try {
+			enqueue(job);
+		} catch (RejectedExecutionException e) {
+			retryScheduler.requeue(job, TimeUnit.SECONDS.toMillis(retryAfterSeconds), this::redispatch);
+		}
+	}
+
+	@Override
+	public int redriveDeadLetters(int limit) {
+		int redriven = 0;
+		for (String name : deadLetterStore.list(limit)) {
+			DeadLetter deadLetter;
+			try {
+				deadLetter = deadLetterStore.read(name);
+			} catch (PrintDeadLetterException e) {
+				printLogger.error("dead letter " + name + " skipped", e);
+				continue;
+			}
+			if (!dispatch(deadLetter.getEventModel())) {
+				printLogger.warn("print queue is full, re-drive stopped after {} events", redriven);
+				break;
+			}
+			deadLetterStore.remove(name);
+			redriven++;
+		}
+		printLogger.info("{} dead lettered print events re-driven", redriven);
+		return redriven;
+	}
+
+	@Override
+	public int getDeadLetterCount() {
+		return deadLetterStore.size();
+	}
+
+	private void finish(PrintJob job, boolean isPrinted) {
+		printLogger.info("printing status : {} for event id: {}", isPrinted, job.getEventId());
+		priorityLanes.recordLatency(job.getLane(), System.nanoTime() - job.getEnqueuedAt());
+		// a credential that failed verification is rejected for good, replaying it
+		// would only verify it again
+		if (job.getJournalId() >= 0) {
+			printEventJournal.markDone(job.getJournalId());
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		if (executor == null) {
+			return;
+		}
+		executor.shutdown();
+		if (!executor.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+			printLogger.warn("print dispatcher stopped with {} jobs still queued", executor.getQueue().size());
+			executor.shutdownNow();
+		}
+	}
+
+	/** Queued form of a job, tells the lane queue which lane it belongs to. */
+	private class PrintJobTask implements Runnable, PriorityLaneQueue.Laned {
+
+		private final PrintJob job;
+
+		private PrintJobTask(PrintJob job) {
+			this.job = job;
+		}
+
+		@Override
+		public void run() {
+			if (pipelineStages.isEnabled()) {
+				feed(job);
+			} else {
+				process(job);
+			}
+		}
+
+		@Override
+		public int getLane() {
+			return job.getLane();
+		}
+
+		@Override
+		public long getEnqueuedAt() {
+			return job.getEnqueuedAt();
+		}
+	}
+
+}
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.core.env.Environment;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
@@ -26,6 +27,7 @@ import io.mosip.tf.idpass.util.RestApiClient;
  * @author Rishabh Keshari
  */
 @Service
+@Profile("!reactive")
 public class PrintRestClientServiceImpl implements PrintRestClientService<Object> {
 
 	/** The logger. */
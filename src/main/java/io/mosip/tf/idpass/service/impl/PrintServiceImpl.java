@@ -5,6 +5,7 @@ import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.net.URI;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
@@ -22,12 +23,24 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
-
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.Multiset.Entry;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -38,15 +51,15 @@ import io.mosip.vercred.exception.ProofTypeNotFoundException;
 import io.mosip.vercred.exception.PubicKeyNotFoundException;
 import io.mosip.vercred.exception.UnknownException;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
 import org.joda.time.DateTime;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import io.mosip.tf.idpass.constant.EventId;
@@ -59,14 +72,18 @@ import io.mosip.tf.idpass.constant.PlatformSuccessMessages;
 import io.mosip.tf.idpass.constant.QrVersion;
 import io.mosip.tf.idpass.constant.UinCardType;
 import io.mosip.tf.idpass.dto.CryptoWithPinRequestDto;
-import io.mosip.tf.idpass.dto.CryptoWithPinResponseDto;
 import io.mosip.tf.idpass.dto.DataShare;
 import io.mosip.tf.idpass.dto.JsonValue;
 import io.mosip.tf.idpass.exception.*;
 import io.mosip.tf.idpass.logger.LogDescription;
 import io.mosip.tf.idpass.logger.PrintLogger;
+import io.mosip.tf.idpass.model.CardGenerationContext;
 import io.mosip.tf.idpass.model.CredentialStatusEvent;
+import io.mosip.tf.idpass.model.Event;
 import io.mosip.tf.idpass.model.EventModel;
+import io.mosip.tf.idpass.model.PrintBatch;
+import io.mosip.tf.idpass.model.PrintBatchItem;
+import io.mosip.tf.idpass.model.PrintBatchResources;
 import io.mosip.tf.idpass.model.StatusEvent;
 import io.mosip.tf.idpass.service.PrintService;
 import io.mosip.tf.idpass.service.UinCardGenerator;
@@ -78,10 +95,14 @@ import io.mosip.tf.idpass.util.CryptoCoreUtil;
 import io.mosip.tf.idpass.util.CryptoUtil;
 import io.mosip.tf.idpass.util.DataShareUtil;
 import io.mosip.tf.idpass.util.DateUtils;
+import io.mosip.tf.idpass.util.IdentityMappingPlan;
 import io.mosip.tf.idpass.util.JsonUtil;
+import io.mosip.tf.idpass.util.PrintEventDeduplicator;
+import io.mosip.tf.idpass.util.PrintPipelineStages;
 import io.mosip.tf.idpass.util.RestApiClient;
 import io.mosip.tf.idpass.util.TemplateGenerator;
 import io.mosip.tf.idpass.util.Utilities;
+import io.mosip.tf.idpass.util.VerificationResultCache;
 import io.mosip.tf.idpass.util.WebSubSubscriptionHelper;
 import io.mosip.tf.idpass.utils.IDPassLiteDTO;
 import io.mosip.tf.idpass.utils.IDPassReaderComponent;
@@ -112,6 +133,8 @@ public class PrintServiceImpl implements PrintService{
 	/** The Constant VALUE. */
 	private static final String VALUE = "value";
 
+	private static final String LANGUAGE = "language";
+
 	/** The Constant UIN_CARD_TEMPLATE. */
 	private static final String UIN_CARD_TEMPLATE = "RPR_UIN_CARD_TEMPLATE";
 
@@ -127,6 +150,9 @@ public class PrintServiceImpl implements PrintService{
 	/** The Constant APPLICANT_PHOTO. */
 	private static final String APPLICANT_PHOTO = "ApplicantPhoto";
 
+	/** Cards are not password protected. */
+	private static final boolean IS_PASSWORD_PROTECTED = false;
+
 	/** The Constant QRCODE. */
 	private static final String QRCODE = "QrCode";
 
@@ -183,6 +209,18 @@ public class PrintServiceImpl implements PrintService{
 	@Autowired
 	private CredentialsVerifier credentialsVerifier;
 
+	/** Outcomes of credentials verified a moment ago. */
+	@Autowired
+	private VerificationResultCache verificationResultCache;
+
+	/** Stage thread pools used by generateCardStaged. */
+	@Autowired
+	private PrintPipelineStages pipelineStages;
+
+	/** Skips redelivered events of a batch. */
+	@Autowired
+	private PrintEventDeduplicator printEventDeduplicator;
+
 	@Value("${mosip.datashare.partner.id}")
 	private String partnerId;
 
@@ -195,54 +233,353 @@ public class PrintServiceImpl implements PrintService{
 	@Value("#{'${mosip.mandatory-languages:}'.concat('${mosip.optional-languages:}')}")
 	private String supportedLang;
 
+	/** Template fields of the identity mapping, compiled on first use. */
+	private volatile IdentityMappingPlan identityMappingPlan;
+
 	@Value("${mosip.print.verify.credentials.flag:true}")
 	private boolean verifyCredentialsFlag;
 
+	/** Cards of batches generated at the same time. */
+	@Value("${mosip.print.batch.threads:8}")
+	private int batchThreads;
+
+	/** Cards of batches waiting for a batch thread. */
+	@Value("${mosip.print.batch.queue-capacity:10000}")
+	private int batchQueueCapacity;
+
+	/**
+	 * Protected attributes decrypted at the same time, 0 for one per
+	 * processor.
+	 */
+	@Value("${mosip.print.attribute.threads:0}")
+	private int attributeThreads;
+
+	/**
+	 * Decrypts the protected attributes and extracts the photo while the
+	 * credential is being verified.
+	 */
+	@Value("${mosip.print.verify.overlap.enabled:true}")
+	private boolean overlapVerification;
+
+	private ThreadPoolExecutor batchExecutor;
+
+	private ThreadPoolExecutor attributeExecutor;
+
+	private ThreadPoolExecutor speculationExecutor;
+
+	@PostConstruct
+	public void init() {
+		batchExecutor = new ThreadPoolExecutor(batchThreads, batchThreads, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(batchQueueCapacity), new CustomizableThreadFactory("print-batch-"));
+		batchExecutor.allowCoreThreadTimeOut(true);
+		int threads = attributeThreads > 0 ? attributeThreads : Runtime.getRuntime().availableProcessors();
+		// a full queue makes the card thread decrypt its own attributes
+		attributeExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(threads * 4), new CustomizableThreadFactory("print-attribute-"),
+				callerRuns("attribute"));
+		attributeExecutor.allowCoreThreadTimeOut(true);
+		// one extraction per card being verified, when full the card extracts before verifying
+		speculationExecutor = new ThreadPoolExecutor(batchThreads, batchThreads, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(batchThreads), new CustomizableThreadFactory("print-speculative-"),
+				callerRuns("speculative"));
+		speculationExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	private static RejectedExecutionHandler callerRuns(String pool) {
+		return (task, executor) -> {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException(pool + " pool is shut down");
+			}
+			task.run();
+		};
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		batchExecutor.shutdown();
+		attributeExecutor.shutdown();
+		speculationExecutor.shutdown();
+	}
 
 	public boolean generateCard(EventModel eventModel) {
-		String credential = null;
 		boolean isPrinted = false;
-		boolean verified=false;
 		try {
-			if (eventModel.getEvent().getDataShareUri() == null || eventModel.getEvent().getDataShareUri().isEmpty()) {
-				credential = eventModel.getEvent().getData().get("credential").toString();
+			isPrinted = printCard(eventModel);
+		}catch (Exception e){
+			printLogger.error(e.getMessage() , e);
+			isPrinted = false;
+		}
+		return isPrinted;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see io.mosip.tf.idpass.service.PrintService#printCard(io.mosip.tf.idpass.
+	 * model.EventModel)
+	 */
+	@Override
+	public boolean printCard(EventModel eventModel) throws Exception {
+		return generateCard(new CardGenerationContext(eventModel));
+	}
+
+	/**
+	 * Runs every step of the card on the calling thread.
+	 *
+	 * @return false when the credential was rejected
+	 */
+	private boolean generateCard(CardGenerationContext context) throws Exception {
+		fetchCredential(context);
+		return generateFetchedCard(context);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see io.mosip.tf.idpass.service.PrintService#printCredential(io.mosip.tf.
+	 * idpass.model.EventModel, java.lang.String)
+	 */
+	@Override
+	public boolean printCredential(EventModel eventModel, String credential) throws Exception {
+		CardGenerationContext context = new CardGenerationContext(eventModel);
+		context.setCredential(credential);
+		return generateFetchedCard(context);
+	}
+
+	private boolean generateFetchedCard(CardGenerationContext context) throws Exception {
+		decryptCredential(context);
+		CompletableFuture<CardGenerationContext> extracted = extractSpeculatively(context);
+		if (!verify(context)) {
+			return false;
+		}
+		getDocuments(context, extracted);
+		return true;
+	}
+
+	/**
+	 * Starts the extract stage while the credential is verified. Nothing it
+	 * produces is rendered before the verification passes, and it stops once
+	 * the verification fails.
+	 *
+	 * @return null when the extract stage has to follow the verification
+	 */
+	private CompletableFuture<CardGenerationContext> extractSpeculatively(CardGenerationContext context) {
+		if (!verifyCredentialsFlag || !overlapVerification) {
+			return null;
+		}
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return extractAttributes(context);
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		}, speculationExecutor);
+	}
+
+	/**
+	 * Runs the verify stage and completes the verification of the context.
+	 *
+	 * @return false when the credential was rejected
+	 */
+	private boolean verify(CardGenerationContext context) {
+		boolean verified = false;
+		try {
+			verifyCredential(context);
+			verified = !context.isRejected();
+		} finally {
+			context.getVerification().complete(verified);
+		}
+		return verified;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see io.mosip.tf.idpass.service.PrintService#generateCards(java.util.List)
+	 */
+	@Override
+	public PrintBatch generateCards(List<EventModel> eventModels) {
+		long startedAt = System.nanoTime();
+		PrintBatchResources resources = loadBatchResources();
+		List<CompletableFuture<PrintBatchItem>> items = new ArrayList<>(eventModels.size());
+		// only batches are queued here, so the room found is still there for every card
+		synchronized (batchExecutor) {
+			if (batchExecutor.getQueue().remainingCapacity() < eventModels.size()) {
+				throw new RejectedExecutionException("batch queue has no room for " + eventModels.size() + " cards");
+			}
+			for (int i = 0; i < eventModels.size(); i++) {
+				int index = i;
+				EventModel eventModel = eventModels.get(i);
+				items.add(CompletableFuture.supplyAsync(() -> generateBatchItem(index, eventModel, resources),
+						batchExecutor));
+			}
+		}
+		printLogger.info("print batch of {} events started", eventModels.size());
+		return new PrintBatch(items, startedAt);
+	}
+
+	/**
+	 * Loads the template for a batch. If it fails to load here it is loaded by
+	 * each card instead, so the cards report the error.
+	 */
+	@Override
+	public PrintBatchResources loadBatchResources() {
+		PrintBatchResources resources = new PrintBatchResources();
+		try {
+			resources.setTemplateManager(templateGenerator.getTemplateManager());
+			resources.setTemplateText(templateGenerator.getTemplateText(UIN_CARD_TEMPLATE, templateLang));
+		} catch (Exception e) {
+			printLogger.warn("card template could not be loaded for the batch, loading it per card", e);
+		}
+		return resources;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see io.mosip.tf.idpass.service.PrintService#generateCardPdf(io.mosip.tf.
+	 * idpass.model.EventModel, io.mosip.tf.idpass.model.PrintBatchResources)
+	 */
+	@Override
+	public byte[] generateCardPdf(EventModel eventModel, PrintBatchResources resources) throws Exception {
+		CardGenerationContext context = new CardGenerationContext(eventModel);
+		context.setBatchResources(resources);
+		fetchCredential(context);
+		decryptCredential(context);
+		CompletableFuture<CardGenerationContext> extracted = extractSpeculatively(context);
+		if (!verify(context)) {
+			return null;
+		}
+		try {
+			extract(context, extracted);
+			renderCard(context);
+			signCard(context);
+		} catch (Exception ex) {
+			throw documentFailure(context, ex);
+		}
+		return context.getPdfBytes();
+	}
+
+	private PrintBatchItem generateBatchItem(int index, EventModel eventModel, PrintBatchResources resources) {
+		PrintBatchItem item = new PrintBatchItem();
+		item.setIndex(index);
+		item.setEventId(eventModel.getEvent() != null ? eventModel.getEvent().getId() : null);
+		long start = System.nanoTime();
+		try {
+			CardGenerationContext context = new CardGenerationContext(eventModel);
+			context.setBatchResources(resources);
+			item.setPrinted(printEventDeduplicator.execute(eventModel, () -> generateCard(context)));
+			if (!item.isPrinted()) {
+				item.setError("credential rejected by verification");
+			}
+		} catch (Exception e) {
+			printLogger.error("printing failed for event id: " + item.getEventId(), e);
+			item.setError(e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+		}
+		item.setMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		return item;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see io.mosip.tf.idpass.service.PrintService#generateCardStaged(io.mosip.tf.
+	 * idpass.model.EventModel)
+	 */
+	@Override
+	public CompletableFuture<Boolean> generateCardStaged(EventModel eventModel) {
+		CardGenerationContext context = new CardGenerationContext(eventModel);
+		CompletableFuture<CardGenerationContext> fetched = pipelineStages.fetch()
+				.trySubmit(() -> fetchCredential(context));
+		CompletableFuture<CardGenerationContext> decrypted = pipelineStages.decrypt().then(fetched,
+				this::decryptCredential);
+		// the extract stage starts with the verify stage when the credential is verified
+		CompletableFuture<CardGenerationContext> extracted = verifyCredentialsFlag && overlapVerification
+				? pipelineStages.extract().then(decrypted, this::extractAttributes)
+				: null;
+		CompletableFuture<CardGenerationContext> verified = pipelineStages.verify().then(decrypted, c -> {
+			verify(c);
+			return c;
+		});
+		// the extract stage waits for the verification, which a refused verify stage never completes
+		verified.whenComplete((c, e) -> {
+			if (e != null) {
+				context.getVerification().complete(false);
+			}
+		});
+		return verified.thenCompose(c -> c.isRejected() ? CompletableFuture.completedFuture(false)
+				: getDocumentsStaged(c, extracted));
+	}
+
+	/**
+	 * Fetch stage: takes the credential from the event or downloads it from
+	 * datashare.
+	 */
+	private CardGenerationContext fetchCredential(CardGenerationContext context) throws Exception {
+		Event event = context.getEvent();
+		if (event.getDataShareUri() == null || event.getDataShareUri().isEmpty()) {
+			context.setCredential(event.getData().get("credential").toString());
+		} else {
+			String dataShareUrl = event.getDataShareUri();
+			URI dataShareUri = URI.create(dataShareUrl);
+			String credential = restApiClient.getApi(dataShareUri, String.class);
+			if (credential == null) {
+				// the rest client logs and swallows the failure
+				throw new DataShareException("credential could not be downloaded from datashare");
+			}
+			context.setCredential(credential);
+		}
+		return context;
+	}
+
+	/**
+	 * Decrypt stage: unwraps the credential with the partner key it was
+	 * encrypted for.
+	 */
+	private CardGenerationContext decryptCredential(CardGenerationContext context) throws Exception {
+		try (Reader credential = cryptoCoreUtil.decryptReader(context.getCredential())) {
+			if (verifyCredentialsFlag) {
+				// the verifier takes the credential text
+				context.setDecodedCredential(IOUtils.toString(credential));
+				context.setCredentialDocument(JsonUtil.readTree(context.getDecodedCredential()));
 			} else {
-				String dataShareUrl = eventModel.getEvent().getDataShareUri();
-				URI dataShareUri = URI.create(dataShareUrl);
-				credential = restApiClient.getApi(dataShareUri, String.class);
+				context.setCredentialDocument(JsonUtil.readTree(credential));
 			}
-			String ecryptionPin = eventModel.getEvent().getData().get("protectionKey").toString();
-			String decodedCredential = cryptoCoreUtil.decrypt(credential);
-			printLogger.debug("vc is printed security valuation.... : {}",decodedCredential);
-			if (verifyCredentialsFlag){
-				printLogger.info("Configured received credentials to be verified. Flag {}", verifyCredentialsFlag);
-				try {
-					verified=credentialsVerifier.verifyPrintCredentials(decodedCredential);
-					if (!verified) {
-						printLogger.error("Received Credentials failed in verifiable credential verify method. So, the credentials will not be printed." +
-								" Id: {}, Transaction Id: {}", eventModel.getEvent().getId(), eventModel.getEvent().getTransactionId());
-						return false;
-					}
-				}catch (ProofDocumentNotFoundException | ProofTypeNotFoundException e){
-					printLogger.error("Proof document is not available in the received credentials." +
-							" Id: {}, Transaction Id: {}", eventModel.getEvent().getId(), eventModel.getEvent().getTransactionId());
-				}catch (UnknownException | PubicKeyNotFoundException e){
+		}
+		printLogger.debug("vc is printed security valuation.... : {}", context.getCredentialDocument());
+		return context;
+	}
+
+	/**
+	 * Verify stage: checks the credential proof when configured. Marks the
+	 * context rejected when the credential must not be printed.
+	 */
+	private CardGenerationContext verifyCredential(CardGenerationContext context) {
+		Event event = context.getEvent();
+		if (verifyCredentialsFlag){
+			printLogger.info("Configured received credentials to be verified. Flag {}", verifyCredentialsFlag);
+			try {
+				String key = verificationResultCache.key(context.getDecodedCredential());
+				Boolean verified = verificationResultCache.get(key);
+				if (verified == null) {
+					verified = credentialsVerifier.verifyPrintCredentials(context.getDecodedCredential());
+					verificationResultCache.put(key, verified);
+				}
+				if (!verified) {
 					printLogger.error("Received Credentials failed in verifiable credential verify method. So, the credentials will not be printed." +
-							" Id: {}, Transaction Id: {}", eventModel.getEvent().getId(), eventModel.getEvent().getTransactionId());
-					return false;
+							" Id: {}, Transaction Id: {}", event.getId(), event.getTransactionId());
+					context.setRejected(true);
 				}
+			}catch (ProofDocumentNotFoundException | ProofTypeNotFoundException e){
+				printLogger.error("Proof document is not available in the received credentials." +
+						" Id: {}, Transaction Id: {}", event.getId(), event.getTransactionId());
+			}catch (UnknownException | PubicKeyNotFoundException e){
+				printLogger.error("Received Credentials failed in verifiable credential verify method. So, the credentials will not be printed." +
+						" Id: {}, Transaction Id: {}", event.getId(), event.getTransactionId());
+				context.setRejected(true);
 			}
-			Map proofMap = new HashMap<String, String>();
-			proofMap = (Map) eventModel.getEvent().getData().get("proof");
-			byte[] pdfbytes = getDocuments(decodedCredential,
-					eventModel.getEvent().getData().get("credentialType").toString(), ecryptionPin,
-					eventModel.getEvent().getTransactionId(), "UIN", false).get("uinPdf");
-			isPrinted = true; 
-		}catch (Exception e){
-			printLogger.error(e.getMessage() , e);
-			isPrinted = false;
 		}
-		return isPrinted;
+		return context;
 	}
 
 	/*
@@ -252,85 +589,218 @@ public class PrintServiceImpl implements PrintService{
 	 * getDocuments(io.mosip.registration.processor.core.constant.IdType,
 	 * java.lang.String, java.lang.String, boolean)
 	 */
-	private Map<String, byte[]> getDocuments(String credential, String credentialType, String encryptionPin,
-			String requestId,
-			String cardType,
-			boolean isPasswordProtected) {
+	private Map<String, byte[]> getDocuments(CardGenerationContext context,
+			CompletableFuture<CardGenerationContext> extracted) {
 		printLogger.debug("PrintServiceImpl::getDocuments()::entry");
-		String credentialSubject;
-		Map<String, byte[]> byteMap = new HashMap<>();
-		String uin = null;
-		LogDescription description = new LogDescription();
-		String password = null;
-		String individualBio = null;
-		Map<String, Object> attributes = new LinkedHashMap<>();
-		boolean isTransactionSuccessful = false;
-		String template = UIN_CARD_TEMPLATE;
-		byte[] pdfbytes = null;
 		try {
+			extract(context, extracted);
+			renderCard(context);
+			signCard(context);
+			publishCard(context);
+		} catch (Exception ex) {
+			throw documentFailure(context, ex);
+		} finally {
+			auditDocuments(context);
+		}
+		printLogger.debug("PrintServiceImpl::getDocuments()::exit");
 
-			credentialSubject = getCrdentialSubject(credential);
-			org.json.JSONObject credentialSubjectJson = new org.json.JSONObject(credentialSubject);
-			org.json.JSONObject decryptedJson = decryptAttribute(credentialSubjectJson, encryptionPin, credential);
-			individualBio = decryptedJson.getString("biometrics");
-			String individualBiometric = new String(individualBio);
-			uin = decryptedJson.getString("UIN");
-			if (isPasswordProtected) {
-				password = getPassword(uin);
-			}
-			if (credentialType.equalsIgnoreCase("qrcode")) {
-				setQrCode(decryptedJson.toString(), attributes, encryptionPin);
-				InputStream uinArtifact = templateGenerator.getTemplate(template, attributes, templateLang);
-				pdfbytes = uinCardGenerator.generateUinCard(uinArtifact, UinCardType.PDF,
-						password);
-			} else {
+		return context.getByteMap();
+	}
 
-			boolean isPhotoSet = setApplicantPhoto(individualBiometric, attributes);
-			if (!isPhotoSet) {
-				printLogger.debug(PlatformErrorMessages.PRT_PRT_APPLICANT_PHOTO_NOT_SET.name());
-			}
-			setTemplateAttributes(decryptedJson.toString(), attributes);
-			attributes.put(IdType.UIN.toString(), uin);
-			for (java.util.Map.Entry<String, Object> entry : attributes.entrySet()) {
-	            System.out.println("Key = " + entry.getKey() +
-	                             ", Value = " + entry.getValue());
-			}
-			byte[] textFileByte = createTextFile(decryptedJson.toString());
-			byteMap.put(UIN_TEXT_FILE, textFileByte);
-
-			IDPassLiteDTO sd = setQrCode(decryptedJson.toString(), attributes, encryptionPin);	
-			System.out.println(sd.getIdfc().getAddressLine1());
-			System.out.println(sd.getIdfc().getAddressLine2());
-			System.out.println(sd.getIdfc().getAddressLine3());
-			System.out.println(sd.getIdfc().getFirstName());
-			System.out.println(sd.getIdfc().getLastName());
-			System.out.println(sd.getIdfc().getDateOfBirth());
-			if (!sd.isResult()) {
-				printLogger.debug(PlatformErrorMessages.PRT_PRT_QRCODE_NOT_SET.name());
+	/**
+	 * Runs the extract stage, or waits for the one started while the credential
+	 * was verified.
+	 */
+	private CardGenerationContext extract(CardGenerationContext context,
+			CompletableFuture<CardGenerationContext> extracted) throws Exception {
+		if (extracted == null) {
+			return extractAttributes(context);
+		}
+		try {
+			return extracted.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
 			}
-			// getting template and placing original valuespng
-			InputStream uinArtifact = templateGenerator.getTemplate(template, attributes, templateLang);
-			if (uinArtifact == null) {
-				printLogger.error(PlatformErrorMessages.PRT_TEM_PROCESSING_FAILURE.name());
-				throw new TemplateProcessingFailureException(
-						PlatformErrorMessages.PRT_TEM_PROCESSING_FAILURE.getCode());
+			throw e;
+		}
+	}
+
+	/**
+	 * Same as {@link #getDocuments(CardGenerationContext, CompletableFuture)}
+	 * with every step run on its own pipeline stage.
+	 */
+	private CompletableFuture<Boolean> getDocumentsStaged(CardGenerationContext context,
+			CompletableFuture<CardGenerationContext> speculative) {
+		CompletableFuture<CardGenerationContext> extracted = speculative != null ? speculative
+				: pipelineStages.extract().submit(() -> extractAttributes(context));
+		CompletableFuture<CardGenerationContext> rendered = pipelineStages.render().then(extracted, this::renderCard);
+		CompletableFuture<CardGenerationContext> signed = pipelineStages.sign().then(rendered, this::signCard);
+		CompletableFuture<CardGenerationContext> published = pipelineStages.publish().then(signed, this::publishCard);
+		return published.handle((c, e) -> {
+			try {
+				if (e != null) {
+					Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+					throw documentFailure(context, cause instanceof Exception ? (Exception) cause
+							: new CompletionException(cause));
+				}
+				return true;
+			} finally {
+				auditDocuments(context);
 			}
-			pdfbytes = idpassQrCodeGenerator.generateUinCard(uinArtifact, UinCardType.PDF, password, sd);
-			byteMap.put(UIN_CARD_PDF, pdfbytes);
+		});
+	}
+
+	/**
+	 * Extract stage: decrypts the protected attributes and builds the template
+	 * attributes, photo and text file.
+	 */
+	private CardGenerationContext extractAttributes(CardGenerationContext context) throws Exception {
+		String credentialType = context.getEvent().getData().get("credentialType").toString();
+		String encryptionPin = context.getEvent().getData().get("protectionKey").toString();
+		Map<String, Object> attributes = context.getAttributes();
+		ObjectNode credentialSubject = getCrdentialSubject(context.getCredentialDocument());
+		decryptAttribute(credentialSubject, encryptionPin, getProtectedAttributes(context.getCredentialDocument()),
+				context.getVerification());
+		context.setCredentialSubject(credentialSubject);
+		checkVerification(context);
+		String individualBiometric = requiredText(credentialSubject, "biometrics");
+		context.setUin(requiredText(credentialSubject, "UIN"));
+		if (credentialType.equalsIgnoreCase("qrcode")) {
+			setPassword(context);
+			return context;
+		}
+		boolean isPhotoSet = setApplicantPhoto(individualBiometric, attributes);
+		if (!isPhotoSet) {
+			printLogger.debug(PlatformErrorMessages.PRT_PRT_APPLICANT_PHOTO_NOT_SET.name());
+		}
+		checkVerification(context);
+		setTemplateAttributes(credentialSubject, attributes);
+		checkVerification(context);
+		attributes.put(IdType.UIN.toString(), context.getUin());
+		for (java.util.Map.Entry<String, Object> entry : attributes.entrySet()) {
+            System.out.println("Key = " + entry.getKey() +
+                             ", Value = " + entry.getValue());
+		}
+		byte[] textFileByte = createTextFile(credentialSubject);
+		context.getByteMap().put(UIN_TEXT_FILE, textFileByte);
+		setPassword(context);
+		return context;
+	}
+
+	/**
+	 * Stops the extract stage once the credential failed verification.
+	 */
+	private void checkVerification(CardGenerationContext context) {
+		if (context.isVerificationFailed()) {
+			throw new CancellationException("credential rejected by verification");
+		}
+	}
+
+	/**
+	 * Asks the kernel for the card password, only once the credential passed
+	 * verification.
+	 */
+	private void setPassword(CardGenerationContext context) throws ApisResourceAccessException, IOException {
+		if (!IS_PASSWORD_PROTECTED) {
+			return;
+		}
+		if (!context.getVerification().join()) {
+			throw new CancellationException("credential rejected by verification");
+		}
+		context.setPassword(getPassword(context.getUin()));
+	}
 
-			byte[] uinbyte = attributes.get("UIN").toString().getBytes();
-			byteMap.put("UIN", uinbyte);
+	/**
+	 * Render stage: generates the QR code and the unsigned card. The qrcode
+	 * credential type is rendered and signed here in one go.
+	 */
+	private CardGenerationContext renderCard(CardGenerationContext context) throws Exception {
+		String credentialType = context.getEvent().getData().get("credentialType").toString();
+		String encryptionPin = context.getEvent().getData().get("protectionKey").toString();
+		Map<String, Object> attributes = context.getAttributes();
+		ObjectNode credentialSubject = context.getCredentialSubject();
+		if (credentialType.equalsIgnoreCase("qrcode")) {
+			setQrCode(credentialSubject, attributes, encryptionPin);
+			InputStream uinArtifact = mergeTemplate(context);
+			context.setPdfBytes(uinCardGenerator.generateUinCard(uinArtifact, UinCardType.PDF,
+					context.getPassword()));
+			return context;
+		}
+		IDPassLiteDTO sd = setQrCode(credentialSubject, attributes, encryptionPin);
+		System.out.println(sd.getIdfc().getAddressLine1());
+		System.out.println(sd.getIdfc().getAddressLine2());
+		System.out.println(sd.getIdfc().getAddressLine3());
+		System.out.println(sd.getIdfc().getFirstName());
+		System.out.println(sd.getIdfc().getLastName());
+		System.out.println(sd.getIdfc().getDateOfBirth());
+		if (!sd.isResult()) {
+			printLogger.debug(PlatformErrorMessages.PRT_PRT_QRCODE_NOT_SET.name());
+		}
+		context.setIdPassLite(sd);
+		// getting template and placing original valuespng
+		InputStream uinArtifact = mergeTemplate(context);
+		if (uinArtifact == null) {
+			printLogger.error(PlatformErrorMessages.PRT_TEM_PROCESSING_FAILURE.name());
+			throw new TemplateProcessingFailureException(
+					PlatformErrorMessages.PRT_TEM_PROCESSING_FAILURE.getCode());
+		}
+		context.setUnsignedPdf(idpassQrCodeGenerator.renderUinCard(sd));
+		return context;
+	}
 
+	/**
+	 * Merges the template attributes into the card template of the batch, or
+	 * into a freshly fetched one for a single card.
+	 */
+	private InputStream mergeTemplate(CardGenerationContext context) throws IOException, ApisResourceAccessException {
+		PrintBatchResources batch = context.getBatchResources();
+		if (batch == null || batch.getTemplateText() == null) {
+			return templateGenerator.getTemplate(UIN_CARD_TEMPLATE, context.getAttributes(), templateLang);
 		}
-			printStatusUpdate(requestId, pdfbytes, credentialType);
-			isTransactionSuccessful = true;
+		return templateGenerator.merge(batch.getTemplateText(), context.getAttributes(), batch.getTemplateManager());
+	}
 
+	/**
+	 * Sign stage: has the rendered card signed by the kernel.
+	 */
+	private CardGenerationContext signCard(CardGenerationContext context) {
+		if (context.getUnsignedPdf() == null) {
+			return context;
+		}
+		byte[] pdfbytes = idpassQrCodeGenerator.signUinCard(context.getUnsignedPdf(), context.getPassword());
+		context.setPdfBytes(pdfbytes);
+		context.getByteMap().put(UIN_CARD_PDF, pdfbytes);
+		byte[] uinbyte = context.getAttributes().get("UIN").toString().getBytes();
+		context.getByteMap().put("UIN", uinbyte);
+		return context;
+	}
+
+	/**
+	 * Publish stage: uploads the card to datashare and publishes the status
+	 * event.
+	 */
+	private CardGenerationContext publishCard(CardGenerationContext context) throws Exception {
+		String credentialType = context.getEvent().getData().get("credentialType").toString();
+		printStatusUpdate(context.getEvent().getTransactionId(), context.getPdfBytes(), credentialType);
+		context.setTransactionSuccessful(true);
+		return context;
+	}
+
+	/**
+	 * Records the failure in the audit description and maps it to the exception
+	 * thrown to the caller.
+	 */
+	private RuntimeException documentFailure(CardGenerationContext context, Exception exception) {
+		LogDescription description = context.getDescription();
+		try {
+			throw exception;
 		}
 		catch (QrcodeGenerationException e) {
 			description.setMessage(PlatformErrorMessages.PRT_PRT_QR_CODE_GENERATION_ERROR.getMessage());
 			description.setCode(PlatformErrorMessages.PRT_PRT_QR_CODE_GENERATION_ERROR.getCode());
 			printLogger.error(PlatformErrorMessages.PRT_PRT_QRCODE_NOT_GENERATED.name() , e);
-			throw new PDFGeneratorException(PDFGeneratorExceptionCodeConstant.PDF_EXCEPTION.getErrorCode(),
+			return new PDFGeneratorException(PDFGeneratorExceptionCodeConstant.PDF_EXCEPTION.getErrorCode(),
 					e.getErrorText());
 
 		} catch (UINNotFoundInDatabase e) {
@@ -339,7 +809,7 @@ public class PrintServiceImpl implements PrintService{
 
 			printLogger.error(
 					PlatformErrorMessages.PRT_PRT_UIN_NOT_FOUND_IN_DATABASE.name() ,e);
-			throw new PDFGeneratorException(PDFGeneratorExceptionCodeConstant.PDF_EXCEPTION.getErrorCode(),
+			return new PDFGeneratorException(PDFGeneratorExceptionCodeConstant.PDF_EXCEPTION.getErrorCode(),
 					e.getErrorText());
 
 		} catch (TemplateProcessingFailureException e) {
@@ -347,14 +817,14 @@ public class PrintServiceImpl implements PrintService{
 			description.setCode(PlatformErrorMessages.PRT_TEM_PROCESSING_FAILURE.getCode());
 
 			printLogger.error(PlatformErrorMessages.PRT_TEM_PROCESSING_FAILURE.name() ,e);
-			throw new TemplateProcessingFailureException(PlatformErrorMessages.PRT_TEM_PROCESSING_FAILURE.getMessage());
+			return new TemplateProcessingFailureException(PlatformErrorMessages.PRT_TEM_PROCESSING_FAILURE.getMessage());
 
 		} catch (PDFGeneratorException e) {
 			description.setMessage(PlatformErrorMessages.PRT_PRT_PDF_NOT_GENERATED.getMessage());
 			description.setCode(PlatformErrorMessages.PRT_PRT_PDF_NOT_GENERATED.getCode());
 
 			printLogger.error(PlatformErrorMessages.PRT_PRT_PDF_NOT_GENERATED.name() ,e);
-			throw new PDFGeneratorException(PDFGeneratorExceptionCodeConstant.PDF_EXCEPTION.getErrorCode(),
+			return new PDFGeneratorException(PDFGeneratorExceptionCodeConstant.PDF_EXCEPTION.getErrorCode(),
 					e.getErrorText());
 
 		} catch (PDFSignatureException e) {
@@ -362,44 +832,44 @@ public class PrintServiceImpl implements PrintService{
 			description.setCode(PlatformErrorMessages.PRT_PRT_PDF_SIGNATURE_EXCEPTION.getCode());
 
 			printLogger.error(PlatformErrorMessages.PRT_PRT_PDF_SIGNATURE_EXCEPTION.name() ,e);
-			throw new PDFSignatureException(PlatformErrorMessages.PRT_PRT_PDF_SIGNATURE_EXCEPTION.getMessage());
+			return new PDFSignatureException(PlatformErrorMessages.PRT_PRT_PDF_SIGNATURE_EXCEPTION.getMessage());
 
 		} catch (Exception ex) {
 			description.setMessage(PlatformErrorMessages.PRT_PRT_PDF_GENERATION_FAILED.getMessage());
 			description.setCode(PlatformErrorMessages.PRT_PRT_PDF_GENERATION_FAILED.getCode());
 			printLogger.error(ex.getMessage() ,ex);
-			throw new PDFGeneratorException(PDFGeneratorExceptionCodeConstant.PDF_EXCEPTION.getErrorCode(),
+			return new PDFGeneratorException(PDFGeneratorExceptionCodeConstant.PDF_EXCEPTION.getErrorCode(),
 					ex.getMessage() ,ex);
+		}
+	}
 
-		} finally {
-			String eventId = "";
-			String eventName = "";
-			String eventType = "";
-			if (isTransactionSuccessful) {
-				description.setMessage(PlatformSuccessMessages.RPR_PRINT_SERVICE_SUCCESS.getMessage());
-				description.setCode(PlatformSuccessMessages.RPR_PRINT_SERVICE_SUCCESS.getCode());
-
-				eventId = EventId.RPR_402.toString();
-				eventName = EventName.UPDATE.toString();
-				eventType = EventType.BUSINESS.toString();
-			} else {
-				description.setMessage(PlatformErrorMessages.PRT_PRT_PDF_GENERATION_FAILED.getMessage());
-				description.setCode(PlatformErrorMessages.PRT_PRT_PDF_GENERATION_FAILED.getCode());
+	private void auditDocuments(CardGenerationContext context) {
+		LogDescription description = context.getDescription();
+		boolean isTransactionSuccessful = context.isTransactionSuccessful();
+		String eventId = "";
+		String eventName = "";
+		String eventType = "";
+		if (isTransactionSuccessful) {
+			description.setMessage(PlatformSuccessMessages.RPR_PRINT_SERVICE_SUCCESS.getMessage());
+			description.setCode(PlatformSuccessMessages.RPR_PRINT_SERVICE_SUCCESS.getCode());
+
+			eventId = EventId.RPR_402.toString();
+			eventName = EventName.UPDATE.toString();
+			eventType = EventType.BUSINESS.toString();
+		} else {
+			description.setMessage(PlatformErrorMessages.PRT_PRT_PDF_GENERATION_FAILED.getMessage());
+			description.setCode(PlatformErrorMessages.PRT_PRT_PDF_GENERATION_FAILED.getCode());
 
-				eventId = EventId.RPR_405.toString();
-				eventName = EventName.EXCEPTION.toString();
-				eventType = EventType.SYSTEM.toString();
-			}
-			/** Module-Id can be Both Success/Error code */
-			String moduleId = isTransactionSuccessful ? PlatformSuccessMessages.RPR_PRINT_SERVICE_SUCCESS.getCode()
-					: description.getCode();
-			String moduleName = ModuleName.PRINT_SERVICE.toString();
-			auditLogRequestBuilder.createAuditRequestBuilder(description.getMessage(), eventId, eventName, eventType,
-					moduleId, moduleName, uin);
+			eventId = EventId.RPR_405.toString();
+			eventName = EventName.EXCEPTION.toString();
+			eventType = EventType.SYSTEM.toString();
 		}
-		printLogger.debug("PrintServiceImpl::getDocuments()::exit");
-
-		return byteMap;
+		/** Module-Id can be Both Success/Error code */
+		String moduleId = isTransactionSuccessful ? PlatformSuccessMessages.RPR_PRINT_SERVICE_SUCCESS.getCode()
+				: description.getCode();
+		String moduleName = ModuleName.PRINT_SERVICE.toString();
+		auditLogRequestBuilder.createAuditRequestBuilder(description.getMessage(), eventId, eventName, eventType,
+				moduleId, moduleName, context.getUin());
 	}
 
 	private void foreach(Class<Byte> class1) {
@@ -410,18 +880,15 @@ public class PrintServiceImpl implements PrintService{
 	/**
 	 * Creates the text file.
 	 *
-	 * @param jsonString
-	 *            the attributes
+	 * @param credentialSubject
+	 *            the decrypted credentialSubject
 	 * @return the byte[]
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	private byte[] createTextFile(String jsonString) throws IOException {
+	private byte[] createTextFile(ObjectNode credentialSubject) throws IOException {
 
 		LinkedHashMap<String, String> printTextFileMap = new LinkedHashMap<>();
-		JSONObject demographicIdentity = JsonUtil.objectMapperReadValue(jsonString, JSONObject.class);
-		if (demographicIdentity == null)
-			throw new IdentityNotFoundException(PlatformErrorMessages.PRT_PIS_IDENTITY_NOT_FOUND.getMessage());
 		String printTextFileJson = utilities.getPrintTextFileJson(utilities.getConfigServerFileStorageURL(),
 				utilities.getRegistrationProcessorPrintTextFile());
 		JSONObject printTextFileJsonObject = JsonUtil.objectMapperReadValue(printTextFileJson, JSONObject.class);
@@ -429,27 +896,20 @@ public class PrintServiceImpl implements PrintService{
 		for (String key : printTextFileJsonKeys) {
 			String printTextFileJsonString = JsonUtil.getJSONValue(printTextFileJsonObject, key);
 			for (String value : printTextFileJsonString.split(",")) {
-				Object object = demographicIdentity.get(value);
-				if (object instanceof ArrayList) {
-					JSONArray node = JsonUtil.getJSONArray(demographicIdentity, value);
-					JsonValue[] jsonValues = JsonUtil.mapJsonNodeToJavaObject(JsonValue.class, node);
-					for (JsonValue jsonValue : jsonValues) {
-						/*
-						 * if (jsonValue.getLanguage().equals(primaryLang)) printTextFileMap.put(value +
-						 * "_" + primaryLang, jsonValue.getValue()); if
-						 * (jsonValue.getLanguage().equals(secondaryLang)) printTextFileMap.put(value +
-						 * "_" + secondaryLang, jsonValue.getValue());
-						 */
-						if (supportedLang.contains(jsonValue.getLanguage()))
-							printTextFileMap.put(value + "_" + jsonValue.getLanguage(), jsonValue.getValue());
+				JsonNode node = credentialSubject.get(value);
+				if (node != null && node.isArray()) {
+					for (JsonNode jsonValue : node) {
+						String language = jsonValue.path(LANGUAGE).asText();
+						// a blank language is contained in any list and would give the key value_
+						if (!language.trim().isEmpty() && supportedLang.contains(language))
+							printTextFileMap.put(value + "_" + language, jsonValue.path(VALUE).asText(null));
 
 					}
 
-				} else if (object instanceof LinkedHashMap) {
-					JSONObject json = JsonUtil.getJSONObject(demographicIdentity, value);
-					printTextFileMap.put(value, (String) json.get(VALUE));
+				} else if (node != null && node.isObject()) {
+					printTextFileMap.put(value, node.path(VALUE).asText(null));
 				} else {
-					printTextFileMap.put(value, (String) object);
+					printTextFileMap.put(value, node == null || node.isNull() ? null : node.asText());
 
 				}
 			}
@@ -474,12 +934,11 @@ public class PrintServiceImpl implements PrintService{
 	 *                                                            occurred.
 	 * @throws io.mosip.tf.idpass.exception.QrcodeGenerationException
 	 */
-	private boolean setQrCode(String qrString, Map<String, Object> attributes)
+	private boolean setQrCode(ObjectNode credentialSubject, Map<String, Object> attributes)
 			throws QrcodeGenerationException, IOException, io.mosip.tf.idpass.exception.QrcodeGenerationException {
 		boolean isQRCodeSet = false;
-		JSONObject qrJsonObj = JsonUtil.objectMapperReadValue(qrString, JSONObject.class);
-		qrJsonObj.remove("biometrics");
-		byte[] qrCodeBytes = qrCodeGenerator.generateQrCode(qrJsonObj.toString(), QrVersion.V30);
+		byte[] qrCodeBytes = qrCodeGenerator.generateQrCode(
+				JsonUtil.writeValueAsString(withoutBiometrics(credentialSubject)), QrVersion.V30);
 		if (qrCodeBytes != null) {
 			String imageString = Base64.encodeBase64String(qrCodeBytes);
 			attributes.put(QRCODE, "data:image/png;base64," + imageString);
@@ -489,12 +948,11 @@ public class PrintServiceImpl implements PrintService{
 		return isQRCodeSet;
 	}
 	
-	private IDPassLiteDTO setQrCode(String qrString, Map<String, Object> attributes,String pincode) throws IOException {
+	private IDPassLiteDTO setQrCode(ObjectNode credentialSubject, Map<String, Object> attributes,String pincode) throws IOException {
 		boolean isQRCodeSet = false;
-		JSONObject qrJsonObj = JsonUtil.objectMapperReadValue(qrString, JSONObject.class);
-		qrJsonObj.remove("biometrics");
 		String photob64 = (String)attributes.get("ApplicantPhoto");
-		IDPassLiteDTO sd = idpassQrCodeGenerator.generateQrCode(qrJsonObj.toString(), photob64, pincode);
+		IDPassLiteDTO sd = idpassQrCodeGenerator.generateQrCode(withoutBiometrics(credentialSubject), photob64,
+				pincode);
 		byte[] qrCodeBytes = sd.getQrCodeBytes();
 		if (qrCodeBytes != null) {
 			String imageString = io.mosip.kernel.core.util.CryptoUtil.encodeBase64String(qrCodeBytes);
@@ -506,6 +964,20 @@ public class PrintServiceImpl implements PrintService{
 		return sd;
 	}
 
+	/**
+	 * The credentialSubject as encoded in the QR code, a view without the
+	 * biometrics that shares the other attributes.
+	 */
+	private static ObjectNode withoutBiometrics(ObjectNode credentialSubject) {
+		ObjectNode qrJson = credentialSubject.objectNode();
+		credentialSubject.fields().forEachRemaining(field -> {
+			if (!"biometrics".equals(field.getKey())) {
+				qrJson.set(field.getKey(), field.getValue());
+			}
+		});
+		return qrJson;
+	}
+
 	/**
 	 * Sets the applicant photo.
 	 *
@@ -536,65 +1008,35 @@ public class PrintServiceImpl implements PrintService{
 	/**
 	 * Gets the artifacts.
 	 *
+	 * @param credentialSubject the decrypted credentialSubject
 	 * @param attribute    the attribute
-	 * @return the artifacts
 	 * @throws IOException    Signals that an I/O exception has occurred.
-	 * @throws ParseException
 	 */
-	@SuppressWarnings("unchecked")
-	private void setTemplateAttributes(String jsonString, Map<String, Object> attribute)
-			throws IOException, ParseException {
+	private void setTemplateAttributes(ObjectNode credentialSubject, Map<String, Object> attribute)
+			throws IOException {
 		try {
-			JSONObject demographicIdentity = JsonUtil.objectMapperReadValue(jsonString, JSONObject.class);
-			if (demographicIdentity == null)
-				throw new IdentityNotFoundException(PlatformErrorMessages.PRT_PIS_IDENTITY_NOT_FOUND.getMessage());
-
-			String mapperJsonString = utilities.getIdentityMappingJson(utilities.getConfigServerFileStorageURL(),
-					utilities.getGetRegProcessorIdentityJson());
-			JSONObject mapperJson = JsonUtil.objectMapperReadValue(mapperJsonString, JSONObject.class);
-			JSONObject mapperIdentity = JsonUtil.getJSONObject(mapperJson,
-					utilities.getGetRegProcessorDemographicIdentity());
-
-			List<String> mapperJsonKeys = new ArrayList<>(mapperIdentity.keySet());
-			for (String key : mapperJsonKeys) {
-				LinkedHashMap<String, String> jsonObject = JsonUtil.getJSONValue(mapperIdentity, key);
-				Object obj = null;
-				String values = jsonObject.get(VALUE);
-				for (String value : values.split(",")) {
-					// Object object = demographicIdentity.get(value);
-					Object object = demographicIdentity.get(value);
-					if (object != null) {
-						try {
-						obj = new JSONParser().parse(object.toString());
-						} catch (Exception e) {
-							obj = object;
-						}
-					
-					if (obj instanceof JSONArray) {
-						// JSONArray node = JsonUtil.getJSONArray(demographicIdentity, value);
-						JsonValue[] jsonValues = JsonUtil.mapJsonNodeToJavaObject(JsonValue.class, (JSONArray) obj);
-						for (JsonValue jsonValue : jsonValues) {
-							if (supportedLang.contains(jsonValue.getLanguage()))
-								attribute.put(value + "_" + jsonValue.getLanguage(), jsonValue.getValue());
-						}
-
-					} else if (object instanceof JSONObject) {
-						JSONObject json = (JSONObject) object;
-						attribute.put(value, (String) json.get(VALUE));
-					} else {
-						attribute.put(value, String.valueOf(object));
-					}
-				}
-					
-				}
-			}
-
+			identityMappingPlan().apply(credentialSubject, supportedLang, attribute);
 		} catch (JsonParseException | JsonMappingException e) {
 			printLogger.error("Error while parsing Json file" ,e);
 			throw new ParsingException(PlatformErrorMessages.PRT_RGS_JSON_PARSING_EXCEPTION.getMessage(), e);
 		}
 	}
 
+	/**
+	 * The compiled identity mapping, compiled again when the mapping json
+	 * changes.
+	 */
+	private IdentityMappingPlan identityMappingPlan() throws IOException {
+		String mapperJsonString = utilities.getIdentityMappingJson(utilities.getConfigServerFileStorageURL(),
+				utilities.getGetRegProcessorIdentityJson());
+		IdentityMappingPlan plan = identityMappingPlan;
+		if (plan == null || !plan.isCompiledFrom(mapperJsonString)) {
+			plan = IdentityMappingPlan.compile(mapperJsonString, utilities.getGetRegProcessorDemographicIdentity());
+			identityMappingPlan = plan;
+		}
+		return plan;
+	}
+
 	/**
 	 * Gets the password.
 	 *
@@ -625,7 +1067,7 @@ public class PrintServiceImpl implements PrintService{
 			Object object = JsonUtil.getJSONValue(jsonObject, key);
 			if (object instanceof ArrayList) {
 				JSONArray node = JsonUtil.getJSONArray(jsonObject, key);
-				JsonValue[] jsonValues = JsonUtil.mapJsonNodeToJavaObject(JsonValue.class, node);
+				JsonValue[] jsonValues = JsonUtil.toJsonValues(node);
 				uinCardPd = uinCardPd.concat(getParameter(jsonValues, templateLang));
 
 			} else if (object instanceof LinkedHashMap) {
@@ -712,10 +1154,40 @@ public class PrintServiceImpl implements PrintService{
 		}
 	}
 
-	private String getCrdentialSubject(String crdential) {
-		org.json.JSONObject jsonObject = new org.json.JSONObject(crdential);
-		String credentialSubject = jsonObject.get("credentialSubject").toString();
-		return credentialSubject;
+	/**
+	 * credentialSubject of the credential document, parsed from its text when
+	 * the issuer embedded it as a string. The protected attributes are
+	 * decrypted into this node.
+	 */
+	private ObjectNode getCrdentialSubject(JsonNode crdential) throws IOException {
+		JsonNode credentialSubject = crdential.get("credentialSubject");
+		if (credentialSubject != null && credentialSubject.isTextual()) {
+			credentialSubject = JsonUtil.readTree(credentialSubject.asText());
+		}
+		if (credentialSubject == null || !credentialSubject.isObject()) {
+			throw new IdentityNotFoundException(PlatformErrorMessages.PRT_PIS_IDENTITY_NOT_FOUND.getMessage());
+		}
+		return (ObjectNode) credentialSubject;
+	}
+
+	private static String requiredText(JsonNode credentialSubject, String name) {
+		JsonNode value = credentialSubject.get(name);
+		if (value == null || value.isNull()) {
+			throw new IdentityNotFoundException(PlatformErrorMessages.PRT_PIS_IDENTITY_NOT_FOUND.getMessage());
+		}
+		return value.asText();
+	}
+
+	private List<String> getProtectedAttributes(JsonNode crdential) {
+		JsonNode protectedAttributes = crdential.get("protectedAttributes");
+		if (protectedAttributes == null || !protectedAttributes.isArray()) {
+			return null;
+		}
+		List<String> attributes = new ArrayList<>();
+		for (JsonNode attribute : protectedAttributes) {
+			attributes.add(attribute.asText());
+		}
+		return attributes;
 	}
 
 	private void printStatusUpdate(String requestId, byte[] data, String credentialType)
@@ -737,38 +1209,89 @@ public class PrintServiceImpl implements PrintService{
 		webSubSubscriptionHelper.printStatusUpdateEvent(topic, creEvent);
 	}
 
-	public org.json.JSONObject decryptAttribute(org.json.JSONObject data, String encryptionPin, String credential)
-			throws ParseException {
+	/**
+	 * Decrypts the attributes the credential document lists as protected.
+	 */
+	public ObjectNode decryptAttribute(ObjectNode data, String encryptionPin, JsonNode credential) {
+		return decryptAttribute(data, encryptionPin, getProtectedAttributes(credential));
+	}
 
-		// org.json.JSONObject jsonObj = new org.json.JSONObject(credential);
-		JSONParser parser = new JSONParser(); // this needs the "json-simple" library
-		Object obj = parser.parse(credential);
-		JSONObject jsonObj = (org.json.simple.JSONObject) obj;
+	/**
+	 * Decrypts the protected attributes of the credentialSubject in place. Each
+	 * attribute runs PBKDF2 on its own, so they are decrypted at the same time
+	 * on the attribute pool. Nothing is replaced unless every attribute is
+	 * decrypted, the first failure cancels the attributes not started yet.
+	 *
+	 * @param protectedAttributes null if none
+	 */
+	public ObjectNode decryptAttribute(ObjectNode data, String encryptionPin, List<String> protectedAttributes) {
+		return decryptAttribute(data, encryptionPin, protectedAttributes, null);
+	}
 
-		JSONArray jsonArray = (JSONArray) jsonObj.get("protectedAttributes");
-		if (Objects.isNull(jsonArray)) {
+	/**
+	 * Same as {@link #decryptAttribute(ObjectNode, String, List)}, cancelled
+	 * when the verification completes with false.
+	 *
+	 * @param verification null when the credential is already verified
+	 */
+	private ObjectNode decryptAttribute(ObjectNode data, String encryptionPin, List<String> protectedAttributes,
+			CompletableFuture<Boolean> verification) {
+		if (Objects.isNull(protectedAttributes) || protectedAttributes.isEmpty()) {
 			return data;
 		}
-		for (Object str : jsonArray) {
-
-				CryptoWithPinRequestDto cryptoWithPinRequestDto = new CryptoWithPinRequestDto();
-				CryptoWithPinResponseDto cryptoWithPinResponseDto = new CryptoWithPinResponseDto();
-
-				cryptoWithPinRequestDto.setUserPin(encryptionPin);
-				cryptoWithPinRequestDto.setData(data.getString(str.toString()));
-				try {
-					cryptoWithPinResponseDto = cryptoUtil.decryptWithPin(cryptoWithPinRequestDto);
-				} catch (InvalidKeyException | NoSuchAlgorithmException | InvalidKeySpecException
-						| InvalidAlgorithmParameterException | IllegalBlockSizeException | BadPaddingException e) {
-					printLogger.error("Error while decrypting the data" ,e);
-					throw new CryptoManagerException(PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
-							PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage(), e);
+		if (protectedAttributes.size() == 1) {
+			String attribute = protectedAttributes.get(0);
+			data.put(attribute, decryptWithPin(requiredText(data, attribute), encryptionPin));
+			return data;
+		}
+		List<CompletableFuture<String>> decrypted = new ArrayList<>();
+		CompletableFuture<Object> failed = new CompletableFuture<>();
+		for (String str : protectedAttributes) {
+			String encrypted = requiredText(data, str);
+			CompletableFuture<String> attribute = CompletableFuture
+					.supplyAsync(() -> decryptWithPin(encrypted, encryptionPin), attributeExecutor);
+			attribute.whenComplete((value, e) -> {
+				if (e != null) {
+					failed.completeExceptionally(e);
 				}
-				data.put((String) str, cryptoWithPinResponseDto.getData());
-			
+			});
+			decrypted.add(attribute);
+		}
+		if (verification != null) {
+			verification.thenAccept(verified -> {
+				if (!verified) {
+					failed.completeExceptionally(new CancellationException("credential rejected by verification"));
+				}
+			});
+		}
+		try {
+			CompletableFuture.anyOf(CompletableFuture.allOf(decrypted.toArray(new CompletableFuture[0])), failed)
+					.join();
+		} catch (CompletionException e) {
+			decrypted.forEach(attribute -> attribute.cancel(false));
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
 			}
-
+			throw e;
+		}
+		for (int i = 0; i < protectedAttributes.size(); i++) {
+			data.put(protectedAttributes.get(i), decrypted.get(i).join());
+		}
 		return data;
 	}
+
+	private String decryptWithPin(String data, String encryptionPin) {
+		CryptoWithPinRequestDto cryptoWithPinRequestDto = new CryptoWithPinRequestDto();
+		cryptoWithPinRequestDto.setUserPin(encryptionPin);
+		cryptoWithPinRequestDto.setData(data);
+		try {
+			return cryptoUtil.decryptWithPin(cryptoWithPinRequestDto).getData();
+		} catch (InvalidKeyException | NoSuchAlgorithmException | InvalidKeySpecException
+				| InvalidAlgorithmParameterException | IllegalBlockSizeException | BadPaddingException e) {
+			printLogger.error("Error while decrypting the data" ,e);
+			throw new CryptoManagerException(PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
+					PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage(), e);
+		}
+	}
 }
 	
@@ -15,7 +15,6 @@ import org.springframework.core.env.Environment;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.mosip.tf.idpass.constant.ApiName;
 import io.mosip.tf.idpass.constant.LoggerFileConstant;
@@ -35,6 +34,7 @@ import io.mosip.tf.idpass.service.PrintRestClientService;
 import io.mosip.tf.idpass.service.UinCardGenerator;
 import io.mosip.tf.idpass.spi.PDFGenerator;
 import io.mosip.tf.idpass.util.DateUtils;
+import io.mosip.tf.idpass.util.JsonUtil;
 import io.mosip.tf.idpass.util.RestApiClient;
 
 /**
@@ -78,9 +78,6 @@ public class UinCardGeneratorImpl implements UinCardGenerator<byte[]> {
 	private Environment env;
 
 
-	ObjectMapper mapper = new ObjectMapper();
-	
-	
 	@Autowired
 	private RestApiClient restApiClient;
 
@@ -118,8 +115,7 @@ public class UinCardGeneratorImpl implements UinCardGenerator<byte[]> {
 				ErrorDTO error = responseWrapper.getErrors().get(0);
 			    throw new PDFSignatureException(error.getMessage());
 			}
-			signatureResponseDto = mapper.readValue(mapper.writeValueAsString(responseWrapper.getResponse()),
-					SignatureResponseDto.class);
+			signatureResponseDto = JsonUtil.readSignatureResponse(responseWrapper.getResponse());
 
 			pdfSignatured = Base64.decodeBase64(signatureResponseDto.getData());
 
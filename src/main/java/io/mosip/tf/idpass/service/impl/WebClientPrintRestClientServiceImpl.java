@@ -0,0 +1,149 @@
+package io.mosip.tf.idpass.service.impl;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import io.mosip.tf.idpass.constant.ApiName;
+import io.mosip.tf.idpass.exception.ApisResourceAccessException;
+import io.mosip.tf.idpass.exception.PlatformErrorMessages;
+import io.mosip.tf.idpass.logger.PrintLogger;
+import io.mosip.tf.idpass.service.PrintRestClientService;
+import io.mosip.tf.idpass.util.ReactiveRestApiClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link PrintRestClientService} of the reactive profile, on WebClient.
+ *
+ * The methods of the interface wait for the response, so they must only be
+ * called from the print workers, never from an event loop. The get and post
+ * methods returning a {@link Mono} do not wait.
+ */
+@Service
+@Profile("reactive")
+public class WebClientPrintRestClientServiceImpl implements PrintRestClientService<Object> {
+
+	Logger printLogger = PrintLogger.getLogger(WebClientPrintRestClientServiceImpl.class);
+
+	@Autowired
+	private ReactiveRestApiClient reactiveRestApiClient;
+
+	@Autowired
+	private Environment env;
+
+	/**
+	 * Get the api without waiting for the response.
+	 *
+	 * @return empty when the api is not configured or answers without a body
+	 */
+	public Mono<Object> get(ApiName apiName, List<String> pathsegments, List<String> queryParamName,
+			List<?> queryParamValue, Class<?> responseType) {
+		URI uri = buildUri(apiName, pathsegments, queryParamName, queryParamValue);
+		return uri == null ? Mono.empty() : reactiveRestApiClient.getApi(uri, responseType).cast(Object.class);
+	}
+
+	/**
+	 * Post to the api without waiting for the response.
+	 *
+	 * @return empty when the api is not configured or answers without a body
+	 */
+	public Mono<Object> post(ApiName apiName, MediaType mediaType, List<String> pathsegments,
+			List<String> queryParamName, List<?> queryParamValue, Object requestedData,
+			Class<?> responseType) {
+		URI uri = buildUri(apiName, pathsegments, queryParamName, queryParamValue);
+		return uri == null ? Mono.empty()
+				: reactiveRestApiClient.postApi(uri, mediaType, requestedData, responseType).cast(Object.class);
+	}
+
+	@Override
+	public Object getApi(ApiName apiName, List<String> pathsegments, String queryParamName, String queryParamValue,
+			Class<?> responseType) throws ApisResourceAccessException {
+		return await(get(apiName, pathsegments, split(queryParamName), split(queryParamValue), responseType));
+	}
+
+	@Override
+	public Object getApi(ApiName apiName, List<String> pathsegments, List<String> queryParamName,
+			List<Object> queryParamValue, Class<?> responseType) throws ApisResourceAccessException {
+		return await(get(apiName, pathsegments, queryParamName, queryParamValue, responseType));
+	}
+
+	@Override
+	public Object postApi(ApiName apiName, String queryParamName, String queryParamValue, Object requestedData,
+			Class<?> responseType) throws ApisResourceAccessException {
+		return postApi(apiName, queryParamName, queryParamValue, requestedData, responseType, null);
+	}
+
+	@Override
+	public Object postApi(ApiName apiName, String queryParamName, String queryParamValue, Object requestedData,
+			Class<?> responseType, MediaType mediaType) throws ApisResourceAccessException {
+		return await(post(apiName, mediaType, null, split(queryParamName), split(queryParamValue), requestedData,
+				responseType));
+	}
+
+	@Override
+	public Object postApi(ApiName apiName, List<String> pathsegments, String queryParamName, String queryParamValue,
+			Object requestedData, Class<?> responseType) throws ApisResourceAccessException {
+		return await(post(apiName, null, pathsegments, split(queryParamName), split(queryParamValue), requestedData,
+				responseType));
+	}
+
+	@Override
+	public Object postApi(ApiName apiName, MediaType mediaType, List<String> pathsegments,
+			List<String> queryParamName, List<Object> queryParamValue, Object requestedData, Class<?> responseType)
+			throws ApisResourceAccessException {
+		return await(post(apiName, mediaType, pathsegments, queryParamName, queryParamValue, requestedData,
+				responseType));
+	}
+
+	private Object await(Mono<Object> response) throws ApisResourceAccessException {
+		try {
+			return response.block();
+		} catch (Exception e) {
+			printLogger.error(e.getMessage(), e);
+			throw new ApisResourceAccessException(PlatformErrorMessages.PRT_RCT_UNKNOWN_RESOURCE_EXCEPTION.getCode(),
+					PlatformErrorMessages.PRT_RCT_UNKNOWN_RESOURCE_EXCEPTION.getMessage(), e);
+		}
+	}
+
+	private URI buildUri(ApiName apiName, List<String> pathsegments, List<String> queryParamName,
+			List<?> queryParamValue) {
+		String apiHostIpPort = env.getProperty(apiName.name());
+		if (apiHostIpPort == null) {
+			return null;
+		}
+		UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(apiHostIpPort);
+		if (pathsegments != null) {
+			for (String segment : pathsegments) {
+				if (segment != null && !segment.isEmpty()) {
+					builder.pathSegment(segment);
+				}
+			}
+		}
+		if (!CollectionUtils.isEmpty(queryParamName)) {
+			for (int i = 0; i < queryParamName.size(); i++) {
+				builder.queryParam(queryParamName.get(i), queryParamValue.get(i));
+			}
+		}
+		URI uri = builder.build(false).encode().toUri();
+		printLogger.debug("URI {}", uri);
+		return uri;
+	}
+
+	/** Comma separated query params, as taken by the string variants. */
+	private static List<String> split(String commaSeparated) {
+		if (commaSeparated == null || commaSeparated.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return Arrays.asList(commaSeparated.split(","));
+	}
+}
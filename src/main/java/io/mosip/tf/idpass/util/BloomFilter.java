@@ -0,0 +1,113 @@
+package io.mosip.tf.idpass.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe bloom filter over strings, sized for an expected number of
+ * insertions and false positive probability. Bits are set with CAS so
+ * concurrent puts need no lock.
+ */
+public class BloomFilter {
+
+	private final AtomicLongArray bits;
+
+	private final long bitCount;
+
+	private final int hashCount;
+
+	private final AtomicLong insertions;
+
+	private BloomFilter(long[] words, int hashCount, long insertions) {
+		this.bits = new AtomicLongArray(words);
+		this.bitCount = (long) words.length * Long.SIZE;
+		this.hashCount = hashCount;
+		this.insertions = new AtomicLong(insertions);
+	}
+
+	public static BloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+		long n = Math.max(1, expectedInsertions);
+		long m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+		int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+		int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + Long.SIZE - 1) / Long.SIZE);
+		return new BloomFilter(new long[Math.max(1, words)], k, 0);
+	}
+
+	public void put(String value) {
+		long hash = hash(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			long bit = index(h1 + i * h2);
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			long current;
+			do {
+				current = bits.get(word);
+				if ((current & mask) != 0) {
+					break;
+				}
+			} while (!bits.compareAndSet(word, current, current | mask));
+		}
+		insertions.incrementAndGet();
+	}
+
+	public boolean mightContain(String value) {
+		long hash = hash(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			long bit = index(h1 + i * h2);
+			if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public long getInsertions() {
+		return insertions.get();
+	}
+
+	public void writeTo(DataOutputStream out) throws IOException {
+		out.writeInt(hashCount);
+		out.writeLong(insertions.get());
+		out.writeInt(bits.length());
+		for (int i = 0; i < bits.length(); i++) {
+			out.writeLong(bits.get(i));
+		}
+	}
+
+	public static BloomFilter readFrom(DataInputStream in) throws IOException {
+		int hashCount = in.readInt();
+		long insertions = in.readLong();
+		long[] words = new long[in.readInt()];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = in.readLong();
+		}
+		return new BloomFilter(words, hashCount, insertions);
+	}
+
+	private long index(int combined) {
+		return (combined & 0x7fffffffL) % bitCount;
+	}
+
+	/** 64 bit FNV-1a followed by the murmur3 finalizer. */
+	private static long hash(String value) {
+		long h = 0xcbf29ce484222325L;
+		for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+			h ^= b;
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
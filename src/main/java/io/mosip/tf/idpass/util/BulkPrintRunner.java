@@ -0,0 +1,280 @@
+package io.mosip.tf.idpass.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.mosip.tf.idpass.logger.PrintLogger;
+import io.mosip.tf.idpass.model.Event;
+import io.mosip.tf.idpass.model.EventModel;
+import io.mosip.tf.idpass.model.PrintBatchResources;
+import io.mosip.tf.idpass.service.PrintService;
+
+/**
+ * Offline bulk printing, without websub. Started with
+ * --mosip.print.bulk.input=&lt;directory or .ndjson file&gt;
+ * --mosip.print.bulk.output=&lt;directory&gt;
+ * --spring.main.web-application-type=none
+ *
+ * Every input record is either a websub event as received by
+ * /print/callback/notifyPrint, or a flat object with id, credential,
+ * protectionKey and credentialType. An input directory holds one record per
+ * .json file, an NDJSON file one record per line.
+ *
+ * The cards go through the same decrypt, extract, QR, template and sign steps
+ * as the callback and the signed PDFs are written to the output directory as
+ * &lt;id&gt;.pdf. Nothing is uploaded to datashare or published on websub.
+ *
+ * The id of every finished record is appended to a checkpoint file in the
+ * output directory and skipped by the next run, so an interrupted run is
+ * resumed by starting it again. Failed records are not checkpointed and are
+ * tried again. A throughput and latency report is logged and written to
+ * report.json at the end.
+ */
+@Component
+@ConditionalOnProperty(name = "mosip.print.bulk.input")
+public class BulkPrintRunner implements CommandLineRunner {
+
+	private Logger printLogger = PrintLogger.getLogger(BulkPrintRunner.class);
+
+	private static final String CHECKPOINT_FILE = "checkpoint.log";
+
+	private static final String REPORT_FILE = "report.json";
+
+	@Autowired
+	private PrintService printService;
+
+	@Autowired
+	private ObjectMapper mapper;
+
+	@Autowired
+	private ConfigurableApplicationContext context;
+
+	@Value("${mosip.print.bulk.input}")
+	private String input;
+
+	@Value("${mosip.print.bulk.output:print-output}")
+	private String output;
+
+	/** 0 uses one thread per core. */
+	@Value("${mosip.print.bulk.threads:0}")
+	private int threads;
+
+	/** Stop the application once the run is over. */
+	@Value("${mosip.print.bulk.exit:true}")
+	private boolean exit;
+
+	@Value("${mosip.print.bulk.default-credential-type:euin}")
+	private String defaultCredentialType;
+
+	private File outputDirectory;
+
+	/** Template shared by all the cards of the run. */
+	private PrintBatchResources resources;
+
+	private BufferedWriter checkpoint;
+
+	private final AtomicInteger printed = new AtomicInteger();
+
+	private final AtomicInteger rejected = new AtomicInteger();
+
+	private final AtomicInteger failed = new AtomicInteger();
+
+	private int skipped;
+
+	/** Per card latencies in microseconds, in completion order. */
+	private long[] latencies = new long[1024];
+
+	private int latencyCount;
+
+	@Override
+	public void run(String... args) throws Exception {
+		outputDirectory = new File(output);
+		Files.createDirectories(outputDirectory.toPath());
+		Set<String> done = readCheckpoint();
+		int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(workers * 4), new CustomizableThreadFactory("print-bulk-"),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		resources = printService.loadBatchResources();
+		printLogger.info("bulk print of {} to {} on {} threads, {} records already done", input,
+				outputDirectory.getAbsolutePath(), workers, done.size());
+		long startedAt = System.nanoTime();
+		try (BufferedWriter writer = Files.newBufferedWriter(new File(outputDirectory, CHECKPOINT_FILE).toPath(),
+				StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			checkpoint = writer;
+			File source = new File(input);
+			if (source.isDirectory()) {
+				File[] files = source.listFiles((d, name) -> name.endsWith(".json"));
+				Arrays.sort(files);
+				for (File file : files) {
+					String fallbackId = file.getName().substring(0, file.getName().length() - ".json".length());
+					submit(executor, done, new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8),
+							fallbackId);
+				}
+			} else {
+				try (BufferedReader reader = Files.newBufferedReader(source.toPath(), StandardCharsets.UTF_8)) {
+					String line;
+					int lineNumber = 0;
+					while ((line = reader.readLine()) != null) {
+						lineNumber++;
+						if (!line.trim().isEmpty()) {
+							submit(executor, done, line, "line-" + lineNumber);
+						}
+					}
+				}
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		}
+		int failures = failed.get();
+		report(System.nanoTime() - startedAt);
+		if (exit) {
+			System.exit(SpringApplication.exit(context, () -> failures > 0 ? 1 : 0));
+		}
+	}
+
+	private Set<String> readCheckpoint() throws IOException {
+		File file = new File(outputDirectory, CHECKPOINT_FILE);
+		Set<String> done = new HashSet<>();
+		if (file.isFile()) {
+			for (String id : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+				if (!id.isEmpty()) {
+					done.add(id);
+				}
+			}
+		}
+		return done;
+	}
+
+	private void submit(ThreadPoolExecutor executor, Set<String> done, String json, String fallbackId) {
+		EventModel eventModel;
+		try {
+			eventModel = toEventModel(json, fallbackId);
+		} catch (IOException e) {
+			printLogger.error("record " + fallbackId + " is not a credential event, skipped", e);
+			failed.incrementAndGet();
+			return;
+		}
+		String id = eventModel.getEvent().getId();
+		if (done.contains(id)) {
+			skipped++;
+			return;
+		}
+		executor.execute(() -> print(id, eventModel));
+	}
+
+	private EventModel toEventModel(String json, String fallbackId) throws IOException {
+		JsonNode node = mapper.readTree(json);
+		if (node.has("event")) {
+			EventModel eventModel = mapper.treeToValue(node, EventModel.class);
+			if (eventModel.getEvent().getId() == null) {
+				eventModel.getEvent().setId(fallbackId);
+			}
+			return eventModel;
+		}
+		if (!node.hasNonNull("credential") || !node.hasNonNull("protectionKey")) {
+			throw new IOException("credential and protectionKey expected");
+		}
+		Map<String, Object> data = new HashMap<>();
+		data.put("credential", node.get("credential").asText());
+		data.put("protectionKey", node.get("protectionKey").asText());
+		data.put("credentialType",
+				node.hasNonNull("credentialType") ? node.get("credentialType").asText() : defaultCredentialType);
+		Event event = new Event();
+		event.setId(node.hasNonNull("id") ? node.get("id").asText() : fallbackId);
+		event.setData(data);
+		EventModel eventModel = new EventModel();
+		eventModel.setEvent(event);
+		return eventModel;
+	}
+
+	private void print(String id, EventModel eventModel) {
+		long start = System.nanoTime();
+		try {
+			byte[] pdf = printService.generateCardPdf(eventModel, resources);
+			if (pdf == null) {
+				rejected.incrementAndGet();
+				printLogger.warn("record {} rejected by credential verification", id);
+			} else {
+				String name = id.replaceAll("[^A-Za-z0-9._-]", "_") + ".pdf";
+				File temp = new File(outputDirectory, name + ".tmp");
+				Files.write(temp.toPath(), pdf);
+				Files.move(temp.toPath(), new File(outputDirectory, name).toPath(),
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				printed.incrementAndGet();
+			}
+			markDone(id, System.nanoTime() - start);
+		} catch (Exception e) {
+			failed.incrementAndGet();
+			printLogger.error("record " + id + " could not be printed", e);
+		}
+	}
+
+	/** Checkpoints the record, a line is only written once the pdf is in place. */
+	private synchronized void markDone(String id, long nanos) throws IOException {
+		checkpoint.write(id);
+		checkpoint.newLine();
+		checkpoint.flush();
+		if (latencyCount == latencies.length) {
+			latencies = Arrays.copyOf(latencies, latencyCount * 2);
+		}
+		latencies[latencyCount++] = TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+	private synchronized void report(long elapsedNanos) throws IOException {
+		long[] sorted = Arrays.copyOf(latencies, latencyCount);
+		Arrays.sort(sorted);
+		double seconds = Math.max(elapsedNanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("printed", printed.get());
+		report.put("rejected", rejected.get());
+		report.put("failed", failed.get());
+		report.put("skipped", skipped);
+		report.put("elapsedSeconds", Math.round(seconds * 10) / 10.0);
+		report.put("cardsPerSecond", Math.round(printed.get() / seconds * 10) / 10.0);
+		report.put("latencyMillisP50", percentile(sorted, 0.50));
+		report.put("latencyMillisP95", percentile(sorted, 0.95));
+		report.put("latencyMillisP99", percentile(sorted, 0.99));
+		report.put("latencyMillisMax", sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1000.0);
+		Files.write(new File(outputDirectory, REPORT_FILE).toPath(),
+				mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(report));
+		printLogger.info("bulk print done: {}", report);
+	}
+
+	private static double percentile(long[] sorted, double percentile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percentile * sorted.length) - 1;
+		return sorted[Math.max(index, 0)] / 1000.0;
+	}
+}
@@ -0,0 +1,188 @@
+package io.mosip.tf.idpass.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import io.mosip.tf.idpass.exception.CryptoManagerException;
+import io.mosip.tf.idpass.exception.PlatformErrorMessages;
+
+/**
+ * Parts of a decoded credential, as slices of the decoded bytes instead of
+ * copies.
+ *
+ * <pre>
+ * VER_R2 | thumbprint | encrypted key | #KEY_SPLITTER# | aad (nonce first) | ciphertext
+ * [thumbprint] | encrypted key | #KEY_SPLITTER# | ciphertext | iv
+ * </pre>
+ *
+ * The splitter is found with a Boyer-Moore-Horspool search. The slices share
+ * the decoded bytes, the getters hand out fresh views so the envelope can be
+ * read more than once.
+ */
+public final class CredentialEnvelope {
+
+	public static final byte[] KEY_SPLITTER = "#KEY_SPLITTER#".getBytes(StandardCharsets.UTF_8);
+
+	public static final byte[] VERSION_RSA_2048 = "VER_R2".getBytes(StandardCharsets.UTF_8);
+
+	public static final int THUMBPRINT_LENGTH = 32;
+
+	public static final int AAD_LENGTH = 32;
+
+	public static final int NONCE_LENGTH = 12;
+
+	/** IV appended to the ciphertext by the envelopes without header. */
+	public static final int TRAILING_IV_LENGTH = 16;
+
+	private static final int[] SPLITTER_SKIP = skipTable(KEY_SPLITTER);
+
+	private final ByteBuffer header;
+
+	private final ByteBuffer thumbprint;
+
+	private final ByteBuffer encryptedKey;
+
+	private final ByteBuffer aad;
+
+	private final ByteBuffer nonce;
+
+	private final ByteBuffer ciphertext;
+
+	private CredentialEnvelope(ByteBuffer header, ByteBuffer thumbprint, ByteBuffer encryptedKey, ByteBuffer aad,
+			ByteBuffer nonce, ByteBuffer ciphertext) {
+		this.header = header;
+		this.thumbprint = thumbprint;
+		this.encryptedKey = encryptedKey;
+		this.aad = aad;
+		this.nonce = nonce;
+		this.ciphertext = ciphertext;
+	}
+
+	/**
+	 * Splits the decoded credential.
+	 *
+	 * @param data           decoded credential, from its position to its limit
+	 * @param withThumbprint whether envelopes without header start with the
+	 *                       certificate thumbprint
+	 * @throws CryptoManagerException if the credential is not an envelope
+	 */
+	public static CredentialEnvelope parse(ByteBuffer data, boolean withThumbprint) {
+		ByteBuffer source = data.duplicate();
+		int start = source.position();
+		int splitter = indexOf(source, KEY_SPLITTER, SPLITTER_SKIP, start, source.limit());
+		if (splitter < 0) {
+			throw invalid();
+		}
+		int keyEnd = splitter;
+		int dataStart = splitter + KEY_SPLITTER.length;
+		int dataEnd = source.limit();
+		if (startsWith(source, start, keyEnd, VERSION_RSA_2048)) {
+			int thumbprintStart = start + VERSION_RSA_2048.length;
+			int keyStart = thumbprintStart + THUMBPRINT_LENGTH;
+			if (keyStart > keyEnd || dataEnd - dataStart < AAD_LENGTH) {
+				throw invalid();
+			}
+			return new CredentialEnvelope(slice(source, start, thumbprintStart),
+					slice(source, thumbprintStart, keyStart), slice(source, keyStart, keyEnd),
+					slice(source, dataStart, dataStart + AAD_LENGTH), slice(source, dataStart, dataStart + NONCE_LENGTH),
+					slice(source, dataStart + AAD_LENGTH, dataEnd));
+		}
+		int keyStart = withThumbprint ? start + THUMBPRINT_LENGTH : start;
+		if (keyStart > keyEnd || dataEnd - dataStart < TRAILING_IV_LENGTH) {
+			throw invalid();
+		}
+		int ivStart = dataEnd - TRAILING_IV_LENGTH;
+		return new CredentialEnvelope(slice(source, start, start),
+				withThumbprint ? slice(source, start, keyStart) : null, slice(source, keyStart, keyEnd), null,
+				slice(source, ivStart, dataEnd), slice(source, dataStart, ivStart));
+	}
+
+	/** VER_R2, or empty for the envelopes without header. */
+	public ByteBuffer getHeader() {
+		return header.duplicate();
+	}
+
+	public boolean isVersioned() {
+		return header.hasRemaining();
+	}
+
+	/** Certificate thumbprint of the partner key, null if not prepended. */
+	public ByteBuffer getThumbprint() {
+		return thumbprint == null ? null : thumbprint.duplicate();
+	}
+
+	/** Symmetric key encrypted with the partner key. */
+	public ByteBuffer getEncryptedKey() {
+		return encryptedKey.duplicate();
+	}
+
+	/** Additional authenticated data, null for the envelopes without header. */
+	public ByteBuffer getAad() {
+		return aad == null ? null : aad.duplicate();
+	}
+
+	/** GCM nonce, the start of the AAD or the trailing IV. */
+	public ByteBuffer getNonce() {
+		return nonce.duplicate();
+	}
+
+	/** Ciphertext with the GCM tag. */
+	public ByteBuffer getCiphertext() {
+		return ciphertext.duplicate();
+	}
+
+	/**
+	 * Boyer-Moore-Horspool search of the pattern between from and to, absolute
+	 * indexes of the buffer.
+	 *
+	 * @return absolute index of the first match, -1 if none
+	 */
+	static int indexOf(ByteBuffer buffer, byte[] pattern, int[] skip, int from, int to) {
+		int last = pattern.length - 1;
+		int i = from;
+		while (i + last < to) {
+			int j = last;
+			while (buffer.get(i + j) == pattern[j]) {
+				if (j == 0) {
+					return i;
+				}
+				j--;
+			}
+			i += skip[buffer.get(i + last) & 0xff];
+		}
+		return -1;
+	}
+
+	static int[] skipTable(byte[] pattern) {
+		int[] skip = new int[256];
+		Arrays.fill(skip, pattern.length);
+		for (int i = 0; i < pattern.length - 1; i++) {
+			skip[pattern[i] & 0xff] = pattern.length - 1 - i;
+		}
+		return skip;
+	}
+
+	private static boolean startsWith(ByteBuffer buffer, int from, int to, byte[] prefix) {
+		if (to - from < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (buffer.get(from + i) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static ByteBuffer slice(ByteBuffer source, int from, int to) {
+		ByteBuffer slice = source.duplicate();
+		slice.limit(to).position(from);
+		return slice.slice();
+	}
+
+	private static CryptoManagerException invalid() {
+		return new CryptoManagerException(PlatformErrorMessages.PRT_UNKNOWN_DECRYPTION_EXCEPTION.getCode(),
+				PlatformErrorMessages.PRT_UNKNOWN_DECRYPTION_EXCEPTION.getMessage());
+	}
+}
@@ -1,38 +1,35 @@
 package io.mosip.tf.idpass.util;
 
-import static java.util.Arrays.copyOfRange;
-
-import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
-import java.math.BigInteger;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
-import java.security.KeyStore;
-import java.security.KeyStore.PasswordProtection;
 import java.security.KeyStore.PrivateKeyEntry;
-import java.security.KeyStore.ProtectionParameter;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
-import java.security.UnrecoverableEntryException;
 import java.security.cert.Certificate;
-import java.security.cert.CertificateException;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.spec.MGF1ParameterSpec;
 import java.util.Arrays;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
 import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.OAEPParameterSpec;
-import javax.crypto.spec.PSource.PSpecified;
 import javax.crypto.spec.SecretKeySpec;
 
+import org.apache.commons.codec.binary.Base64InputStream;
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CharSequenceInputStream;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -47,29 +44,35 @@ public class CryptoCoreUtil {
 
 	static Logger printLogger = PrintLogger.getLogger(CryptoCoreUtil.class);
 
-	private final static String RSA_ECB_OAEP_PADDING = "RSA/ECB/OAEPWITHSHA-256ANDMGF1PADDING";
+	/** Longest key part streamed credentials may have, a 4096 bit key fits. */
+	private final static int MAX_KEY_PART_LENGTH = 1024;
 
-	private final static int THUMBPRINT_LENGTH = 32;
-	private final static int NONCE = 12;
-	private final static int AADSize = 32;
-	public static final byte[] VERSION_RSA_2048 = "VER_R2".getBytes();
+	public static final byte[] VERSION_RSA_2048 = CredentialEnvelope.VERSION_RSA_2048;
 
 	@Value("${mosip.print.prependThumbprint:true}")
 	private boolean isThumbprint;
 
-	@Value("${mosip.print.crypto.p12.filename}")
-	private String fileName;
-
-	@Value("${mosip.print.crypto.p12.password}")
-	private String cyptoPassword;
+	@Autowired
+	private PartnerKeyStore partnerKeyStore;
 
-	@Value("${mosip.print.crypto.p12.alias}")
-	private String alias;
+	@Autowired
+	private CryptoEngine cryptoEngine;
 
 
+	/**
+	 * Decrypts with the partner key the credential was encrypted for, picked
+	 * from the key ring by the certificate thumbprint of the credential.
+	 */
 	public String decrypt(String data) {
+		return decrypt(data, null);
+	}
+
+	/**
+	 * Decrypts with the given key, or with the key of the credential thumbprint
+	 * when null.
+	 */
+	public String decrypt(String data, PrivateKeyEntry privateKeyEntry) {
 		try {
-			PrivateKeyEntry privateKeyEntry = loadP12();
 			byte[] dataBytes = org.apache.commons.codec.binary.Base64.decodeBase64(data);
 			byte[] decryptedDataBytes = decryptData(dataBytes, privateKeyEntry);
 			return new String(decryptedDataBytes);
@@ -80,56 +83,101 @@ public class CryptoCoreUtil {
 				PlatformErrorMessages.PRT_UNKNOWN_DECRYPTION_EXCEPTION.getMessage());
 	}
 
-	public PrivateKeyEntry loadP12(){
+	/**
+	 * Decrypts the Base64 credential as a stream, see
+	 * {@link #decryptStream(InputStream, PrivateKeyEntry)}.
+	 */
+	public InputStream decryptStream(CharSequence data) {
+		return decryptStream(new Base64InputStream(new CharSequenceInputStream(data, StandardCharsets.US_ASCII)),
+				null);
+	}
+
+	/**
+	 * UTF-8 reader over {@link #decryptStream(CharSequence)}, for the JSON
+	 * parser.
+	 */
+	public Reader decryptReader(CharSequence data) {
+		return new InputStreamReader(decryptStream(data), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Decrypts the decoded credential while it is read. Only the key part is
+	 * read up front, the ciphertext goes through the cipher as the plain text
+	 * is consumed, so neither the decoded credential nor the plain text is
+	 * held as a whole next to the parsed document.
+	 *
+	 * The GCM tag is checked at the end of the stream, a tampered credential
+	 * fails the last read with an IOException. Envelopes without header carry
+	 * their IV after the ciphertext and are decrypted in one go.
+	 *
+	 * @param encrypted decoded credential
+	 * @param privateKey key to use, null for the key of the credential
+	 *                   thumbprint
+	 * @throws CryptoManagerException if the key part can not be decrypted
+	 */
+	public InputStream decryptStream(InputStream encrypted, PrivateKeyEntry privateKey) {
 		try {
-			KeyStore mosipKeyStore = KeyStore.getInstance("PKCS12");
-			InputStream in = getClass().getClassLoader().getResourceAsStream(fileName);
-			mosipKeyStore.load(in, cyptoPassword.toCharArray());
-			ProtectionParameter password = new PasswordProtection(cyptoPassword.toCharArray());
-			return (PrivateKeyEntry) mosipKeyStore.getEntry(alias, password);
-		}catch (UnrecoverableEntryException | CertificateException | KeyStoreException | IOException|NoSuchAlgorithmException e) {
-			printLogger.error( "Not able to load the key from keystore : {}", e);
+			byte[] head = new byte[MAX_KEY_PART_LENGTH + CredentialEnvelope.KEY_SPLITTER.length
+					+ CredentialEnvelope.AAD_LENGTH];
+			int length = IOUtils.read(encrypted, head);
+			if (length < head.length) {
+				return new ByteArrayInputStream(decryptData(ByteBuffer.wrap(head, 0, length), privateKey));
+			}
+			CredentialEnvelope envelope = CredentialEnvelope.parse(ByteBuffer.wrap(head), isThumbprint);
+			if (!envelope.isVersioned()) {
+				ByteArrayOutputStream credential = new ByteArrayOutputStream(head.length * 2);
+				credential.write(head);
+				IOUtils.copy(encrypted, credential);
+				return new ByteArrayInputStream(decryptData(credential.toByteArray(), privateKey));
+			}
+			privateKey = privateKey != null ? privateKey
+					: partnerKeyStore.select(envelope.getThumbprint()).getPrivateKeyEntry();
+			SecretKey symmetricKey = asymmetricDecrypt(privateKey.getPrivateKey(), envelope.getEncryptedKey());
+			// the stream keeps its cipher until it is read
+			Cipher cipher = cryptoEngine.newAesGcm(Cipher.DECRYPT_MODE, symmetricKey,
+					gcmParameterSpec(envelope.getNonce()));
+			cipher.updateAAD(envelope.getAad());
+			ByteBuffer buffered = envelope.getCiphertext();
+			InputStream ciphertext = new SequenceInputStream(new ByteArrayInputStream(buffered.array(),
+					buffered.arrayOffset() + buffered.position(), buffered.remaining()), encrypted);
+			return new CipherInputStream(ciphertext, cipher);
+		} catch (CryptoManagerException e) {
+			throw e;
+		} catch (Exception e) {
+			printLogger.error( "Not able to decrypt the data : {}", e);
 		}
-		throw new CryptoManagerException(PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
-				PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage());
+		throw new CryptoManagerException(PlatformErrorMessages.PRT_UNKNOWN_DECRYPTION_EXCEPTION.getCode(),
+				PlatformErrorMessages.PRT_UNKNOWN_DECRYPTION_EXCEPTION.getMessage());
+	}
+
+	/**
+	 * The primary partner key, unlocked once and kept by {@link PartnerKeyStore}.
+	 *
+	 * @throws CryptoManagerException if the keystore can not be loaded
+	 */
+	public PrivateKeyEntry loadP12(){
+		return partnerKeyStore.get().getPrivateKeyEntry();
 	}
 
+	/**
+	 * Decrypts with the given key, or with the key of the credential thumbprint
+	 * when null.
+	 */
 	public byte[] decryptData(byte[] requestData, PrivateKeyEntry privateKey)  {
-		String keySplitter = "#KEY_SPLITTER#";
-		SecretKey symmetricKey = null;
-		byte[] encryptedData = null;
-		byte[] encryptedSymmetricKey = null;
-		final int cipherKeyandDataLength = requestData.length;
-		final int keySplitterLength = keySplitter.length();
+		return decryptData(ByteBuffer.wrap(requestData), privateKey);
+	}
 
-		int keyDemiliterIndex = getSplitterIndex(requestData, 0, keySplitter);
-		byte[] encryptedKey = copyOfRange(requestData, 0, keyDemiliterIndex);
-		byte[] headerBytes = parseEncryptKeyHeader(encryptedKey);
-		byte[] decryptedSymmetricKey = null;
+	/**
+	 * Decrypts the credential between the position and the limit of the
+	 * buffer. The envelope is read in place, only the plain text is allocated.
+	 */
+	public byte[] decryptData(ByteBuffer requestData, PrivateKeyEntry privateKey)  {
 		try {
-			encryptedData = copyOfRange(requestData, keyDemiliterIndex + keySplitterLength, cipherKeyandDataLength);
-			if (Arrays.equals(headerBytes, VERSION_RSA_2048)) {
-				encryptedSymmetricKey = Arrays.copyOfRange(encryptedKey, THUMBPRINT_LENGTH + VERSION_RSA_2048.length,
-						encryptedKey.length);
-				byte[] aad = Arrays.copyOfRange(encryptedData, 0, AADSize);
-				byte[] nonce = Arrays.copyOfRange(aad, 0, NONCE);
-				byte[] encData = Arrays.copyOfRange(encryptedData, AADSize, encryptedData.length);
-				decryptedSymmetricKey = asymmetricDecrypt(privateKey.getPrivateKey(),
-						((RSAPrivateKey) privateKey.getPrivateKey()).getModulus(), encryptedSymmetricKey);
-				symmetricKey = new SecretKeySpec(decryptedSymmetricKey, 0, decryptedSymmetricKey.length, "AES");
-				return symmetricDecrypt(symmetricKey, encData, nonce, aad);
-			} else if (isThumbprint) {
-				encryptedSymmetricKey = Arrays.copyOfRange(encryptedKey, THUMBPRINT_LENGTH, encryptedKey.length);
-				decryptedSymmetricKey = asymmetricDecrypt(privateKey.getPrivateKey(),
-						((RSAPrivateKey) privateKey.getPrivateKey()).getModulus(), encryptedSymmetricKey);
-				symmetricKey = new SecretKeySpec(decryptedSymmetricKey, 0, decryptedSymmetricKey.length, "AES");
-				return symmetricDecrypt(symmetricKey, encryptedData, null);
-			} else {
-				decryptedSymmetricKey = asymmetricDecrypt(privateKey.getPrivateKey(),
-						((RSAPrivateKey) privateKey.getPrivateKey()).getModulus(), encryptedKey);
-				symmetricKey = new SecretKeySpec(decryptedSymmetricKey, 0, decryptedSymmetricKey.length, "AES");
-				return symmetricDecrypt(symmetricKey, encryptedData, null);
-			}
+			CredentialEnvelope envelope = CredentialEnvelope.parse(requestData, isThumbprint);
+			privateKey = privateKey != null ? privateKey
+					: partnerKeyStore.select(envelope.getThumbprint()).getPrivateKeyEntry();
+			SecretKey symmetricKey = asymmetricDecrypt(privateKey.getPrivateKey(), envelope.getEncryptedKey());
+			return symmetricDecrypt(symmetricKey, envelope.getCiphertext(), envelope.getNonce(), envelope.getAad());
 		} catch (Exception e) {
 			printLogger.error( "Not able to decrypt the data : {}", e);
 		}
@@ -145,99 +193,64 @@ public class CryptoCoreUtil {
 		return versionHeaderBytes;
 	}
 
-	private static int getSplitterIndex(byte[] encryptedData, int keyDemiliterIndex, String keySplitter) {
-		final byte keySplitterFirstByte = keySplitter.getBytes()[0];
-		final int keySplitterLength = keySplitter.length();
-		for (byte data : encryptedData) {
-			if (data == keySplitterFirstByte) {
-				final String keySplit = new String(
-						copyOfRange(encryptedData, keyDemiliterIndex, keyDemiliterIndex + keySplitterLength));
-				if (keySplitter.equals(keySplit)) {
-					break;
-				}
-			}
-			keyDemiliterIndex++;
-		}
-		return keyDemiliterIndex;
-	}
-
 	/**
-	 * 
+	 * Unwraps the AES key.
+	 *
 	 * @param privateKey
-	 * @param keyModulus
 	 * @param data
 	 * @return
 	 * @throws IllegalBlockSizeException
 	 * @throws BadPaddingException
-	 * @throws NoSuchAlgorithmException
-	 * @throws NoSuchPaddingException
 	 * @throws InvalidAlgorithmParameterException
 	 * @throws InvalidKeyException
+	 * @throws ShortBufferException
 	 */
-	private static byte[] asymmetricDecrypt(PrivateKey privateKey, BigInteger keyModulus, byte[] data)
-			throws IllegalBlockSizeException, BadPaddingException, NoSuchAlgorithmException, NoSuchPaddingException,
-			InvalidAlgorithmParameterException, InvalidKeyException {
-
-		Cipher cipher;
-		try {
-			cipher = Cipher.getInstance(RSA_ECB_OAEP_PADDING);
-			OAEPParameterSpec oaepParams = new OAEPParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256,
-					PSpecified.DEFAULT);
-			cipher.init(Cipher.DECRYPT_MODE, privateKey, oaepParams);
-			return cipher.doFinal(data);
-		} catch (java.security.NoSuchAlgorithmException e) {
-			printLogger.error("Not able to decrypt the data : {}" , e);
-			throw new NoSuchAlgorithmException(e);
-		} catch (NoSuchPaddingException e) {
-			throw new NoSuchPaddingException(e.getMessage());
-		} catch (java.security.InvalidKeyException e) {
-			throw new InvalidKeyException(e);
-		} catch (InvalidAlgorithmParameterException e) {
-			throw new InvalidAlgorithmParameterException(e);
-		}
+	private SecretKey asymmetricDecrypt(PrivateKey privateKey, ByteBuffer data)
+			throws IllegalBlockSizeException, BadPaddingException, InvalidAlgorithmParameterException,
+			InvalidKeyException, ShortBufferException {
+		Cipher cipher = cryptoEngine.rsaOaep(Cipher.DECRYPT_MODE, privateKey);
+		byte[] output = new byte[cipher.getOutputSize(data.remaining())];
+		int length = cipher.doFinal(data, ByteBuffer.wrap(output));
+		SecretKey key = new SecretKeySpec(output, 0, length, "AES");
+		Arrays.fill(output, (byte) 0);
+		return key;
 	}
 
-	private static byte[] symmetricDecrypt(SecretKey key, byte[] data, byte[] aad) {
-		byte[] output = null;
-		try {
-			Cipher cipher = Cipher.getInstance("AES/GCM/PKCS5Padding");
-			byte[] randomIV = Arrays.copyOfRange(data, data.length - cipher.getBlockSize(), data.length);
-			SecretKeySpec keySpec = new SecretKeySpec(key.getEncoded(), "AES");
-			GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(128, randomIV);
-
-			cipher.init(Cipher.DECRYPT_MODE, keySpec, gcmParameterSpec);
-			if (aad != null && aad.length != 0) {
-				cipher.updateAAD(aad);
-			}
-			output = cipher.doFinal(Arrays.copyOf(data, data.length - cipher.getBlockSize()));
-		} catch (Exception e) {
-
-		}
-		return output;
+	public byte[] symmetricDecrypt(SecretKey key, byte[] data, byte[] nonce, byte[] aad)
+			throws InvalidAlgorithmParameterException {
+		return symmetricDecrypt(key, ByteBuffer.wrap(data), ByteBuffer.wrap(nonce),
+				aad == null ? null : ByteBuffer.wrap(aad));
 	}
 
-	public byte[] symmetricDecrypt(SecretKey key, byte[] data, byte[] nonce, byte[] aad)
+	/**
+	 * AES-GCM decryption of the slices straight into a plain text array of the
+	 * exact size.
+	 *
+	 * @param aad null if none
+	 */
+	private byte[] symmetricDecrypt(SecretKey key, ByteBuffer data, ByteBuffer nonce, ByteBuffer aad)
 			throws InvalidAlgorithmParameterException {
 		// Objects.requireNonNull(key, null);
 		// CryptoUtils.verifyData(data);
 		byte[] output = null;
 		Cipher cipher;
 		try {
-			cipher = Cipher.getInstance("AES/GCM/PKCS5Padding");
-			SecretKeySpec keySpec = new SecretKeySpec(key.getEncoded(), "AES");
-			GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(128, nonce);
-			cipher.init(Cipher.DECRYPT_MODE, keySpec, gcmParameterSpec);
+			cipher = cryptoEngine.aesGcm(Cipher.DECRYPT_MODE, key, gcmParameterSpec(nonce));
 			if (aad != null) {
 				cipher.updateAAD(aad);
 			}
-			output = cipher.doFinal(data, 0, data.length);
+			output = new byte[cipher.getOutputSize(data.remaining())];
+			int length = cipher.doFinal(data, ByteBuffer.wrap(output));
+			if (length != output.length) {
+				output = Arrays.copyOf(output, length);
+			}
 		} catch (InvalidAlgorithmParameterException e) {
 			printLogger.error(
 					PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
 					PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage() ,e);
 			throw new InvalidParamSpecException(PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
 					PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage(), e);
-		} catch (IllegalBlockSizeException e) {
+		} catch (IllegalBlockSizeException | ShortBufferException e) {
 			printLogger.error(
 					PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
 					PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage(),e);
@@ -250,19 +263,6 @@ public class CryptoCoreUtil {
 					PlatformErrorMessages.CERTIFICATE_THUMBPRINT_ERROR.getMessage(),e);
 			throw new CryptoManagerException(PlatformErrorMessages.CERTIFICATE_THUMBPRINT_ERROR.getCode(),
 					PlatformErrorMessages.CERTIFICATE_THUMBPRINT_ERROR.getMessage(), e);
-		} catch (NoSuchAlgorithmException e) {
-			printLogger.error(LoggerFileConstant.SESSIONID.toString(), LoggerFileConstant.REGISTRATIONID.toString(),
-					PlatformErrorMessages.CERTIFICATE_THUMBPRINT_ERROR.getCode(),
-					PlatformErrorMessages.CERTIFICATE_THUMBPRINT_ERROR.getMessage() + e);
-
-			throw new CryptoManagerException(PlatformErrorMessages.CERTIFICATE_THUMBPRINT_ERROR.getCode(),
-					PlatformErrorMessages.CERTIFICATE_THUMBPRINT_ERROR.getMessage(), e);
-		} catch (NoSuchPaddingException e) {
-			printLogger.error(LoggerFileConstant.SESSIONID.toString(), LoggerFileConstant.REGISTRATIONID.toString(),
-					PlatformErrorMessages.CERTIFICATE_THUMBPRINT_ERROR.getCode(),
-					PlatformErrorMessages.CERTIFICATE_THUMBPRINT_ERROR.getMessage() , e);
-			throw new CryptoManagerException(PlatformErrorMessages.CERTIFICATE_THUMBPRINT_ERROR.getCode(),
-					PlatformErrorMessages.CERTIFICATE_THUMBPRINT_ERROR.getMessage(), e);
 		} catch (InvalidKeyException e) {
 			printLogger.error(LoggerFileConstant.SESSIONID.toString(), LoggerFileConstant.REGISTRATIONID.toString(),
 					PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
@@ -273,6 +273,15 @@ public class CryptoCoreUtil {
 		return output;
 	}
 
+	private static GCMParameterSpec gcmParameterSpec(ByteBuffer nonce) {
+		if (nonce.hasArray()) {
+			return new GCMParameterSpec(CryptoEngine.GCM_TAG_LENGTH, nonce.array(), nonce.arrayOffset() + nonce.position(), nonce.remaining());
+		}
+		byte[] iv = new byte[nonce.remaining()];
+		nonce.duplicate().get(iv);
+		return new GCMParameterSpec(CryptoEngine.GCM_TAG_LENGTH, iv);
+	}
+
 	public static byte[] getCertificateThumbprint(Certificate cert) {
 		try {
 			return DigestUtils.sha256(cert.getEncoded());
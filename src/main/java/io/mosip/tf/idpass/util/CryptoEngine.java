@@ -0,0 +1,200 @@
+package io.mosip.tf.idpass.util;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Security;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.MGF1ParameterSpec;
+import java.util.Arrays;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.PSource.PSpecified;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.mosip.tf.idpass.exception.CryptoManagerException;
+import io.mosip.tf.idpass.exception.PlatformErrorMessages;
+import io.mosip.tf.idpass.logger.PrintLogger;
+
+/**
+ * The Cipher and SecretKeyFactory instances of the credential decryption,
+ * looked up once per thread from the configured JCA provider and initialised
+ * again for every use. PIN derived keys come from {@link Pbkdf2HmacSha512}
+ * unless mosip.print.crypto.pbkdf2 is jca.
+ *
+ * A cipher handed out by {@link #rsaOaep(int, Key)} or
+ * {@link #aesGcm(int, Key, GCMParameterSpec)} belongs to the calling thread
+ * until its next call of the same method, it must not be kept or passed on.
+ * Ciphers read over a longer time, as by a CipherInputStream, come from
+ * {@link #newAesGcm(int, Key, GCMParameterSpec)}.
+ *
+ * Virtual threads get their own instances, as they are not pooled these are
+ * looked up for every task.
+ */
+@Component
+public class CryptoEngine {
+
+	private Logger printLogger = PrintLogger.getLogger(CryptoEngine.class);
+
+	public static final String RSA_ECB_OAEP_PADDING = "RSA/ECB/OAEPWITHSHA-256ANDMGF1PADDING";
+
+	// GCM does not pad, newer JDKs refuse the PKCS5Padding alias
+	public static final String AES_GCM_NO_PADDING = "AES/GCM/NoPadding";
+
+	public static final int GCM_TAG_LENGTH = 128;
+
+	private static final OAEPParameterSpec OAEP_SHA256 = new OAEPParameterSpec("SHA-256", "MGF1",
+			MGF1ParameterSpec.SHA256, PSpecified.DEFAULT);
+
+	/** JCA provider of the ciphers, SunJCE or BC. Empty lets the JCA pick. */
+	@Value("${mosip.print.crypto.provider:SunJCE}")
+	private String providerName;
+
+	@Value("${mosip.kernel.crypto.hash-algorithm-name:PBKDF2WithHmacSHA512}")
+	private String passwordAlgorithm;
+
+	/** PBKDF2-HMAC-SHA512 implementation, builtin or jca. */
+	@Value("${mosip.print.crypto.pbkdf2:builtin}")
+	private String pbkdf2;
+
+	private boolean builtinPbkdf2;
+
+	private Provider provider;
+
+	private final ThreadLocal<Cipher> rsaOaep = ThreadLocal.withInitial(() -> cipher(RSA_ECB_OAEP_PADDING));
+
+	private final ThreadLocal<Cipher> aesGcm = ThreadLocal.withInitial(() -> cipher(AES_GCM_NO_PADDING));
+
+	private final ThreadLocal<SecretKeyFactory> passwordKeyFactory = ThreadLocal.withInitial(this::secretKeyFactory);
+
+	@PostConstruct
+	public void init() {
+		if (providerName == null || providerName.trim().isEmpty()) {
+			provider = null;
+		} else {
+			provider = Security.getProvider(providerName.trim());
+			if (provider == null && BouncyCastleProvider.PROVIDER_NAME.equals(providerName.trim())) {
+				Security.addProvider(new BouncyCastleProvider());
+				provider = Security.getProvider(BouncyCastleProvider.PROVIDER_NAME);
+			}
+			if (provider == null) {
+				printLogger.error("JCA provider {} is not installed", providerName);
+				throw new CryptoManagerException(PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
+						PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage());
+			}
+		}
+		builtinPbkdf2 = "PBKDF2WithHmacSHA512".equalsIgnoreCase(passwordAlgorithm)
+				&& !"jca".equalsIgnoreCase(pbkdf2);
+		// a provider without the algorithms fails the startup rather than the first card
+		rsaOaep.get();
+		aesGcm.get();
+		if (!builtinPbkdf2) {
+			passwordKeyFactory.get();
+		}
+		printLogger.info("credential decryption uses the {} provider, {} PBKDF2",
+				provider == null ? "default" : provider.getName(), builtinPbkdf2 ? "builtin" : "JCA");
+	}
+
+	/**
+	 * RSA-OAEP with SHA-256 and MGF1-SHA-256, initialised for the key.
+	 */
+	public Cipher rsaOaep(int mode, Key key) throws InvalidKeyException, InvalidAlgorithmParameterException {
+		Cipher cipher = rsaOaep.get();
+		cipher.init(mode, key, OAEP_SHA256);
+		return cipher;
+	}
+
+	/**
+	 * AES-GCM, initialised for the key and nonce.
+	 */
+	public Cipher aesGcm(int mode, Key key, GCMParameterSpec parameterSpec)
+			throws InvalidKeyException, InvalidAlgorithmParameterException {
+		Cipher cipher = aesGcm.get();
+		cipher.init(mode, key, parameterSpec);
+		return cipher;
+	}
+
+	/**
+	 * AES-GCM that the caller owns, initialised for the key and nonce.
+	 */
+	public Cipher newAesGcm(int mode, Key key, GCMParameterSpec parameterSpec)
+			throws InvalidKeyException, InvalidAlgorithmParameterException {
+		Cipher cipher = cipher(AES_GCM_NO_PADDING);
+		cipher.init(mode, key, parameterSpec);
+		return cipher;
+	}
+
+	/**
+	 * Derives a key from the password with the configured PBKDF2 algorithm,
+	 * with {@link Pbkdf2HmacSha512} for PBKDF2WithHmacSHA512 unless the JCA is
+	 * configured.
+	 *
+	 * @param keyLength in bits
+	 * @return the raw key
+	 */
+	public byte[] deriveKey(char[] password, byte[] salt, int iterations, int keyLength)
+			throws InvalidKeySpecException {
+		if (builtinPbkdf2) {
+			ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+			byte[] passwordBytes = new byte[encoded.remaining()];
+			encoded.get(passwordBytes);
+			Arrays.fill(encoded.array(), (byte) 0);
+			try {
+				return Pbkdf2HmacSha512.derive(passwordBytes, salt, iterations, keyLength / 8);
+			} finally {
+				Arrays.fill(passwordBytes, (byte) 0);
+			}
+		}
+		PBEKeySpec pbeKeySpec = new PBEKeySpec(password, salt, iterations, keyLength);
+		try {
+			return passwordKeyFactory.get().generateSecret(pbeKeySpec).getEncoded();
+		} finally {
+			pbeKeySpec.clearPassword();
+		}
+	}
+
+	/** Name of the provider in use, default when the JCA picks. */
+	public String getProviderName() {
+		return provider == null ? "default" : provider.getName();
+	}
+
+	private Cipher cipher(String transformation) {
+		try {
+			return provider == null ? Cipher.getInstance(transformation)
+					: Cipher.getInstance(transformation, provider);
+		} catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+			throw unavailable(transformation, e);
+		}
+	}
+
+	private SecretKeyFactory secretKeyFactory() {
+		try {
+			return provider == null ? SecretKeyFactory.getInstance(passwordAlgorithm)
+					: SecretKeyFactory.getInstance(passwordAlgorithm, provider);
+		} catch (NoSuchAlgorithmException e) {
+			throw unavailable(passwordAlgorithm, e);
+		}
+	}
+
+	private CryptoManagerException unavailable(String algorithm, GeneralSecurityException e) {
+		printLogger.error("{} is not available from the {} provider", algorithm, getProviderName());
+		return new CryptoManagerException(PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
+				PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage(), e);
+	}
+}
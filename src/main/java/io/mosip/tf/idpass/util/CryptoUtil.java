@@ -9,15 +9,12 @@ import java.util.Arrays;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
-import javax.xml.bind.DatatypeConverter;
 
 import org.apache.commons.codec.binary.Base64;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -42,8 +39,11 @@ public class CryptoUtil {
 	@Value("${mosip.kernel.crypto.hash-iteration:100000}")
 	private int iterations;
 
-	@Value("${mosip.kernel.crypto.hash-algorithm-name:PBKDF2WithHmacSHA512}")
-	private String passwordAlgorithm;
+	@Autowired
+	private CryptoEngine cryptoEngine;
+
+	@Autowired
+	private DerivedKeyCache derivedKeyCache;
 
 
 	/*
@@ -83,37 +83,25 @@ public class CryptoUtil {
 		if (iv == null) {
 			return symmetricDecrypt(key, data, aad);
 		}
-		Cipher cipher = null;
-		try {
-			cipher = Cipher.getInstance("AES/GCM/PKCS5Padding");
-		} catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
-			throw new CryptoManagerException(PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
-					PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage(), e);
+		Cipher cipher = cryptoEngine.aesGcm(Cipher.DECRYPT_MODE, key,
+				new GCMParameterSpec(CryptoEngine.GCM_TAG_LENGTH, iv));
+		if (aad != null) {
+			cipher.updateAAD(aad);
 		}
-
-
-			SecretKeySpec keySpec = new SecretKeySpec(key.getEncoded(), "AES");
-			GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(128, iv);
-			cipher.init(Cipher.DECRYPT_MODE, keySpec, gcmParameterSpec);
-			if (aad != null) {
-				cipher.updateAAD(aad);
-			}
-			return cipher.doFinal(data);
+		return cipher.doFinal(data);
 	}
 
-	private static byte[] symmetricDecrypt(SecretKey key, byte[] data, byte[] aad) {
+	private byte[] symmetricDecrypt(SecretKey key, byte[] data, byte[] aad) {
 		byte[] output = null;
 		try {
-			Cipher cipher = Cipher.getInstance("AES/GCM/PKCS5Padding");
-			byte[] randomIV = Arrays.copyOfRange(data, data.length - cipher.getBlockSize(), data.length);
-			SecretKeySpec keySpec = new SecretKeySpec(key.getEncoded(), "AES");
-			GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(128, randomIV);
-
-			cipher.init(Cipher.DECRYPT_MODE, keySpec, gcmParameterSpec);
+			// the IV follows the ciphertext
+			int ivOffset = data.length - CredentialEnvelope.TRAILING_IV_LENGTH;
+			Cipher cipher = cryptoEngine.aesGcm(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(
+					CryptoEngine.GCM_TAG_LENGTH, data, ivOffset, CredentialEnvelope.TRAILING_IV_LENGTH));
 			if (aad != null && aad.length != 0) {
 				cipher.updateAAD(aad);
 			}
-			output = cipher.doFinal(Arrays.copyOf(data, data.length - cipher.getBlockSize()));
+			output = cipher.doFinal(data, 0, ivOffset);
 		} catch (Exception e) {
 			throw new CryptoManagerException(PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
 					PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage(), e);
@@ -122,47 +110,23 @@ public class CryptoUtil {
 	}
 	private SecretKey getDerivedKey(String userPin, byte[] salt)
 			throws NoSuchAlgorithmException, InvalidKeySpecException {
-		String derivedKeyHex = hash(userPin.getBytes(), salt);
-		byte[] derivedKey = hexDecode(derivedKeyHex);
-		return new SecretKeySpec(derivedKey, AES_KEY_TYPE);
-	}
-
-	private String hash(byte[] data, byte[] salt) {
-		SecretKeyFactory secretKeyFactory;
-		char[] convertedData = new String(data).toCharArray();
-		PBEKeySpec pbeKeySpec = new PBEKeySpec(convertedData, salt, iterations, symmetricKeyLength);
-		SecretKey key = null;
+		char[] pin = userPin.toCharArray();
+		byte[] derivedKey = null;
 		try {
-			secretKeyFactory = SecretKeyFactory.getInstance(passwordAlgorithm);
-			key = secretKeyFactory.generateSecret(pbeKeySpec);
-		} catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
-			throw new CryptoManagerException(PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
-					PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage(), e);
+			derivedKey = derivedKeyCache.get(pin, salt, iterations, symmetricKeyLength);
+			if (derivedKey == null) {
+				derivedKey = cryptoEngine.deriveKey(pin, salt, iterations, symmetricKeyLength);
+				derivedKeyCache.put(pin, salt, iterations, symmetricKeyLength, derivedKey);
+			}
+			return new SecretKeySpec(derivedKey, AES_KEY_TYPE);
+		} finally {
+			Arrays.fill(pin, '\0');
+			if (derivedKey != null) {
+				Arrays.fill(derivedKey, (byte) 0);
+			}
 		}
-
-		return DatatypeConverter.printHexBinary(key.getEncoded());
 	}
 
-	private byte[] hexDecode(String hexData) {
-
-		char[] hexDataCharArr = hexData.toCharArray();
-		int dataLength = hexDataCharArr.length;
-
-		if ((dataLength & 0x01) != 0) {
-			throw new io.mosip.tf.idpass.exception.ParseException(hexData, hexData);
-		}
-
-		byte[] decodedBytes = new byte[dataLength >> 1];
-
-		for (int i = 0, j = 0; j < dataLength; i++) {
-			int f = Character.digit(hexDataCharArr[j], 16) << 4;
-			j++;
-			f = f | Character.digit(hexDataCharArr[j], 16);
-			j++;
-			decodedBytes[i] = (byte) (f & 0xFF);
-		}
-		return decodedBytes;
-	}
 	/*
 	 * public SignatureResponseDto signPDF(PDFSignatureRequestDto request) {
 	 * SignatureCertificate signatureCertificate =
@@ -15,7 +15,6 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.mosip.tf.idpass.constant.ApiName;
 import io.mosip.tf.idpass.dto.DataShare;
@@ -32,8 +31,6 @@ public class DataShareUtil {
 	@Autowired
 	PrintRestClientService<Object> restUtil;
 
-	@Autowired
-	private ObjectMapper mapper;
 	
 	
 	Logger printLogger = PrintLogger.getLogger(DataShareUtil.class);
@@ -68,7 +65,7 @@ public class DataShareUtil {
 				map, headers);
 		String responseString = (String) restUtil.postApi(ApiName.CREATEDATASHARE, pathsegments, "", "", requestEntity,
 				String.class);
-		DataShareResponseDto responseObject = mapper.readValue(responseString, DataShareResponseDto.class);
+		DataShareResponseDto responseObject = JsonUtil.readDataShareResponse(responseString);
 		if (responseObject == null) {
 			throw new DataShareException();
 		}
@@ -0,0 +1,242 @@
+package io.mosip.tf.idpass.util;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.mosip.tf.idpass.exception.CryptoManagerException;
+import io.mosip.tf.idpass.exception.PlatformErrorMessages;
+import io.mosip.tf.idpass.logger.PrintLogger;
+
+/**
+ * Remembers PIN derived keys for a short time, so a credential issued again
+ * for the same resident does not run PBKDF2 again. Off unless
+ * mosip.print.crypto.key-cache.enabled is set.
+ *
+ * Entries are found by an HMAC-SHA256 of the PIN, salt, iteration count and
+ * key length under a random secret that only lives in this process, the PIN
+ * itself is never kept. Keys are held in memory only, forgotten after the ttl
+ * or when the cache is full, and their bytes are overwritten when they are
+ * dropped. Callers get a copy they may zero.
+ *
+ * Publishes print.key-cache.requests (counter, result=hit|miss),
+ * print.key-cache.evictions (counter, cause=expired|size) and
+ * print.key-cache.size (gauge).
+ */
+@Component
+public class DerivedKeyCache {
+
+	private Logger printLogger = PrintLogger.getLogger(DerivedKeyCache.class);
+
+	private static final String HMAC_SHA256 = "HmacSHA256";
+
+	@Autowired
+	private TaskScheduler taskScheduler;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${mosip.print.crypto.key-cache.enabled:false}")
+	private boolean enabled;
+
+	@Value("${mosip.print.crypto.key-cache.ttl-seconds:300}")
+	private long ttlSeconds;
+
+	@Value("${mosip.print.crypto.key-cache.max-entries:1000}")
+	private int maxEntries;
+
+	/** Access ordered, the eldest entry is dropped first when full. */
+	private final LinkedHashMap<ByteBuffer, Entry> keys = new LinkedHashMap<>(16, 0.75f, true);
+
+	private ThreadLocal<Mac> lookupMac;
+
+	private ScheduledFuture<?> purge;
+
+	private Counter hitCounter;
+
+	private Counter missCounter;
+
+	private Counter expiredCounter;
+
+	private Counter sizeEvictionCounter;
+
+	private static final class Entry {
+
+		private final byte[] key;
+
+		private final long expiry;
+
+		private Entry(byte[] key, long expiry) {
+			this.key = key;
+			this.expiry = expiry;
+		}
+	}
+
+	@PostConstruct
+	public void init() {
+		if (!enabled) {
+			return;
+		}
+		byte[] secret = new byte[32];
+		new SecureRandom().nextBytes(secret);
+		SecretKeySpec lookupKey = new SecretKeySpec(secret, HMAC_SHA256);
+		Arrays.fill(secret, (byte) 0);
+		lookupMac = ThreadLocal.withInitial(() -> {
+			try {
+				Mac mac = Mac.getInstance(HMAC_SHA256);
+				mac.init(lookupKey);
+				return mac;
+			} catch (GeneralSecurityException e) {
+				throw new CryptoManagerException(PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
+						PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage(), e);
+			}
+		});
+		hitCounter = Counter.builder("print.key-cache.requests").tag("result", "hit")
+				.description("PIN derived key lookups").register(meterRegistry);
+		missCounter = Counter.builder("print.key-cache.requests").tag("result", "miss")
+				.description("PIN derived key lookups").register(meterRegistry);
+		expiredCounter = Counter.builder("print.key-cache.evictions").tag("cause", "expired")
+				.description("PIN derived keys dropped and zeroed").register(meterRegistry);
+		sizeEvictionCounter = Counter.builder("print.key-cache.evictions").tag("cause", "size")
+				.description("PIN derived keys dropped and zeroed").register(meterRegistry);
+		Gauge.builder("print.key-cache.size", this, DerivedKeyCache::size)
+				.description("PIN derived keys held in memory").register(meterRegistry);
+		// expired keys are zeroed even when no credential comes in
+		long interval = Math.max(1000, TimeUnit.SECONDS.toMillis(ttlSeconds) / 2);
+		purge = taskScheduler.scheduleWithFixedDelay(this::purgeExpired, interval);
+		printLogger.info("PIN derived key cache enabled, {} keys for {} s", maxEntries, ttlSeconds);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (purge != null) {
+			purge.cancel(false);
+		}
+		clear();
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * The key derived before from the same PIN and salt.
+	 *
+	 * @param keyLength in bits
+	 * @return a copy of the key, null if not cached or the cache is off
+	 */
+	public byte[] get(char[] pin, byte[] salt, int iterations, int keyLength) {
+		if (!enabled) {
+			return null;
+		}
+		ByteBuffer lookup = lookupKey(pin, salt, iterations, keyLength);
+		synchronized (keys) {
+			Entry entry = keys.get(lookup);
+			if (entry != null && entry.expiry - System.nanoTime() <= 0) {
+				keys.remove(lookup);
+				drop(entry, expiredCounter);
+				entry = null;
+			}
+			if (entry == null) {
+				missCounter.increment();
+				return null;
+			}
+			hitCounter.increment();
+			return entry.key.clone();
+		}
+	}
+
+	/**
+	 * Remembers a derived key, the cache keeps its own copy.
+	 *
+	 * @param keyLength in bits
+	 */
+	public void put(char[] pin, byte[] salt, int iterations, int keyLength, byte[] derivedKey) {
+		if (!enabled || maxEntries <= 0) {
+			return;
+		}
+		ByteBuffer lookup = lookupKey(pin, salt, iterations, keyLength);
+		Entry entry = new Entry(derivedKey.clone(), System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds));
+		synchronized (keys) {
+			Entry replaced = keys.put(lookup, entry);
+			if (replaced != null) {
+				Arrays.fill(replaced.key, (byte) 0);
+			}
+			Iterator<Entry> eldest = keys.values().iterator();
+			while (keys.size() > maxEntries) {
+				Entry evicted = eldest.next();
+				eldest.remove();
+				drop(evicted, sizeEvictionCounter);
+			}
+		}
+	}
+
+	/** Drops and zeroes every key. */
+	public void clear() {
+		synchronized (keys) {
+			for (Entry entry : keys.values()) {
+				Arrays.fill(entry.key, (byte) 0);
+			}
+			keys.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (keys) {
+			return keys.size();
+		}
+	}
+
+	private void purgeExpired() {
+		long now = System.nanoTime();
+		synchronized (keys) {
+			Iterator<Map.Entry<ByteBuffer, Entry>> entries = keys.entrySet().iterator();
+			while (entries.hasNext()) {
+				Entry entry = entries.next().getValue();
+				if (entry.expiry - now <= 0) {
+					entries.remove();
+					drop(entry, expiredCounter);
+				}
+			}
+		}
+	}
+
+	private void drop(Entry entry, Counter cause) {
+		Arrays.fill(entry.key, (byte) 0);
+		cause.increment();
+	}
+
+	private ByteBuffer lookupKey(char[] pin, byte[] salt, int iterations, int keyLength) {
+		ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(pin));
+		Mac mac = lookupMac.get();
+		// lengths first so that PIN and salt bytes can not be shifted between the two
+		mac.update(ByteBuffer.allocate(16).putInt(encoded.remaining()).putInt(salt.length).putInt(iterations)
+				.putInt(keyLength).array());
+		mac.update(encoded.duplicate());
+		mac.update(salt);
+		Arrays.fill(encoded.array(), (byte) 0);
+		return ByteBuffer.wrap(mac.doFinal());
+	}
+}
@@ -0,0 +1,113 @@
+package io.mosip.tf.idpass.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * The identity mapping json compiled into the list of credential fields the
+ * card template shows, so the mapping is parsed once and not for every card.
+ *
+ * A field holding an array of localized values, as an array or as JSON text,
+ * gives one attribute per supported language named field_language. An object
+ * gives its value, anything else its text. Plans are immutable and may be
+ * shared between threads, a new one is compiled when the mapping changes.
+ */
+public final class IdentityMappingPlan {
+
+	private static final String VALUE = "value";
+
+	private static final String LANGUAGE = "language";
+
+	/** The mapping json this plan was compiled from. */
+	private final String source;
+
+	/** Credential fields in the order of the mapping. */
+	private final List<String> fields;
+
+	private IdentityMappingPlan(String source, List<String> fields) {
+		this.source = source;
+		this.fields = Collections.unmodifiableList(fields);
+	}
+
+	/**
+	 * Compiles the mapping.
+	 *
+	 * @param mappingJson the identity mapping json
+	 * @param identityKey name of the demographic identity object in it
+	 * @throws IOException if the mapping is not JSON
+	 */
+	public static IdentityMappingPlan compile(String mappingJson, String identityKey) throws IOException {
+		List<String> fields = new ArrayList<>();
+		JsonNode identity = JsonUtil.readTree(mappingJson).path(identityKey);
+		Iterator<JsonNode> mappings = identity.elements();
+		while (mappings.hasNext()) {
+			JsonNode value = mappings.next().get(VALUE);
+			if (value == null || value.isNull()) {
+				continue;
+			}
+			Collections.addAll(fields, value.asText().split(","));
+		}
+		return new IdentityMappingPlan(mappingJson, fields);
+	}
+
+	/** Whether the plan was compiled from this mapping json. */
+	public boolean isCompiledFrom(String mappingJson) {
+		return source == mappingJson || source.equals(mappingJson);
+	}
+
+	public List<String> getFields() {
+		return fields;
+	}
+
+	/**
+	 * Puts the mapped fields of the credential into the template attributes.
+	 *
+	 * @param credentialSubject the parsed credential subject
+	 * @param supportedLang     languages printed on the card
+	 * @param attributes        the template attributes
+	 */
+	public void apply(ObjectNode credentialSubject, String supportedLang, Map<String, Object> attributes) {
+		for (String field : fields) {
+			JsonNode node = credentialSubject.get(field);
+			if (node == null || node.isNull()) {
+				continue;
+			}
+			// localized values are usually embedded as JSON text
+			JsonNode localized = node.isTextual() ? embeddedArray(node.asText()) : node;
+			if (localized != null && localized.isArray()) {
+				for (JsonNode localizedValue : localized) {
+					String language = localizedValue.path(LANGUAGE).asText();
+					// a blank language is contained in any list and would give the key field_
+					if (!language.trim().isEmpty() && supportedLang.contains(language)) {
+						attributes.put(field + "_" + language, localizedValue.path(VALUE).asText(null));
+					}
+				}
+			} else if (node.isObject()) {
+				attributes.put(field, node.path(VALUE).asText(null));
+			} else {
+				attributes.put(field, node.asText());
+			}
+		}
+	}
+
+	/**
+	 * The array a text attribute holds as JSON, null if it holds none.
+	 */
+	private static JsonNode embeddedArray(String text) {
+		if (!text.trim().startsWith("[")) {
+			return null;
+		}
+		try {
+			return JsonUtil.readTree(text);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+}
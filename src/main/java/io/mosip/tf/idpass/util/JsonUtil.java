@@ -3,9 +3,11 @@ package io.mosip.tf.idpass.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 
@@ -13,15 +15,16 @@ import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.gson.Gson;
-import com.google.gson.JsonIOException;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
+import com.fasterxml.jackson.databind.ObjectReader;
 
+import io.mosip.tf.idpass.dto.DataShareResponseDto;
 import io.mosip.tf.idpass.dto.JsonValue;
+import io.mosip.tf.idpass.dto.SignatureResponseDto;
+import io.mosip.tf.idpass.dto.TemplateResponseDto;
 import io.mosip.tf.idpass.exception.FieldNotFoundException;
 import io.mosip.tf.idpass.exception.InstantanceCreationException;
 import io.mosip.tf.idpass.exception.PlatformErrorMessages;
@@ -40,7 +43,25 @@ public class JsonUtil {
 	/** The Constant VALUE. */
 	private static final String VALUE = "value";
 
-	private static ObjectMapper objectMapper = new ObjectMapper();
+	/**
+	 * The one mapper of the utilities. A mapper is thread safe once configured
+	 * and keeps the serializers and deserializers it built, so it is shared
+	 * rather than created per call.
+	 */
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	/** Reads JSON into any type, ignoring properties the type does not have. */
+	private static final ObjectReader lenientReader = objectMapper.reader()
+			.without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+	private static final ObjectReader jsonValuesReader = lenientReader.forType(JsonValue[].class);
+
+	private static final ObjectReader templateResponseReader = lenientReader.forType(TemplateResponseDto.class);
+
+	private static final ObjectReader signatureResponseReader = lenientReader.forType(SignatureResponseDto.class);
+
+	private static final ObjectReader dataShareResponseReader = lenientReader.forType(DataShareResponseDto.class);
+
 	/**
 	 * Instantiates a new json util.
 	 */
@@ -57,19 +78,12 @@ public class JsonUtil {
 	 *            The class to which conversion is required
 	 * @return The converted Java object
 	 * @throws UnsupportedEncodingException
-	 *             the unsupported encoding exception
-	 * @throws JsonSyntaxException
-	 *             the json syntax exception
-	 * @throws JsonIOException
-	 *             the json IO exception
+	 *             if the stream does not hold the object as JSON
 	 */
 	public static Object inputStreamtoJavaObject(InputStream stream, Class<?> clazz)
 			throws UnsupportedEncodingException {
-		JsonParser jsonParser = new JsonParser();
-		Gson gson = new Gson();
-		JsonObject jsonObject = (JsonObject) jsonParser.parse(new InputStreamReader(stream, "UTF-8"));
 		try {
-			return gson.fromJson(jsonObject, clazz);
+			return lenientReader.forType(clazz).readValue(new InputStreamReader(stream, StandardCharsets.UTF_8));
 		} catch (Exception e) {
 			throw new UnsupportedEncodingException(PlatformErrorMessages.PRT_CMB_UNSUPPORTED_ENCODING.getMessage());
 		}
@@ -125,6 +139,22 @@ public class JsonUtil {
 		return objectMapper.writeValueAsString(obj);
 	}
 
+	/**
+	 * Parses the JSON read from the reader into a tree, without building the
+	 * JSON text first.
+	 *
+	 * @param reader the reader, not closed
+	 * @return the tree
+	 * @throws IOException if the JSON can not be read or parsed
+	 */
+	public static JsonNode readTree(Reader reader) throws IOException {
+		return objectMapper.readTree(reader);
+	}
+
+	public static JsonNode readTree(String jsonString) throws IOException {
+		return objectMapper.readTree(jsonString);
+	}
+
 	/**
 	 * Object mapper read value. This method maps the jsonString to particular type
 	 * 
@@ -196,10 +226,64 @@ public class JsonUtil {
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T> T objectMapperReadValue(String jsonString, Class<?> clazz) throws IOException {
-		ObjectMapper objectMapper = new ObjectMapper();
 		return (T) objectMapper.readValue(jsonString, clazz);
 	}
 
+	/**
+	 * Reads localized values, [ { "language" : "eng", "value" : "Taleev Aalam" } ].
+	 *
+	 * @param jsonNode the json array
+	 * @return the json values
+	 * @throws IOException if the node is not an array of localized values
+	 */
+	public static JsonValue[] readJsonValues(JsonNode jsonNode) throws IOException {
+		return jsonValuesReader.readValue(jsonNode);
+	}
+
+	/**
+	 * Reads the response of the templates service.
+	 *
+	 * @param response the response of the ResponseWrapper
+	 * @return the template response, null if there is no response
+	 * @throws IOException if the response is not a template response
+	 */
+	public static TemplateResponseDto readTemplateResponse(Object response) throws IOException {
+		return convert(templateResponseReader, response);
+	}
+
+	/**
+	 * Reads the response of the PDF signing service.
+	 *
+	 * @param response the response of the ResponseWrapper
+	 * @return the signature response, null if there is no response
+	 * @throws IOException if the response is not a signature response
+	 */
+	public static SignatureResponseDto readSignatureResponse(Object response) throws IOException {
+		return convert(signatureResponseReader, response);
+	}
+
+	/**
+	 * Reads the response of the data share service.
+	 *
+	 * @param jsonString the response body
+	 * @return the data share response
+	 * @throws IOException if the body is not a data share response
+	 */
+	public static DataShareResponseDto readDataShareResponse(String jsonString) throws IOException {
+		return dataShareResponseReader.readValue(jsonString);
+	}
+
+	/**
+	 * Binds a response the rest client already read into maps to its type,
+	 * through a tree instead of writing it out as JSON text and reading it again.
+	 */
+	private static <T> T convert(ObjectReader reader, Object response) throws IOException {
+		if (response == null) {
+			return null;
+		}
+		return reader.readValue(objectMapper.<JsonNode>valueToTree(response));
+	}
+
 	/**
 	 * Gets the json values. Returns JsonValue[] java array for the particular key
 	 * in demographic json.
@@ -213,9 +297,7 @@ public class JsonUtil {
 
 		if (demographicIdentity != null)
 			demographicJsonNode = JsonUtil.getJSONArray(demographicIdentity, identityKey);
-		return (demographicJsonNode != null)
-				? (JsonValue[]) mapJsonNodeToJavaObject(JsonValue.class, demographicJsonNode)
-				: null;
+		return (demographicJsonNode != null) ? toJsonValues(demographicJsonNode) : null;
 
 	}
 
@@ -232,6 +314,9 @@ public class JsonUtil {
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T> T[] mapJsonNodeToJavaObject(Class<? extends Object> genericType, JSONArray demographicJsonNode) {
+		if (genericType == JsonValue.class) {
+			return (T[]) toJsonValues(demographicJsonNode);
+		}
 		String language;
 		String value;
 		T[] javaObject = (T[]) Array.newInstance(genericType, demographicJsonNode.size());
@@ -272,9 +357,29 @@ public class JsonUtil {
 	}
 	
 	
+	/**
+	 * Localized values of a demographic json array, built without reflection.
+	 *
+	 * @param demographicJsonNode
+	 *            the demographic json node
+	 * @return the json values, null where the array holds no object
+	 */
+	public static JsonValue[] toJsonValues(JSONArray demographicJsonNode) {
+		JsonValue[] jsonValues = new JsonValue[demographicJsonNode.size()];
+		for (int i = 0; i < demographicJsonNode.size(); i++) {
+			JSONObject objects = JsonUtil.getJSONObjectFromArray(demographicJsonNode, i);
+			if (objects != null) {
+				JsonValue jsonValue = new JsonValue();
+				jsonValue.setLanguage((String) objects.get(LANGUAGE));
+				jsonValue.setValue((String) objects.get(VALUE));
+				jsonValues[i] = jsonValue;
+			}
+		}
+		return jsonValues;
+	}
+
 	public static String objectMapperObjectToJson(Object obj) throws IOException {
-		ObjectMapper objectMapper = new ObjectMapper();
 		return objectMapper.writeValueAsString(obj);
-	} 
+	}
 
 }
@@ -0,0 +1,489 @@
+package io.mosip.tf.idpass.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.security.KeyStore;
+import java.security.KeyStore.PasswordProtection;
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.UnrecoverableEntryException;
+import java.security.cert.CertificateException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.mosip.tf.idpass.exception.CryptoManagerException;
+import io.mosip.tf.idpass.exception.PlatformErrorMessages;
+import io.mosip.tf.idpass.logger.PrintLogger;
+import io.mosip.tf.idpass.model.PartnerKey;
+
+/**
+ * Ring of the partner keys the credentials are decrypted with, indexed by
+ * the SHA-256 thumbprint of their certificate, which is the thumbprint the
+ * credential service puts in front of the encrypted key. During a key
+ * rotation the old and the new key are both in the ring, so credentials
+ * encrypted for either are printed.
+ *
+ * mosip.print.crypto.p12.filename lists the keystores, comma separated, each
+ * a file path or, when no such file exists, a classpath resource. They are
+ * unlocked with mosip.print.crypto.p12.password, or with the matching entry
+ * of mosip.print.crypto.p12.passwords. mosip.print.crypto.p12.alias lists
+ * the aliases to load, * loading every key of the keystores. The first key
+ * loaded is the primary key, used for credentials that carry no thumbprint
+ * or an unknown one.
+ *
+ * Unlocking a PKCS#12 entry runs its password based key derivation, so the
+ * keys are unlocked once and kept. The ring is an immutable snapshot that
+ * readers get without any locking. Loading, adding and retiring keys build
+ * a new snapshot and swap it in one step. A keystore that fails to load
+ * leaves the current ring in place.
+ *
+ * Keystore files are reloaded as soon as their modification time changes,
+ * checked every watch-interval-millis. Keystores inside the jar are only
+ * reloaded through /print/admin/partner-keys/reload.
+ *
+ * Publishes print.key.load (timer, tagged with the result), print.key.age
+ * (gauge, seconds since the ring was loaded), print.key.ring.size (gauge)
+ * and print.key.thumbprint.miss (counter).
+ */
+@Component
+public class PartnerKeyStore {
+
+	private Logger printLogger = PrintLogger.getLogger(PartnerKeyStore.class);
+
+	/** Length of the certificate thumbprint in front of the encrypted key. */
+	public static final int THUMBPRINT_LENGTH = 32;
+
+	private static final String ALL_ALIASES = "*";
+
+	@Autowired
+	private TaskScheduler taskScheduler;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${mosip.print.crypto.p12.filename}")
+	private String fileName;
+
+	@Value("${mosip.print.crypto.p12.password}")
+	private String cyptoPassword;
+
+	/** Per keystore passwords, empty uses the shared password for all. */
+	@Value("${mosip.print.crypto.p12.passwords:}")
+	private String passwords;
+
+	@Value("${mosip.print.crypto.p12.alias}")
+	private String alias;
+
+	/** 0 switches the keystore file watch off. */
+	@Value("${mosip.print.crypto.p12.watch-interval-millis:30000}")
+	private long watchIntervalMillis;
+
+	private final AtomicReference<Ring> ring = new AtomicReference<>();
+
+	/** Keystores added at runtime, kept by reloads. */
+	private final List<Source> added = new ArrayList<>();
+
+	/** Hex thumbprints retired at runtime, left out by reloads. */
+	private final Set<String> retired = new HashSet<>();
+
+	/** Modification times of the keystore files the ring was read from. */
+	private volatile Map<File, Long> loadedModified = Collections.emptyMap();
+
+	private ScheduledFuture<?> watch;
+
+	private Timer loadTimer;
+
+	private Timer failedLoadTimer;
+
+	private Counter missCounter;
+
+	/** Keys of the ring, looked up by thumbprint. */
+	private static final class Ring {
+
+		private final Map<ByteBuffer, PartnerKey> byThumbprint;
+
+		private final PartnerKey primary;
+
+		private final long loadedAt;
+
+		private Ring(List<PartnerKey> keys, long loadedAt) {
+			Map<ByteBuffer, PartnerKey> map = new HashMap<>();
+			for (PartnerKey key : keys) {
+				map.putIfAbsent(ByteBuffer.wrap(key.getThumbprint()), key);
+			}
+			this.byThumbprint = Collections.unmodifiableMap(map);
+			this.primary = keys.isEmpty() ? null : keys.get(0);
+			this.loadedAt = loadedAt;
+		}
+	}
+
+	/** A keystore and the aliases to load from it. */
+	private static final class Source {
+
+		private final String fileName;
+
+		private final String password;
+
+		private final String aliases;
+
+		private Source(String fileName, String password, String aliases) {
+			this.fileName = fileName;
+			this.password = password;
+			this.aliases = aliases;
+		}
+	}
+
+	@PostConstruct
+	public void init() {
+		loadTimer = Timer.builder("print.key.load").tag("result", "success")
+				.description("time taken to unlock the partner keystores").register(meterRegistry);
+		failedLoadTimer = Timer.builder("print.key.load").tag("result", "failure")
+				.description("time taken to unlock the partner keystores").register(meterRegistry);
+		missCounter = Counter.builder("print.key.thumbprint.miss")
+				.description("credentials for a thumbprint not in the key ring, tried with the primary key")
+				.register(meterRegistry);
+		Gauge.builder("print.key.age", ring, r -> r.get() == null ? 0
+				: TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - r.get().loadedAt))
+				.description("seconds since the partner keys were loaded").register(meterRegistry);
+		Gauge.builder("print.key.ring.size", ring, r -> r.get() == null ? 0 : r.get().byThumbprint.size())
+				.description("partner keys in the key ring").register(meterRegistry);
+		try {
+			reload();
+		} catch (CryptoManagerException e) {
+			// the first card tries again and reports the failure
+			printLogger.error("partner keys could not be loaded at startup", e);
+		}
+		if (watchIntervalMillis > 0) {
+			watch = taskScheduler.scheduleWithFixedDelay(this::reloadIfModified, watchIntervalMillis);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (watch != null) {
+			watch.cancel(false);
+		}
+	}
+
+	/**
+	 * The primary key, loaded on first use if the keys could not be loaded at
+	 * startup.
+	 *
+	 * @throws CryptoManagerException if no key can be loaded
+	 */
+	public PartnerKey get() {
+		return current().primary;
+	}
+
+	/**
+	 * The key for the thumbprint found at the offset of the data, without
+	 * copying it.
+	 *
+	 * @return null if the thumbprint is not in the ring
+	 * @throws CryptoManagerException if no key can be loaded
+	 */
+	public PartnerKey get(byte[] data, int offset) {
+		if (offset < 0 || data.length - offset < THUMBPRINT_LENGTH) {
+			return null;
+		}
+		return get(ByteBuffer.wrap(data, offset, THUMBPRINT_LENGTH));
+	}
+
+	/**
+	 * The key for the thumbprint between the position and the limit of the
+	 * buffer.
+	 *
+	 * @return null if the thumbprint is not in the ring
+	 * @throws CryptoManagerException if no key can be loaded
+	 */
+	public PartnerKey get(ByteBuffer thumbprint) {
+		return current().byThumbprint.get(thumbprint);
+	}
+
+	/**
+	 * The key for the thumbprint at the offset of the data, or the primary key
+	 * when the thumbprint is unknown or the offset negative.
+	 *
+	 * @throws CryptoManagerException if no key can be loaded
+	 */
+	public PartnerKey select(byte[] data, int offset) {
+		if (offset < 0) {
+			return get();
+		}
+		int length = Math.max(0, Math.min(THUMBPRINT_LENGTH, data.length - offset));
+		return select(ByteBuffer.wrap(data, Math.min(offset, data.length), length));
+	}
+
+	/**
+	 * The key for the thumbprint, or the primary key when the thumbprint is
+	 * unknown or null.
+	 *
+	 * @throws CryptoManagerException if no key can be loaded
+	 */
+	public PartnerKey select(ByteBuffer thumbprint) {
+		if (thumbprint == null) {
+			return get();
+		}
+		PartnerKey key = get(thumbprint);
+		if (key == null) {
+			missCounter.increment();
+			if (printLogger.isDebugEnabled()) {
+				byte[] bytes = new byte[thumbprint.remaining()];
+				thumbprint.duplicate().get(bytes);
+				printLogger.debug("no partner key for thumbprint {}, trying the primary key", Hex.encodeHexString(bytes));
+			}
+			return get();
+		}
+		return key;
+	}
+
+	/** The keys of the ring, the primary key first. */
+	public List<PartnerKey> getKeys() {
+		Ring current = ring.get();
+		if (current == null) {
+			return Collections.emptyList();
+		}
+		List<PartnerKey> keys = new ArrayList<>(current.byThumbprint.values());
+		keys.remove(current.primary);
+		keys.add(0, current.primary);
+		return keys;
+	}
+
+	/**
+	 * Load every configured keystore again and make their keys the ring.
+	 *
+	 * @return the keys of the new ring
+	 * @throws CryptoManagerException if a keystore can not be loaded, the
+	 *                                current ring is then kept
+	 */
+	public synchronized List<PartnerKey> reload() {
+		long start = System.nanoTime();
+		try {
+			List<Source> sources = configuredSources();
+			sources.addAll(added);
+			Map<File, Long> modified = new HashMap<>();
+			List<PartnerKey> keys = new ArrayList<>();
+			for (Source source : sources) {
+				File file = keystoreFile(source.fileName);
+				if (file != null) {
+					modified.put(file, file.lastModified());
+				}
+				for (PartnerKey key : load(source)) {
+					if (!retired.contains(Hex.encodeHexString(key.getThumbprint()))) {
+						keys.add(key);
+					}
+				}
+			}
+			publish(keys);
+			loadedModified = modified;
+			loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			printLogger.info("{} partner keys loaded in {} ms", keys.size(),
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			return getKeys();
+		} catch (CryptoManagerException e) {
+			failedLoadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			throw e;
+		}
+	}
+
+	/**
+	 * Add the keys of a keystore to the ring, without a restart. They are kept
+	 * by later reloads.
+	 *
+	 * @param aliases comma separated aliases, * for every key
+	 * @return the keys added
+	 * @throws CryptoManagerException if the keystore can not be loaded
+	 */
+	public synchronized List<PartnerKey> add(String fileName, String password, String aliases) {
+		Source source = new Source(fileName, password, aliases);
+		List<PartnerKey> keys = load(source);
+		for (PartnerKey key : keys) {
+			retired.remove(Hex.encodeHexString(key.getThumbprint()));
+		}
+		added.add(source);
+		List<PartnerKey> ringKeys = new ArrayList<>(getKeys());
+		ringKeys.addAll(keys);
+		publish(ringKeys);
+		File file = keystoreFile(fileName);
+		if (file != null) {
+			Map<File, Long> modified = new HashMap<>(loadedModified);
+			modified.put(file, file.lastModified());
+			loadedModified = modified;
+		}
+		printLogger.info("{} partner keys added from {}", keys.size(), fileName);
+		return keys;
+	}
+
+	/**
+	 * Take a key out of the ring, credentials encrypted for it are no longer
+	 * printed. Later reloads leave it out.
+	 *
+	 * @param thumbprint hex encoded certificate thumbprint
+	 * @return false if the key is not in the ring
+	 */
+	public synchronized boolean retire(String thumbprint) {
+		String hex = thumbprint.toLowerCase();
+		List<PartnerKey> keys = new ArrayList<>(getKeys());
+		if (!keys.removeIf(key -> Hex.encodeHexString(key.getThumbprint()).equals(hex))) {
+			return false;
+		}
+		// a key that could not be taken out is not left out of later reloads
+		publish(keys);
+		retired.add(hex);
+		printLogger.info("partner key {} retired", hex);
+		return true;
+	}
+
+	private void publish(List<PartnerKey> keys) {
+		if (keys.isEmpty()) {
+			printLogger.error("no partner key left in the key ring");
+			throw new CryptoManagerException(PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
+					PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage());
+		}
+		ring.set(new Ring(keys, System.currentTimeMillis()));
+	}
+
+	private Ring current() {
+		Ring current = ring.get();
+		if (current == null) {
+			reload();
+			current = ring.get();
+		}
+		return current;
+	}
+
+	private void reloadIfModified() {
+		Map<File, Long> modified = loadedModified;
+		boolean changed = false;
+		for (Map.Entry<File, Long> entry : modified.entrySet()) {
+			changed |= entry.getKey().lastModified() != entry.getValue();
+		}
+		if (!changed) {
+			return;
+		}
+		printLogger.info("partner keystores changed, reloading");
+		try {
+			reload();
+		} catch (CryptoManagerException e) {
+			printLogger.error("changed partner keystores could not be loaded, keeping the current keys", e);
+			// no new attempt until a file changes again
+			Map<File, Long> seen = new HashMap<>();
+			for (File file : modified.keySet()) {
+				seen.put(file, file.lastModified());
+			}
+			loadedModified = seen;
+		}
+	}
+
+	private List<Source> configuredSources() {
+		String[] fileNames = fileName.split(",");
+		String[] keystorePasswords = passwords.isEmpty() ? new String[0] : passwords.split(",");
+		List<Source> sources = new ArrayList<>();
+		for (int i = 0; i < fileNames.length; i++) {
+			String password = i < keystorePasswords.length ? keystorePasswords[i].trim() : cyptoPassword;
+			sources.add(new Source(fileNames[i].trim(), password, alias));
+		}
+		return sources;
+	}
+
+	private List<PartnerKey> load(Source source) {
+		URL location = locate(source.fileName);
+		if (location == null) {
+			printLogger.error("partner keystore {} not found", source.fileName);
+			throw new CryptoManagerException(PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
+					PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage());
+		}
+		try (InputStream in = location.openStream()) {
+			KeyStore mosipKeyStore = KeyStore.getInstance("PKCS12");
+			mosipKeyStore.load(in, source.password.toCharArray());
+			PasswordProtection password = new PasswordProtection(source.password.toCharArray());
+			List<PartnerKey> keys = new ArrayList<>();
+			long loadedAt = System.currentTimeMillis();
+			for (String keyAlias : aliases(mosipKeyStore, source.aliases)) {
+				PrivateKeyEntry entry = (PrivateKeyEntry) mosipKeyStore.getEntry(keyAlias, password);
+				if (entry == null) {
+					throw new KeyStoreException("no key " + keyAlias + " in " + location);
+				}
+				keys.add(new PartnerKey(keyAlias, entry,
+						CryptoCoreUtil.getCertificateThumbprint(entry.getCertificate()), location.toString(),
+						loadedAt));
+			}
+			return keys;
+		} catch (UnrecoverableEntryException | CertificateException | KeyStoreException | IOException
+				| NoSuchAlgorithmException | ClassCastException e) {
+			printLogger.error("Not able to load the key from keystore : {}", e);
+		}
+		throw new CryptoManagerException(PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
+				PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage());
+	}
+
+	/** The aliases listed, or every private key of the keystore sorted by alias. */
+	private static List<String> aliases(KeyStore keyStore, String aliases) throws KeyStoreException {
+		List<String> names = new ArrayList<>();
+		if (!ALL_ALIASES.equals(aliases.trim())) {
+			for (String name : aliases.split(",")) {
+				names.add(name.trim());
+			}
+			return names;
+		}
+		for (String name : Collections.list(keyStore.aliases())) {
+			if (keyStore.isKeyEntry(name)) {
+				names.add(name);
+			}
+		}
+		Collections.sort(names);
+		return names;
+	}
+
+	private URL locate(String name) {
+		File file = new File(name);
+		if (file.isFile()) {
+			try {
+				return file.toURI().toURL();
+			} catch (IOException e) {
+				return null;
+			}
+		}
+		return getClass().getClassLoader().getResource(name);
+	}
+
+	/** The keystore as a file that can be watched, null inside a jar. */
+	private File keystoreFile(String name) {
+		URL location = locate(name);
+		if (location == null || !"file".equals(location.getProtocol())) {
+			return null;
+		}
+		try {
+			return new File(location.toURI());
+		} catch (URISyntaxException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package io.mosip.tf.idpass.util;
+
+import java.util.Arrays;
+
+/**
+ * PBKDF2 with HMAC-SHA512 (RFC 8018) for the PIN derived keys of the
+ * protected attributes.
+ *
+ * The HMAC key only changes per PIN, so the SHA-512 states after the inner
+ * and the outer pad block are computed once. Every iteration then hashes a
+ * single padded block from each of them, on long words kept in reused
+ * arrays: no rekeying, no byte conversion and no allocation in the loop.
+ * MessageDigest can not go back to a saved state without cloning, which
+ * is why SHA-512 is computed here.
+ *
+ * Produces the same bytes as the JCA PBKDF2WithHmacSHA512 for a password
+ * given as its UTF-8 bytes.
+ */
+public final class Pbkdf2HmacSha512 {
+
+	private static final int BLOCK_LENGTH = 128;
+
+	private static final int DIGEST_LENGTH = 64;
+
+	/** Bit length of a pad block and one digest, the message of every iteration. */
+	private static final long ITERATION_MESSAGE_BITS = (BLOCK_LENGTH + DIGEST_LENGTH) * 8L;
+
+	private static final long[] IV = { 0x6a09e667f3bcc908L, 0xbb67ae8584caa73bL, 0x3c6ef372fe94f82bL, 0xa54ff53a5f1d36f1L, 0x510e527fade682d1L, 0x9b05688c2b3e6c1fL, 0x1f83d9abfb41bd6bL, 0x5be0cd19137e2179L };
+
+	private static final long[] K = {
+			0x428a2f98d728ae22L, 0x7137449123ef65cdL, 0xb5c0fbcfec4d3b2fL, 0xe9b5dba58189dbbcL,
+			0x3956c25bf348b538L, 0x59f111f1b605d019L, 0x923f82a4af194f9bL, 0xab1c5ed5da6d8118L,
+			0xd807aa98a3030242L, 0x12835b0145706fbeL, 0x243185be4ee4b28cL, 0x550c7dc3d5ffb4e2L,
+			0x72be5d74f27b896fL, 0x80deb1fe3b1696b1L, 0x9bdc06a725c71235L, 0xc19bf174cf692694L,
+			0xe49b69c19ef14ad2L, 0xefbe4786384f25e3L, 0x0fc19dc68b8cd5b5L, 0x240ca1cc77ac9c65L,
+			0x2de92c6f592b0275L, 0x4a7484aa6ea6e483L, 0x5cb0a9dcbd41fbd4L, 0x76f988da831153b5L,
+			0x983e5152ee66dfabL, 0xa831c66d2db43210L, 0xb00327c898fb213fL, 0xbf597fc7beef0ee4L,
+			0xc6e00bf33da88fc2L, 0xd5a79147930aa725L, 0x06ca6351e003826fL, 0x142929670a0e6e70L,
+			0x27b70a8546d22ffcL, 0x2e1b21385c26c926L, 0x4d2c6dfc5ac42aedL, 0x53380d139d95b3dfL,
+			0x650a73548baf63deL, 0x766a0abb3c77b2a8L, 0x81c2c92e47edaee6L, 0x92722c851482353bL,
+			0xa2bfe8a14cf10364L, 0xa81a664bbc423001L, 0xc24b8b70d0f89791L, 0xc76c51a30654be30L,
+			0xd192e819d6ef5218L, 0xd69906245565a910L, 0xf40e35855771202aL, 0x106aa07032bbd1b8L,
+			0x19a4c116b8d2d0c8L, 0x1e376c085141ab53L, 0x2748774cdf8eeb99L, 0x34b0bcb5e19b48a8L,
+			0x391c0cb3c5c95a63L, 0x4ed8aa4ae3418acbL, 0x5b9cca4f7763e373L, 0x682e6ff3d6b2b8a3L,
+			0x748f82ee5defb2fcL, 0x78a5636f43172f60L, 0x84c87814a1f0ab72L, 0x8cc702081a6439ecL,
+			0x90befffa23631e28L, 0xa4506cebde82bde9L, 0xbef9a3f7b2c67915L, 0xc67178f2e372532bL,
+			0xca273eceea26619cL, 0xd186b8c721c0c207L, 0xeada7dd6cde0eb1eL, 0xf57d4f7fee6ed178L,
+			0x06f067aa72176fbaL, 0x0a637dc5a2c898a6L, 0x113f9804bef90daeL, 0x1b710b35131c471bL,
+			0x28db77f523047d84L, 0x32caab7b40c72493L, 0x3c9ebe0a15c9bebcL, 0x431d67c49c100d4cL,
+			0x4cc5d4becb3e42b6L, 0x597f299cfc657e2aL, 0x5fcb6fab3ad6faecL, 0x6c44198c4a475817L };
+
+	private final long[] innerPadState = new long[8];
+
+	private final long[] outerPadState = new long[8];
+
+	private final long[] state = new long[8];
+
+	private final long[] words = new long[80];
+
+	private Pbkdf2HmacSha512(byte[] password) {
+		byte[] key = password.length > BLOCK_LENGTH ? digest(IV, 0, password, 0, password.length) : password;
+		byte[] pad = new byte[BLOCK_LENGTH];
+		padState(key, pad, (byte) 0x36, innerPadState);
+		padState(key, pad, (byte) 0x5c, outerPadState);
+		if (key != password) {
+			Arrays.fill(key, (byte) 0);
+		}
+	}
+
+	/**
+	 * Derives the key.
+	 *
+	 * @param password   password bytes, UTF-8 for the JCA result
+	 * @param salt       salt
+	 * @param iterations iteration count, at least 1
+	 * @param keyLength  key length in bytes
+	 * @return the raw key
+	 */
+	public static byte[] derive(byte[] password, byte[] salt, int iterations, int keyLength) {
+		if (iterations < 1 || keyLength < 1) {
+			throw new IllegalArgumentException("iterations and key length must be positive");
+		}
+		Pbkdf2HmacSha512 prf = new Pbkdf2HmacSha512(password);
+		byte[] derived = new byte[keyLength];
+		long[] u = new long[8];
+		long[] t = new long[8];
+		byte[] first = Arrays.copyOf(salt, salt.length + 4);
+		for (int block = 1, offset = 0; offset < keyLength; block++, offset += DIGEST_LENGTH) {
+			first[salt.length] = (byte) (block >>> 24);
+			first[salt.length + 1] = (byte) (block >>> 16);
+			first[salt.length + 2] = (byte) (block >>> 8);
+			first[salt.length + 3] = (byte) block;
+			prf.hmac(first, u);
+			System.arraycopy(u, 0, t, 0, 8);
+			for (int i = 1; i < iterations; i++) {
+				prf.hmac(u);
+				for (int j = 0; j < 8; j++) {
+					t[j] ^= u[j];
+				}
+			}
+			for (int i = 0; i < DIGEST_LENGTH && offset + i < keyLength; i++) {
+				derived[offset + i] = (byte) (t[i >>> 3] >>> (56 - ((i & 7) << 3)));
+			}
+		}
+		Arrays.fill(prf.innerPadState, 0);
+		Arrays.fill(prf.outerPadState, 0);
+		Arrays.fill(prf.state, 0);
+		Arrays.fill(prf.words, 0);
+		Arrays.fill(u, 0);
+		Arrays.fill(t, 0);
+		return derived;
+	}
+
+	/** HMAC of a message of any length, the first iteration. */
+	private void hmac(byte[] message, long[] mac) {
+		byte[] inner = digest(innerPadState, BLOCK_LENGTH, message, 0, message.length);
+		for (int i = 0; i < 8; i++) {
+			words[i] = bigEndian(inner, i << 3);
+		}
+		System.arraycopy(outerPadState, 0, state, 0, 8);
+		compressIterationBlock();
+		System.arraycopy(state, 0, mac, 0, 8);
+	}
+
+	/** HMAC of the previous HMAC, replaced in place. */
+	private void hmac(long[] mac) {
+		System.arraycopy(mac, 0, words, 0, 8);
+		System.arraycopy(innerPadState, 0, state, 0, 8);
+		compressIterationBlock();
+		System.arraycopy(state, 0, words, 0, 8);
+		System.arraycopy(outerPadState, 0, state, 0, 8);
+		compressIterationBlock();
+		System.arraycopy(state, 0, mac, 0, 8);
+	}
+
+	/** Pads the digest in words 0 to 7 and hashes it into the state. */
+	private void compressIterationBlock() {
+		words[8] = 0x8000000000000000L;
+		for (int i = 9; i < 15; i++) {
+			words[i] = 0;
+		}
+		words[15] = ITERATION_MESSAGE_BITS;
+		compress(state, words);
+	}
+
+	private static void padState(byte[] key, byte[] pad, byte padByte, long[] padState) {
+		Arrays.fill(pad, padByte);
+		for (int i = 0; i < key.length; i++) {
+			pad[i] ^= key[i];
+		}
+		long[] w = new long[80];
+		for (int i = 0; i < 16; i++) {
+			w[i] = bigEndian(pad, i << 3);
+		}
+		System.arraycopy(IV, 0, padState, 0, 8);
+		compress(padState, w);
+		Arrays.fill(pad, (byte) 0);
+		Arrays.fill(w, 0);
+	}
+
+	/**
+	 * SHA-512 of the data, starting from a state that has already hashed the
+	 * given number of bytes.
+	 */
+	private static byte[] digest(long[] startState, long hashedBytes, byte[] data, int offset, int length) {
+		long[] h = startState.clone();
+		long[] w = new long[80];
+		int end = offset + length;
+		int position = offset;
+		for (; end - position >= BLOCK_LENGTH; position += BLOCK_LENGTH) {
+			for (int i = 0; i < 16; i++) {
+				w[i] = bigEndian(data, position + (i << 3));
+			}
+			compress(h, w);
+		}
+		// the rest, 0x80, zeros and the 128 bit message length
+		int rest = end - position;
+		byte[] last = new byte[rest + 17 <= BLOCK_LENGTH ? BLOCK_LENGTH : 2 * BLOCK_LENGTH];
+		System.arraycopy(data, position, last, 0, rest);
+		last[rest] = (byte) 0x80;
+		long bits = (hashedBytes + length) * 8;
+		for (int i = 0; i < 8; i++) {
+			last[last.length - 1 - i] = (byte) (bits >>> (i << 3));
+		}
+		for (int block = 0; block < last.length; block += BLOCK_LENGTH) {
+			for (int i = 0; i < 16; i++) {
+				w[i] = bigEndian(last, block + (i << 3));
+			}
+			compress(h, w);
+		}
+		byte[] digest = new byte[DIGEST_LENGTH];
+		for (int i = 0; i < DIGEST_LENGTH; i++) {
+			digest[i] = (byte) (h[i >>> 3] >>> (56 - ((i & 7) << 3)));
+		}
+		Arrays.fill(last, (byte) 0);
+		return digest;
+	}
+
+	/** SHA-512 compression of the block in words 0 to 15 into the state. */
+	private static void compress(long[] h, long[] w) {
+		for (int i = 16; i < 80; i++) {
+			long s0 = Long.rotateRight(w[i - 15], 1) ^ Long.rotateRight(w[i - 15], 8) ^ (w[i - 15] >>> 7);
+			long s1 = Long.rotateRight(w[i - 2], 19) ^ Long.rotateRight(w[i - 2], 61) ^ (w[i - 2] >>> 6);
+			w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+		}
+		long a = h[0];
+		long b = h[1];
+		long c = h[2];
+		long d = h[3];
+		long e = h[4];
+		long f = h[5];
+		long g = h[6];
+		long hh = h[7];
+		for (int i = 0; i < 80; i++) {
+			long t1 = hh + (Long.rotateRight(e, 14) ^ Long.rotateRight(e, 18) ^ Long.rotateRight(e, 41))
+					+ ((e & f) ^ (~e & g)) + K[i] + w[i];
+			long t2 = (Long.rotateRight(a, 28) ^ Long.rotateRight(a, 34) ^ Long.rotateRight(a, 39))
+					+ ((a & b) ^ (a & c) ^ (b & c));
+			hh = g;
+			g = f;
+			f = e;
+			e = d + t1;
+			d = c;
+			c = b;
+			b = a;
+			a = t1 + t2;
+		}
+		h[0] += a;
+		h[1] += b;
+		h[2] += c;
+		h[3] += d;
+		h[4] += e;
+		h[5] += f;
+		h[6] += g;
+		h[7] += hh;
+	}
+
+	private static long bigEndian(byte[] data, int offset) {
+		return ((long) data[offset] << 56) | ((data[offset + 1] & 0xffL) << 48) | ((data[offset + 2] & 0xffL) << 40)
+				| ((data[offset + 3] & 0xffL) << 32) | ((data[offset + 4] & 0xffL) << 24)
+				| ((data[offset + 5] & 0xffL) << 16) | ((data[offset + 6] & 0xffL) << 8) | (data[offset + 7] & 0xffL);
+	}
+}
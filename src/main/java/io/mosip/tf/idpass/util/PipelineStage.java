@@ -0,0 +1,203 @@
+package io.mosip.tf.idpass.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * One stage of a staged (SEDA) pipeline: a fixed pool of threads fed by a
+ * bounded queue.
+ *
+ * Tasks are put straight on the queue of a pool whose threads are all
+ * started, so a full queue blocks the thread handing work over. Between
+ * stages this is the backpressure: an upstream stage slows down to the pace
+ * of the downstream one instead of piling work up in memory. Only the first
+ * stage of a pipeline is fed with {@link #trySubmit(StageTask)}, which refuses
+ * work when the queue is full.
+ *
+ * Publishes print.pipeline.queue (gauge), print.pipeline.wait and
+ * print.pipeline.latency (timers), tagged with the stage name.
+ */
+public class PipelineStage {
+
+	/** Work done by a stage, may throw. */
+	@FunctionalInterface
+	public interface StageTask<T> {
+		T call() throws Exception;
+	}
+
+	/** Work done by a stage on the result of the previous stage. */
+	@FunctionalInterface
+	public interface StageFunction<T, R> {
+		R apply(T input) throws Exception;
+	}
+
+	static final long SHUTDOWN_CHECK_MILLIS = 100;
+
+	private final String name;
+
+	private final ThreadPoolExecutor executor;
+
+	private final BlockingQueue<Runnable> queue;
+
+	private final Timer waitTimer;
+
+	private final Timer latencyTimer;
+
+	public PipelineStage(String name, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+		this(name, new ArrayBlockingQueue<>(queueCapacity), threads, meterRegistry);
+		Gauge.builder("print.pipeline.queue", queue, BlockingQueue::size).tag("stage", name)
+				.description("tasks waiting for the stage").register(meterRegistry);
+	}
+
+	/**
+	 * Stage without a pool, for subclasses that run tasks their own way and
+	 * override {@link #submit(StageTask)}, {@link #trySubmit(StageTask)} and
+	 * {@link #shutdown(long, TimeUnit)}.
+	 */
+	protected PipelineStage(String name, MeterRegistry meterRegistry) {
+		this(name, null, 0, meterRegistry);
+	}
+
+	private PipelineStage(String name, BlockingQueue<Runnable> queue, int threads, MeterRegistry meterRegistry) {
+		this.name = name;
+		this.queue = queue;
+		if (queue != null) {
+			this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue,
+					new CustomizableThreadFactory("print-" + name + "-"));
+			this.executor.prestartAllCoreThreads();
+		} else {
+			this.executor = null;
+		}
+		this.waitTimer = Timer.builder("print.pipeline.wait").tag("stage", name)
+				.description("time a task waited in the stage queue").register(meterRegistry);
+		this.latencyTimer = Timer.builder("print.pipeline.latency").tag("stage", name)
+				.description("time the stage spent on a task").register(meterRegistry);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Queue the task, waiting for room in the queue. The returned future fails
+	 * with RejectedExecutionException if the stage is shut down.
+	 */
+	public <T> CompletableFuture<T> submit(StageTask<T> task) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		QueuedTask<T> queued = wrap(task, result);
+		try {
+			// the wait is cut short to notice a shutdown while the queue stays full
+			do {
+				if (executor.isShutdown()) {
+					queued.reject();
+					return result;
+				}
+			} while (!queue.offer(queued, SHUTDOWN_CHECK_MILLIS, TimeUnit.MILLISECONDS));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			result.completeExceptionally(e);
+			return result;
+		}
+		// queued while the stage stopped, no thread may be left to take it
+		if (executor.isShutdown() && queue.remove(queued)) {
+			queued.reject();
+		}
+		return result;
+	}
+
+	/**
+	 * Queue the task if there is room.
+	 *
+	 * @throws RejectedExecutionException if the queue is full or the stage is
+	 *                                    shut down
+	 */
+	public <T> CompletableFuture<T> trySubmit(StageTask<T> task) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		if (executor.isShutdown() || !queue.offer(wrap(task, result))) {
+			throw new RejectedExecutionException("stage " + name + " is full");
+		}
+		return result;
+	}
+
+	/**
+	 * Run the function on this stage once the previous stage has completed.
+	 */
+	public <T, R> CompletableFuture<R> then(CompletableFuture<T> previous, StageFunction<T, R> function) {
+		return previous.thenCompose(input -> submit(() -> function.apply(input)));
+	}
+
+	private <T> QueuedTask<T> wrap(StageTask<T> task, CompletableFuture<T> result) {
+		return new QueuedTask<>(task, result);
+	}
+
+	/**
+	 * Runs the task on the calling thread and completes the result, recording
+	 * the time since queuedAt as the wait of the task.
+	 */
+	protected <T> void run(StageTask<T> task, CompletableFuture<T> result, long queuedAt) {
+		long start = System.nanoTime();
+		waitTimer.record(start - queuedAt, TimeUnit.NANOSECONDS);
+		try {
+			result.complete(task.call());
+		} catch (Exception | Error e) {
+			result.completeExceptionally(e);
+		} finally {
+			latencyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/** Fails the result of a task the stage will not run. */
+	protected void reject(CompletableFuture<?> result) {
+		result.completeExceptionally(new RejectedExecutionException("stage " + name + " is shut down"));
+	}
+
+	/** A task on the queue and the future its result completes. */
+	private final class QueuedTask<T> implements Runnable {
+
+		private final StageTask<T> task;
+
+		private final CompletableFuture<T> result;
+
+		private final long queuedAt = System.nanoTime();
+
+		private QueuedTask(StageTask<T> task, CompletableFuture<T> result) {
+			this.task = task;
+			this.result = result;
+		}
+
+		@Override
+		public void run() {
+			PipelineStage.this.run(task, result, queuedAt);
+		}
+
+		private void reject() {
+			PipelineStage.this.reject(result);
+		}
+	}
+
+	/**
+	 * Stop taking work and wait for the queued tasks.
+	 *
+	 * @return false if the stage did not drain in time
+	 */
+	public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+		executor.shutdown();
+		if (!executor.awaitTermination(timeout, unit)) {
+			for (Runnable dropped : executor.shutdownNow()) {
+				((QueuedTask<?>) dropped).reject();
+			}
+			return false;
+		}
+		return true;
+	}
+}
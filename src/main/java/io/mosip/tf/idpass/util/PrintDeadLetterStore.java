@@ -0,0 +1,126 @@
+package io.mosip.tf.idpass.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.mosip.tf.idpass.exception.PrintDeadLetterException;
+import io.mosip.tf.idpass.logger.PrintLogger;
+import io.mosip.tf.idpass.model.DeadLetter;
+
+/**
+ * Directory of print events that failed for good, one JSON file per event,
+ * kept until an admin re-drives them. File names start with the time of the
+ * failure, so listing them by name gives the oldest first.
+ *
+ * Publishes print.dead-letter.size (gauge).
+ */
+@Component
+public class PrintDeadLetterStore {
+
+	private Logger printLogger = PrintLogger.getLogger(PrintDeadLetterStore.class);
+
+	private static final String SUFFIX = ".json";
+
+	@Autowired
+	private ObjectMapper mapper;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${mosip.print.retry.dead-letter-dir:print-dead-letter}")
+	private String dir;
+
+	private File directory;
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	@PostConstruct
+	public void init() {
+		directory = new File(dir);
+		Gauge.builder("print.dead-letter.size", this, PrintDeadLetterStore::size)
+				.description("failed print events waiting to be re-driven").register(meterRegistry);
+	}
+
+	/**
+	 * Write the dead letter, durably: the file is written next to its final name
+	 * and moved into place.
+	 *
+	 * @throws PrintDeadLetterException if it could not be written
+	 */
+	public void store(DeadLetter deadLetter) {
+		String eventId = deadLetter.getEventModel().getEvent() != null
+				? deadLetter.getEventModel().getEvent().getId()
+				: null;
+		String name = String.format("%013d-%06d-%s%s", System.currentTimeMillis(),
+				sequence.incrementAndGet() % 1000000, sanitize(eventId), SUFFIX);
+		File file = new File(directory, name);
+		File temp = new File(directory, name + ".tmp");
+		try {
+			Files.createDirectories(directory.toPath());
+			Files.write(temp.toPath(), mapper.writeValueAsBytes(deadLetter));
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			temp.delete();
+			throw new PrintDeadLetterException("could not write dead letter " + file.getAbsolutePath(), e);
+		}
+		printLogger.warn("event id: {} moved to the dead letter directory as {}", eventId, name);
+	}
+
+	/**
+	 * Names of the dead letters, oldest first.
+	 *
+	 * @param limit most names returned
+	 */
+	public List<String> list(int limit) {
+		String[] names = directory.list((d, name) -> name.endsWith(SUFFIX));
+		if (names == null) {
+			return Collections.emptyList();
+		}
+		Arrays.sort(names);
+		return new ArrayList<>(Arrays.asList(names).subList(0, Math.min(limit, names.length)));
+	}
+
+	/**
+	 * @throws PrintDeadLetterException if it could not be read
+	 */
+	public DeadLetter read(String name) {
+		try {
+			return mapper.readValue(new File(directory, name), DeadLetter.class);
+		} catch (IOException e) {
+			throw new PrintDeadLetterException("could not read dead letter " + name, e);
+		}
+	}
+
+	public void remove(String name) {
+		if (!new File(directory, name).delete()) {
+			printLogger.warn("dead letter {} could not be deleted", name);
+		}
+	}
+
+	public int size() {
+		String[] names = directory.list((d, name) -> name.endsWith(SUFFIX));
+		return names == null ? 0 : names.length;
+	}
+
+	private static String sanitize(String eventId) {
+		return eventId == null ? "unknown" : eventId.replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+}
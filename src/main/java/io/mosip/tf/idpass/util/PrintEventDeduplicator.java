@@ -0,0 +1,357 @@
+package io.mosip.tf.idpass.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.mosip.tf.idpass.logger.PrintLogger;
+import io.mosip.tf.idpass.model.EventModel;
+
+/**
+ * Drops websub redeliveries of events that have already been printed.
+ *
+ * Printed event ids are kept in a bounded set and forgotten after the
+ * configured ttl. When a bloom file is configured the ids are also added to a
+ * bloom filter that is saved periodically and reloaded on startup, so a
+ * redelivery is still recognised after a restart. The filter is kept in two
+ * generations: once the current one has taken its expected number of ids it
+ * becomes the previous one and a fresh filter is started.
+ *
+ * The bloom filter trades lost prints for memory: an event id it reports
+ * that the in-memory set does not hold is skipped as well, although it may
+ * be a new event hit by a false positive (bloom-false-positive-probability
+ * per event once the filter is full). Those skips are counted apart as
+ * print.dedup.bloom-only and logged at warn, so a lost card can be found and
+ * re-sent.
+ *
+ * A redelivery that arrives while the first delivery is still being printed
+ * waits for that print and returns its result instead of starting a second
+ * one. Only successful prints are remembered, a failed event can be printed
+ * again.
+ */
+@Component
+public class PrintEventDeduplicator {
+
+	private Logger printLogger = PrintLogger.getLogger(PrintEventDeduplicator.class);
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${mosip.print.dedup.enabled:true}")
+	private boolean enabled;
+
+	@Value("${mosip.print.dedup.ttl-minutes:60}")
+	private long ttlMinutes;
+
+	@Value("${mosip.print.dedup.max-entries:100000}")
+	private int maxEntries;
+
+	/** Empty to keep dedup in memory only. */
+	@Value("${mosip.print.dedup.bloom-file:}")
+	private String bloomFile;
+
+	@Value("${mosip.print.dedup.bloom-expected-insertions:1000000}")
+	private long bloomExpectedInsertions;
+
+	@Value("${mosip.print.dedup.bloom-false-positive-probability:0.0001}")
+	private double bloomFalsePositiveProbability;
+
+	/** event id to expiry, System.nanoTime() based. */
+	private final ConcurrentHashMap<String, Long> printed = new ConcurrentHashMap<>();
+
+	/** Same entries in insertion order, which is also expiry order. */
+	private final ConcurrentLinkedQueue<Entry> expiryOrder = new ConcurrentLinkedQueue<>();
+
+	private final ConcurrentHashMap<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+	private final AtomicInteger bloomChanges = new AtomicInteger();
+
+	private volatile BloomFilter currentBloom;
+
+	private volatile BloomFilter previousBloom;
+
+	private Counter duplicateCounter;
+
+	private Counter attachedCounter;
+
+	private Counter bloomOnlyCounter;
+
+	@PostConstruct
+	public void init() {
+		if (!enabled) {
+			return;
+		}
+		duplicateCounter = Counter.builder("print.dedup.duplicates")
+				.description("redelivered events skipped because they were already printed").register(meterRegistry);
+		attachedCounter = Counter.builder("print.dedup.attached")
+				.description("redelivered events that waited for the running print").register(meterRegistry);
+		bloomOnlyCounter = Counter.builder("print.dedup.bloom-only")
+				.description("events skipped on a bloom filter match the in-memory set does not confirm")
+				.register(meterRegistry);
+		Gauge.builder("print.dedup.size", printed, ConcurrentHashMap::size)
+				.description("printed event ids remembered in memory").register(meterRegistry);
+		if (!bloomFile.isEmpty()) {
+			loadBloom();
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Whether the event has already been printed or is being printed right now.
+	 *
+	 * @param eventModel
+	 * @return true for a redelivery
+	 */
+	public boolean isDuplicate(EventModel eventModel) {
+		String key = key(eventModel);
+		if (!enabled || key == null) {
+			return false;
+		}
+		if (inFlight.containsKey(key)) {
+			duplicateCounter.increment();
+			printLogger.info("event id: {} is being printed, redelivery skipped", key);
+			return true;
+		}
+		return isPrinted(key);
+	}
+
+	/**
+	 * Run the print for the event unless it is a redelivery. A redelivery of a
+	 * printed event returns true straight away, one of an event being printed
+	 * waits for that print.
+	 *
+	 * @param eventModel
+	 * @param print      the actual print
+	 * @return the print status
+	 * @throws Exception thrown by the print
+	 */
+	public boolean execute(EventModel eventModel, Callable<Boolean> print) throws Exception {
+		String key = key(eventModel);
+		if (!enabled || key == null) {
+			return print.call();
+		}
+		if (isPrinted(key)) {
+			return true;
+		}
+		CompletableFuture<Boolean> own = new CompletableFuture<>();
+		CompletableFuture<Boolean> running = inFlight.putIfAbsent(key, own);
+		if (running != null) {
+			attachedCounter.increment();
+			printLogger.info("event id: {} is being printed, waiting for the running print", key);
+			try {
+				return running.get();
+			} catch (ExecutionException e) {
+				throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+			}
+		}
+		try {
+			boolean isPrinted = print.call();
+			if (isPrinted) {
+				remember(key);
+			}
+			own.complete(isPrinted);
+			return isPrinted;
+		} catch (Exception | Error e) {
+			own.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, own);
+		}
+	}
+
+	/**
+	 * Asynchronous form of {@link #execute(EventModel, Callable)} for prints that
+	 * return a future.
+	 *
+	 * @param eventModel
+	 * @param print      starts the actual print
+	 * @return completes with the print status
+	 */
+	public CompletableFuture<Boolean> executeAsync(EventModel eventModel,
+			Supplier<CompletableFuture<Boolean>> print) {
+		String key = key(eventModel);
+		if (!enabled || key == null) {
+			return print.get();
+		}
+		if (isPrinted(key)) {
+			return CompletableFuture.completedFuture(true);
+		}
+		CompletableFuture<Boolean> own = new CompletableFuture<>();
+		CompletableFuture<Boolean> running = inFlight.putIfAbsent(key, own);
+		if (running != null) {
+			attachedCounter.increment();
+			printLogger.info("event id: {} is being printed, waiting for the running print", key);
+			return running;
+		}
+		CompletableFuture<Boolean> result;
+		try {
+			result = print.get();
+		} catch (RuntimeException | Error e) {
+			inFlight.remove(key, own);
+			own.completeExceptionally(e);
+			throw e;
+		}
+		result.whenComplete((isPrinted, e) -> {
+			if (e == null && isPrinted) {
+				remember(key);
+			}
+			inFlight.remove(key, own);
+			if (e != null) {
+				own.completeExceptionally(e);
+			} else {
+				own.complete(isPrinted);
+			}
+		});
+		return own;
+	}
+
+	/**
+	 * Whether the event has been printed, counting and logging the redelivery
+	 * skipped if so.
+	 */
+	private boolean isPrinted(String key) {
+		Long expiry = printed.get(key);
+		if (expiry != null && expiry - System.nanoTime() > 0) {
+			duplicateCounter.increment();
+			printLogger.info("event id: {} already printed, redelivery skipped", key);
+			return true;
+		}
+		BloomFilter current = currentBloom;
+		BloomFilter previous = previousBloom;
+		if ((current != null && current.mightContain(key)) || (previous != null && previous.mightContain(key))) {
+			// a redelivery from before the ttl or a restart, or a new event lost to a false positive
+			bloomOnlyCounter.increment();
+			printLogger.warn("event id: {} skipped on a bloom filter match alone, re-send it if it was never printed",
+					key);
+			return true;
+		}
+		return false;
+	}
+
+	private void remember(String key) {
+		long now = System.nanoTime();
+		long expiry = now + TimeUnit.MINUTES.toNanos(ttlMinutes);
+		printed.put(key, expiry);
+		expiryOrder.add(new Entry(key, expiry));
+		Entry head;
+		while ((head = expiryOrder.peek()) != null && (printed.size() > maxEntries || head.expiry - now <= 0)) {
+			if (expiryOrder.remove(head)) {
+				printed.remove(head.key, head.expiry);
+			}
+		}
+		BloomFilter current = currentBloom;
+		if (current != null) {
+			current.put(key);
+			bloomChanges.incrementAndGet();
+			if (current.getInsertions() >= bloomExpectedInsertions) {
+				rotateBloom(current);
+			}
+		}
+	}
+
+	private synchronized void rotateBloom(BloomFilter full) {
+		if (currentBloom == full) {
+			previousBloom = full;
+			currentBloom = BloomFilter.create(bloomExpectedInsertions, bloomFalsePositiveProbability);
+		}
+	}
+
+	private String key(EventModel eventModel) {
+		if (eventModel == null || eventModel.getEvent() == null) {
+			return null;
+		}
+		String id = eventModel.getEvent().getId();
+		return id != null ? id : eventModel.getEvent().getTransactionId();
+	}
+
+	private void loadBloom() {
+		File file = new File(bloomFile);
+		if (file.isFile()) {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+				currentBloom = BloomFilter.readFrom(in);
+				if (in.readBoolean()) {
+					previousBloom = BloomFilter.readFrom(in);
+				}
+				printLogger.info("dedup bloom filter loaded from {}", file.getAbsolutePath());
+				return;
+			} catch (IOException e) {
+				printLogger.error("could not read dedup bloom file " + file.getAbsolutePath() + ", starting empty", e);
+			}
+		}
+		currentBloom = BloomFilter.create(bloomExpectedInsertions, bloomFalsePositiveProbability);
+	}
+
+	/**
+	 * Saves the bloom filter if ids were added since the last save. The file is
+	 * written next to the target and moved into place.
+	 */
+	@Scheduled(fixedDelayString = "${mosip.print.dedup.bloom-save-interval-millis:60000}")
+	public synchronized void saveBloom() {
+		if (currentBloom == null || bloomChanges.getAndSet(0) == 0) {
+			return;
+		}
+		File file = new File(bloomFile);
+		File temp = new File(file.getAbsolutePath() + ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				currentBloom.writeTo(out);
+				out.writeBoolean(previousBloom != null);
+				if (previousBloom != null) {
+					previousBloom.writeTo(out);
+				}
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			bloomChanges.incrementAndGet();
+			printLogger.error("could not save dedup bloom file " + file.getAbsolutePath(), e);
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		saveBloom();
+	}
+
+	private static class Entry {
+
+		private final String key;
+
+		private final long expiry;
+
+		private Entry(String key, long expiry) {
+			this.key = key;
+			this.expiry = expiry;
+		}
+	}
+}
@@ -0,0 +1,431 @@
+package io.mosip.tf.idpass.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.mosip.tf.idpass.exception.PrintJournalException;
+import io.mosip.tf.idpass.logger.PrintLogger;
+import io.mosip.tf.idpass.model.EventModel;
+import io.mosip.tf.idpass.model.PrintJob;
+
+/**
+ * Append-only write-ahead journal of the print events accepted by the
+ * callback.
+ *
+ * The journal is a directory of memory-mapped segment files. Every accepted
+ * event is written as an ACCEPTED record and the caller waits until the record
+ * has been forced to disk before the websub delivery is acknowledged. Forcing
+ * is done by a single flusher thread, so all the records appended while a
+ * force is running are made durable by the next one (group commit). Once a
+ * card is printed, or its credential is rejected, a DONE record is appended
+ * for the event.
+ *
+ * On startup the segments are scanned and the events without a DONE record
+ * are handed back for replay. A segment is deleted as soon as it and every
+ * older segment no longer hold an unfinished event.
+ *
+ * Record layout: length(int) type(byte) id(long) payload crc32(int), where
+ * length covers type, id and payload. The length is written last, so a torn
+ * record reads back as the end of the segment.
+ */
+@Component
+public class PrintEventJournal {
+
+	private Logger printLogger = PrintLogger.getLogger(PrintEventJournal.class);
+
+	private static final byte ACCEPTED = 1;
+
+	private static final byte DONE = 2;
+
+	/** type and id. */
+	private static final int RECORD_HEADER = 1 + 8;
+
+	/** length and crc. */
+	private static final int RECORD_OVERHEAD = 4 + 4;
+
+	private static final String SEGMENT_PREFIX = "journal-";
+
+	private static final String SEGMENT_SUFFIX = ".seg";
+
+	@Autowired
+	private ObjectMapper mapper;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${mosip.print.journal.enabled:false}")
+	private boolean enabled;
+
+	@Value("${mosip.print.journal.dir:print-journal}")
+	private String directory;
+
+	@Value("${mosip.print.journal.segment-size-mb:64}")
+	private int segmentSizeMb;
+
+	/** How long the flusher waits for more records before forcing. */
+	@Value("${mosip.print.journal.group-commit-millis:2}")
+	private long groupCommitMillis;
+
+	/** Guards every field below. */
+	private final Object lock = new Object();
+
+	private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+	private final Map<Long, Segment> pending = new HashMap<>();
+
+	private final Set<Segment> dirty = new LinkedHashSet<>();
+
+	private Segment active;
+
+	private long nextSegmentNumber;
+
+	private long nextId = 1;
+
+	private long appendedSeq;
+
+	private long flushedSeq;
+
+	private boolean running;
+
+	private List<PrintJob> recovered = new ArrayList<>();
+
+	private Thread flusher;
+
+	private Timer forceTimer;
+
+	private DistributionSummary groupSize;
+
+	@PostConstruct
+	public void init() throws IOException {
+		if (!enabled) {
+			return;
+		}
+		File dir = new File(directory);
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new PrintJournalException("cannot create journal directory " + dir.getAbsolutePath());
+		}
+		forceTimer = Timer.builder("print.journal.force").description("time to force a journal group to disk")
+				.register(meterRegistry);
+		groupSize = DistributionSummary.builder("print.journal.group.size")
+				.description("records made durable by one force").register(meterRegistry);
+		recover(dir);
+		synchronized (lock) {
+			active = newSegment(segmentSize());
+			running = true;
+			compact();
+		}
+		flusher = new Thread(this::flushLoop, "print-journal-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+		printLogger.info("print journal opened in {} with {} events to replay", dir.getAbsolutePath(),
+				recovered.size());
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Events accepted before the last shutdown that were never printed. The list
+	 * is handed out once.
+	 *
+	 * @return the jobs to replay
+	 */
+	public List<PrintJob> drainRecovered() {
+		synchronized (lock) {
+			List<PrintJob> jobs = recovered;
+			recovered = new ArrayList<>();
+			return jobs;
+		}
+	}
+
+	/**
+	 * Write the event to the journal and wait until it is on disk.
+	 *
+	 * @param eventModel
+	 * @return the journal id to pass to {@link #markDone(long)}
+	 */
+	public long append(EventModel eventModel) {
+		byte[] payload;
+		try {
+			payload = mapper.writeValueAsBytes(eventModel);
+		} catch (IOException e) {
+			throw new PrintJournalException("cannot serialize event for the journal", e);
+		}
+		long id;
+		long seq;
+		synchronized (lock) {
+			id = nextId++;
+			Segment segment = write(ACCEPTED, id, payload);
+			segment.pendingCount++;
+			pending.put(id, segment);
+			seq = appendedSeq;
+		}
+		awaitDurable(seq);
+		return id;
+	}
+
+	/**
+	 * Record that the event has been printed or rejected. The DONE record is not
+	 * waited for: if it is lost in a crash the event is processed once more on
+	 * replay.
+	 *
+	 * @param id the journal id returned by {@link #append(EventModel)}
+	 */
+	public void markDone(long id) {
+		synchronized (lock) {
+			if (!running) {
+				return;
+			}
+			Segment segment = pending.remove(id);
+			if (segment == null) {
+				return;
+			}
+			write(DONE, id, new byte[0]);
+			segment.pendingCount--;
+			compact();
+		}
+	}
+
+	private Segment write(byte type, long id, byte[] payload) {
+		if (!running) {
+			throw new PrintJournalException("print journal is closed");
+		}
+		int length = RECORD_HEADER + payload.length;
+		int recordSize = length + RECORD_OVERHEAD;
+		if (active.buffer.capacity() - active.writePosition < recordSize) {
+			active = newSegment(Math.max(segmentSize(), recordSize + 4));
+		}
+		CRC32 crc = new CRC32();
+		ByteBuffer body = ByteBuffer.allocate(length);
+		body.put(type).putLong(id).put(payload);
+		crc.update(body.array(), 0, length);
+
+		int position = active.writePosition;
+		ByteBuffer target = active.buffer.duplicate();
+		target.position(position + 4);
+		target.put(body.array());
+		target.putInt((int) crc.getValue());
+		active.buffer.putInt(position, length);
+		active.writePosition = position + recordSize;
+		dirty.add(active);
+		appendedSeq++;
+		lock.notifyAll();
+		return active;
+	}
+
+	private void awaitDurable(long seq) {
+		synchronized (lock) {
+			while (flushedSeq < seq) {
+				if (!running) {
+					throw new PrintJournalException("print journal closed before the event was made durable");
+				}
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new PrintJournalException("interrupted while waiting for the journal", e);
+				}
+			}
+		}
+	}
+
+	private void flushLoop() {
+		while (true) {
+			long target;
+			List<Segment> toForce;
+			try {
+				synchronized (lock) {
+					while (running && appendedSeq == flushedSeq) {
+						lock.wait();
+					}
+					if (!running && appendedSeq == flushedSeq) {
+						return;
+					}
+				}
+				if (groupCommitMillis > 0) {
+					Thread.sleep(groupCommitMillis);
+				}
+				synchronized (lock) {
+					target = appendedSeq;
+					toForce = new ArrayList<>(dirty);
+					dirty.clear();
+				}
+				long start = System.nanoTime();
+				for (Segment segment : toForce) {
+					segment.buffer.force();
+				}
+				forceTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+				synchronized (lock) {
+					groupSize.record(target - flushedSeq);
+					flushedSeq = target;
+					lock.notifyAll();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/** Deletes the oldest segments once nothing in them is waiting to be printed. */
+	private void compact() {
+		while (segments.size() > 1 && segments.peekFirst().pendingCount == 0) {
+			Segment segment = segments.pollFirst();
+			dirty.remove(segment);
+			if (!segment.file.delete()) {
+				printLogger.warn("could not delete journal segment {}", segment.file);
+			}
+		}
+	}
+
+	private void recover(File dir) throws IOException {
+		File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files);
+		Map<Long, byte[]> accepted = new LinkedHashMap<>();
+		Map<Long, Segment> owner = new HashMap<>();
+		for (File file : files) {
+			Segment segment = openSegment(file);
+			segments.addLast(segment);
+			nextSegmentNumber = Math.max(nextSegmentNumber, segmentNumber(file) + 1);
+			scan(segment, accepted, owner);
+		}
+		for (Map.Entry<Long, byte[]> entry : accepted.entrySet()) {
+			Segment segment = owner.get(entry.getKey());
+			try {
+				EventModel eventModel = mapper.readValue(entry.getValue(), EventModel.class);
+				PrintJob job = new PrintJob(eventModel);
+				job.setJournalId(entry.getKey());
+				recovered.add(job);
+				segment.pendingCount++;
+				pending.put(entry.getKey(), segment);
+			} catch (IOException e) {
+				printLogger.error("dropping unreadable journal entry " + entry.getKey(), e);
+			}
+		}
+	}
+
+	private void scan(Segment segment, Map<Long, byte[]> accepted, Map<Long, Segment> owner) {
+		MappedByteBuffer buffer = segment.buffer;
+		int position = 0;
+		while (position + RECORD_OVERHEAD + RECORD_HEADER <= buffer.capacity()) {
+			int length = buffer.getInt(position);
+			if (length < RECORD_HEADER || position + length + RECORD_OVERHEAD > buffer.capacity()) {
+				break;
+			}
+			byte[] body = new byte[length];
+			ByteBuffer source = buffer.duplicate();
+			source.position(position + 4);
+			source.get(body);
+			CRC32 crc = new CRC32();
+			crc.update(body, 0, length);
+			if ((int) crc.getValue() != source.getInt()) {
+				printLogger.warn("torn record at offset {} in journal segment {}", position, segment.file);
+				break;
+			}
+			ByteBuffer record = ByteBuffer.wrap(body);
+			byte type = record.get();
+			long id = record.getLong();
+			nextId = Math.max(nextId, id + 1);
+			if (type == ACCEPTED) {
+				accepted.put(id, Arrays.copyOfRange(body, RECORD_HEADER, length));
+				owner.put(id, segment);
+			} else if (type == DONE) {
+				accepted.remove(id);
+				owner.remove(id);
+			}
+			position += length + RECORD_OVERHEAD;
+		}
+		segment.writePosition = position;
+	}
+
+	private Segment newSegment(long size) {
+		File file = new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, nextSegmentNumber++, SEGMENT_SUFFIX));
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+			Segment segment = new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+			segments.addLast(segment);
+			return segment;
+		} catch (IOException e) {
+			throw new PrintJournalException("cannot create journal segment " + file, e);
+		}
+	}
+
+	private Segment openSegment(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+			return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+		}
+	}
+
+	private long segmentNumber(File file) {
+		String name = file.getName();
+		return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	private long segmentSize() {
+		return segmentSizeMb * 1024L * 1024L;
+	}
+
+	@PreDestroy
+	public void close() throws InterruptedException {
+		if (flusher == null) {
+			return;
+		}
+		synchronized (lock) {
+			running = false;
+			lock.notifyAll();
+		}
+		flusher.join(TimeUnit.SECONDS.toMillis(10));
+		synchronized (lock) {
+			for (Segment segment : segments) {
+				segment.buffer.force();
+			}
+		}
+	}
+
+	private static class Segment {
+
+		private final File file;
+
+		private final MappedByteBuffer buffer;
+
+		private int writePosition;
+
+		private int pendingCount;
+
+		Segment(File file, MappedByteBuffer buffer) {
+			this.file = file;
+			this.buffer = buffer;
+		}
+	}
+}
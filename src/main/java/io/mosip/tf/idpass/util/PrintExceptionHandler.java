@@ -18,6 +18,7 @@ import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 
 import io.mosip.tf.idpass.controller.Print;
+import io.mosip.tf.idpass.controller.ReactivePrint;
 import io.mosip.tf.idpass.dto.ErrorDTO;
 import io.mosip.tf.idpass.dto.PrintResponse;
 import io.mosip.tf.idpass.exception.AccessDeniedException;
@@ -37,7 +38,7 @@ import io.mosip.tf.idpass.logger.PrintLogger;
  * 
  * @author M1048358 Alok
  */
-@RestControllerAdvice(assignableTypes = Print.class)
+@RestControllerAdvice(assignableTypes = { Print.class, ReactivePrint.class })
 public class PrintExceptionHandler {
 
 	/** The Constant REG_PACKET_GENERATOR_SERVICE_ID. */
@@ -0,0 +1,175 @@
+package io.mosip.tf.idpass.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.mosip.tf.idpass.logger.PrintLogger;
+
+/**
+ * Thread pools of the staged card generation pipeline:
+ * fetch, decrypt, verify, extract, render, sign and publish.
+ *
+ * The I/O bound stages (fetch, verify, render, sign, publish) get more
+ * threads than there are cores, the CPU bound ones (decrypt, extract) about
+ * one per core, so the cores stay busy while other cards wait on the network.
+ *
+ * With mosip.print.virtual-threads.enabled on a Java 21 runtime the I/O bound
+ * stages start a virtual thread per task instead, up to max-in-flight per
+ * stage, so thousands of cards can wait on slow services without as many OS
+ * threads. The CPU bound stages stay on platform threads. Virtual threads
+ * also switch the pipeline on.
+ */
+@Component
+public class PrintPipelineStages {
+
+	private Logger printLogger = PrintLogger.getLogger(PrintPipelineStages.class);
+
+	private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${mosip.print.pipeline.enabled:false}")
+	private boolean enabled;
+
+	@Value("${mosip.print.pipeline.queue-capacity:100}")
+	private int queueCapacity;
+
+	@Value("${mosip.print.pipeline.fetch.threads:8}")
+	private int fetchThreads;
+
+	@Value("${mosip.print.pipeline.decrypt.threads:0}")
+	private int decryptThreads;
+
+	@Value("${mosip.print.pipeline.verify.threads:8}")
+	private int verifyThreads;
+
+	@Value("${mosip.print.pipeline.extract.threads:0}")
+	private int extractThreads;
+
+	@Value("${mosip.print.pipeline.render.threads:8}")
+	private int renderThreads;
+
+	@Value("${mosip.print.pipeline.sign.threads:8}")
+	private int signThreads;
+
+	@Value("${mosip.print.pipeline.publish.threads:8}")
+	private int publishThreads;
+
+	@Value("${mosip.print.virtual-threads.enabled:false}")
+	private boolean virtualThreads;
+
+	/** Virtual threads running at once per I/O bound stage. */
+	@Value("${mosip.print.virtual-threads.max-in-flight:1000}")
+	private int virtualMaxInFlight;
+
+	@Value("${mosip.print.pipeline.shutdown-timeout-seconds:60}")
+	private int shutdownTimeoutSeconds;
+
+	private PipelineStage fetch;
+
+	private PipelineStage decrypt;
+
+	private PipelineStage verify;
+
+	private PipelineStage extract;
+
+	private PipelineStage render;
+
+	private PipelineStage sign;
+
+	private PipelineStage publish;
+
+	private final List<PipelineStage> stages = new ArrayList<>();
+
+	@PostConstruct
+	public void init() {
+		// the pipeline stays on when virtual threads fall back to platform threads
+		enabled = enabled || virtualThreads;
+		if (virtualThreads && !VirtualThreads.isSupported()) {
+			printLogger.warn("virtual threads need a Java 21 runtime, running on {}, using platform threads",
+					System.getProperty("java.version"));
+			virtualThreads = false;
+		}
+		if (!isEnabled()) {
+			return;
+		}
+		fetch = ioStage("fetch", fetchThreads);
+		decrypt = cpuStage("decrypt", decryptThreads > 0 ? decryptThreads : CORES);
+		verify = ioStage("verify", verifyThreads);
+		extract = cpuStage("extract", extractThreads > 0 ? extractThreads : CORES);
+		render = ioStage("render", renderThreads);
+		sign = ioStage("sign", signThreads);
+		publish = ioStage("publish", publishThreads);
+		printLogger.info("print pipeline started with stage queues of {}{}", queueCapacity,
+				virtualThreads ? ", I/O stages on virtual threads" : "");
+	}
+
+	private PipelineStage cpuStage(String name, int threads) {
+		PipelineStage stage = new PipelineStage(name, threads, queueCapacity, meterRegistry);
+		stages.add(stage);
+		return stage;
+	}
+
+	private PipelineStage ioStage(String name, int threads) {
+		if (!virtualThreads) {
+			return cpuStage(name, threads);
+		}
+		PipelineStage stage = new ThreadPerTaskStage(name, virtualMaxInFlight,
+				VirtualThreads.factory("print-" + name + "-"), meterRegistry);
+		stages.add(stage);
+		return stage;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public PipelineStage fetch() {
+		return fetch;
+	}
+
+	public PipelineStage decrypt() {
+		return decrypt;
+	}
+
+	public PipelineStage verify() {
+		return verify;
+	}
+
+	public PipelineStage extract() {
+		return extract;
+	}
+
+	public PipelineStage render() {
+		return render;
+	}
+
+	public PipelineStage sign() {
+		return sign;
+	}
+
+	public PipelineStage publish() {
+		return publish;
+	}
+
+	/** Stages are drained in pipeline order so work in flight can move on. */
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		for (PipelineStage stage : stages) {
+			if (!stage.shutdown(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+				printLogger.warn("print pipeline stage {} stopped before draining", stage.getName());
+			}
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package io.mosip.tf.idpass.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.mosip.tf.idpass.logger.PrintLogger;
+import io.mosip.tf.idpass.model.EventModel;
+
+/**
+ * Priority classes of the print queue.
+ *
+ * Lanes are configured as name:weight pairs, most urgent first. The lane of
+ * an event is named by the configured data attribute of the event when
+ * present, else looked up from its credentialType, else it is the default
+ * lane.
+ *
+ * Publishes print.lane.depth (gauge), print.lane.promoted (counter),
+ * print.lane.wait and print.lane.latency (timers with p50, p95 and p99),
+ * tagged with the lane name.
+ */
+@Component
+public class PrintPriorityLanes {
+
+	private Logger printLogger = PrintLogger.getLogger(PrintPriorityLanes.class);
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${mosip.print.priority.enabled:false}")
+	private boolean enabled;
+
+	/** name:weight, most urgent first. */
+	@Value("${mosip.print.priority.lanes:urgent:6,normal:3,bulk:1}")
+	private String lanesConfig;
+
+	@Value("${mosip.print.priority.default-lane:normal}")
+	private String defaultLaneName;
+
+	/** Event data attribute naming the lane of the event. */
+	@Value("${mosip.print.priority.attribute:printPriority}")
+	private String attribute;
+
+	/** credentialType:lane pairs. */
+	@Value("${mosip.print.priority.credential-types:}")
+	private String credentialTypesConfig;
+
+	/** 0 gives every lane the capacity of the print queue. */
+	@Value("${mosip.print.priority.lane-capacity:0}")
+	private int laneCapacity;
+
+	/** A task waiting longer than this is taken whatever its lane. */
+	@Value("${mosip.print.priority.max-wait-millis:30000}")
+	private long maxWaitMillis;
+
+	private final List<String> names = new ArrayList<>();
+
+	private int[] weights;
+
+	private int defaultLane;
+
+	private final Map<String, Integer> credentialTypes = new HashMap<>();
+
+	private Timer[] waitTimers;
+
+	private Timer[] latencyTimers;
+
+	@PostConstruct
+	public void init() {
+		if (!enabled) {
+			return;
+		}
+		String[] lanes = lanesConfig.split(",");
+		weights = new int[lanes.length];
+		for (int i = 0; i < lanes.length; i++) {
+			String[] lane = lanes[i].trim().split(":");
+			names.add(lane[0].trim());
+			weights[i] = lane.length > 1 ? Integer.parseInt(lane[1].trim()) : 1;
+		}
+		defaultLane = indexOf(defaultLaneName);
+		if (defaultLane < 0) {
+			throw new IllegalStateException("default print lane " + defaultLaneName + " is not one of " + names);
+		}
+		for (String pair : credentialTypesConfig.split(",")) {
+			if (pair.trim().isEmpty()) {
+				continue;
+			}
+			String[] mapping = pair.trim().split(":");
+			int lane = mapping.length > 1 ? indexOf(mapping[1].trim()) : -1;
+			if (lane < 0) {
+				throw new IllegalStateException("credential type mapping " + pair + " names no print lane");
+			}
+			credentialTypes.put(mapping[0].trim().toLowerCase(), lane);
+		}
+		waitTimers = new Timer[names.size()];
+		latencyTimers = new Timer[names.size()];
+		for (int i = 0; i < names.size(); i++) {
+			waitTimers[i] = Timer.builder("print.lane.wait").tag("lane", names.get(i))
+					.description("time a print job waited in its lane").publishPercentiles(0.5, 0.95, 0.99)
+					.register(meterRegistry);
+			latencyTimers[i] = Timer.builder("print.lane.latency").tag("lane", names.get(i))
+					.description("time from accepting a print job to its end").publishPercentiles(0.5, 0.95, 0.99)
+					.register(meterRegistry);
+		}
+		printLogger.info("print priority lanes {} with weights {}, default lane {}", names, Arrays.toString(weights),
+				defaultLaneName);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	private int indexOf(String name) {
+		for (int i = 0; i < names.size(); i++) {
+			if (names.get(i).equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Lane of the event.
+	 *
+	 * @param eventModel
+	 * @return index of the lane, 0 is the most urgent
+	 */
+	public int laneOf(EventModel eventModel) {
+		if (!enabled || eventModel.getEvent() == null || eventModel.getEvent().getData() == null) {
+			return defaultLane;
+		}
+		Map<String, Object> data = eventModel.getEvent().getData();
+		Object priority = data.get(attribute);
+		if (priority != null) {
+			int lane = indexOf(priority.toString());
+			if (lane >= 0) {
+				return lane;
+			}
+		}
+		Object credentialType = data.get("credentialType");
+		if (credentialType != null) {
+			Integer lane = credentialTypes.get(credentialType.toString().toLowerCase());
+			if (lane != null) {
+				return lane;
+			}
+		}
+		return defaultLane;
+	}
+
+	public String getName(int lane) {
+		return names.get(lane);
+	}
+
+	/**
+	 * Work queue with one lane per priority class. The gauges of the lanes
+	 * follow this queue.
+	 *
+	 * @param queueCapacity capacity of the print queue, used per lane unless a
+	 *                      lane capacity is configured
+	 */
+	public PriorityLaneQueue newQueue(int queueCapacity) {
+		int[] capacities = new int[names.size()];
+		Arrays.fill(capacities, laneCapacity > 0 ? laneCapacity : queueCapacity);
+		PriorityLaneQueue queue = new PriorityLaneQueue(weights, capacities, defaultLane, maxWaitMillis,
+				TimeUnit.MILLISECONDS);
+		for (int i = 0; i < names.size(); i++) {
+			int lane = i;
+			Gauge.builder("print.lane.depth", queue, q -> q.size(lane)).tag("lane", names.get(i))
+					.description("print jobs waiting in the lane").register(meterRegistry);
+			FunctionCounter.builder("print.lane.promoted", queue, q -> q.getPromotions(lane))
+					.tag("lane", names.get(i)).description("print jobs taken out of turn after waiting too long")
+					.register(meterRegistry);
+		}
+		return queue;
+	}
+
+	public void recordWait(int lane, long nanos) {
+		if (enabled) {
+			waitTimers[lane].record(nanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	public void recordLatency(int lane, long nanos) {
+		if (enabled) {
+			latencyTimers[lane].record(nanos, TimeUnit.NANOSECONDS);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package io.mosip.tf.idpass.util;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.mosip.tf.idpass.exception.ApisResourceAccessException;
+import io.mosip.tf.idpass.exception.DataShareException;
+import io.mosip.tf.idpass.exception.PDFSignatureException;
+import io.mosip.tf.idpass.logger.PrintLogger;
+import io.mosip.tf.idpass.model.PrintJob;
+
+/**
+ * Puts failed print jobs back on the queue after an exponential backoff.
+ *
+ * Failures of the services a card depends on (datashare, masterdata
+ * templates, PDFSIGN, network errors and 5xx responses) are retryable, any
+ * other failure is terminal. A template failure is only retried when it was
+ * caused by one of those, a template that does not merge stays broken. The n-th retry waits between half and all of
+ * initial-delay * multiplier^(n-1), capped at max-delay, the random part
+ * keeping retries of jobs that failed together apart.
+ *
+ * Waiting is done by the task scheduler, so no worker thread is held while a
+ * job waits for its retry.
+ */
+@Component
+public class PrintRetryScheduler {
+
+	private Logger printLogger = PrintLogger.getLogger(PrintRetryScheduler.class);
+
+	@Autowired
+	private TaskScheduler taskScheduler;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${mosip.print.retry.enabled:true}")
+	private boolean enabled;
+
+	/** Attempts including the first one. */
+	@Value("${mosip.print.retry.max-attempts:5}")
+	private int maxAttempts;
+
+	@Value("${mosip.print.retry.initial-delay-millis:2000}")
+	private long initialDelayMillis;
+
+	@Value("${mosip.print.retry.multiplier:2.0}")
+	private double multiplier;
+
+	@Value("${mosip.print.retry.max-delay-millis:300000}")
+	private long maxDelayMillis;
+
+	private final AtomicInteger pending = new AtomicInteger();
+
+	private Counter scheduledCounter;
+
+	private Counter exhaustedCounter;
+
+	@PostConstruct
+	public void init() {
+		scheduledCounter = Counter.builder("print.retry.scheduled").description("failed print jobs scheduled again")
+				.register(meterRegistry);
+		exhaustedCounter = Counter.builder("print.retry.exhausted")
+				.description("print jobs given up after the last attempt").register(meterRegistry);
+		Gauge.builder("print.retry.pending", pending, AtomicInteger::get)
+				.description("print jobs waiting for their retry").register(meterRegistry);
+	}
+
+	/**
+	 * Whether the failure may go away on its own.
+	 *
+	 * @param failure
+	 * @return true if the job is worth another attempt
+	 */
+	public boolean isRetryable(Throwable failure) {
+		for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ApisResourceAccessException || cause instanceof DataShareException
+					|| cause instanceof PDFSignatureException || cause instanceof ResourceAccessException
+					|| cause instanceof HttpServerErrorException) {
+				return true;
+			}
+			if (cause instanceof IOException && !(cause instanceof JsonProcessingException)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Schedule another attempt of a failed job.
+	 *
+	 * @param job        the failed job, its attempts made so far included
+	 * @param failure    why the last attempt failed
+	 * @param redispatch puts the job back on the queue
+	 * @return false if the failure is terminal or the job has no attempt left
+	 */
+	public boolean retry(PrintJob job, Throwable failure, Consumer<PrintJob> redispatch) {
+		if (!enabled || !isRetryable(failure)) {
+			return false;
+		}
+		if (job.getAttempts() >= maxAttempts) {
+			exhaustedCounter.increment();
+			return false;
+		}
+		long delay = backoff(job.getAttempts());
+		printLogger.info("event id: {} failed attempt {}, retrying in {} ms", job.getEventId(), job.getAttempts(),
+				delay);
+		scheduledCounter.increment();
+		schedule(job, delay, redispatch);
+		return true;
+	}
+
+	/**
+	 * Put a job back on the queue later without counting an attempt, used when
+	 * the queue was full.
+	 */
+	public void requeue(PrintJob job, long delayMillis, Consumer<PrintJob> redispatch) {
+		schedule(job, delayMillis, redispatch);
+	}
+
+	private void schedule(PrintJob job, long delayMillis, Consumer<PrintJob> redispatch) {
+		pending.incrementAndGet();
+		taskScheduler.schedule(() -> {
+			pending.decrementAndGet();
+			redispatch.accept(job);
+		}, new Date(System.currentTimeMillis() + delayMillis));
+	}
+
+	/**
+	 * Delay before the retry following the given attempt, with equal jitter.
+	 *
+	 * @param attempt attempts made, from 1
+	 * @return the delay in milliseconds
+	 */
+	public long backoff(int attempt) {
+		double exponential = initialDelayMillis * Math.pow(multiplier, Math.max(attempt - 1, 0));
+		long capped = (long) Math.min(exponential, maxDelayMillis);
+		long half = capped / 2;
+		return half + ThreadLocalRandom.current().nextLong(capped - half + 1);
+	}
+}
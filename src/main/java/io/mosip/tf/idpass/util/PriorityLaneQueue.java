@@ -0,0 +1,380 @@
+package io.mosip.tf.idpass.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Work queue made of one bounded lane per priority class, for a
+ * ThreadPoolExecutor.
+ *
+ * Lanes are served by smooth weighted round robin: with weights 6, 3 and 1
+ * and all lanes busy, six tasks of the first lane are taken for every three
+ * of the second and one of the third, interleaved rather than in bursts. An
+ * idle lane gives its share to the busy ones. A task that has waited longer
+ * than the maximum wait is taken before anything else, so a low weight lane
+ * slows down under load but never stops.
+ *
+ * Tasks implementing {@link Laned} go to their lane, any other task goes to
+ * the default lane. Each lane has its own capacity, a full lane refuses tasks
+ * while the other lanes still take them.
+ */
+public class PriorityLaneQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+	/** A task that knows its lane. */
+	public interface Laned {
+
+		/** Index of the lane, 0 based. */
+		int getLane();
+
+		/** System.nanoTime() at which the task was created. */
+		long getEnqueuedAt();
+	}
+
+	private final ArrayDeque<Runnable>[] lanes;
+
+	private final int[] capacities;
+
+	private final int[] weights;
+
+	/** Running weights of the round robin. */
+	private final long[] current;
+
+	private final int defaultLane;
+
+	private final long maxWaitNanos;
+
+	/** Tasks taken out of turn because they waited too long, per lane. */
+	private final AtomicLongArray promotions;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition notEmpty = lock.newCondition();
+
+	private final Condition notFull = lock.newCondition();
+
+	private int count;
+
+	@SuppressWarnings("unchecked")
+	public PriorityLaneQueue(int[] weights, int[] capacities, int defaultLane, long maxWait, TimeUnit unit) {
+		if (weights.length == 0 || weights.length != capacities.length) {
+			throw new IllegalArgumentException("one weight and one capacity per lane expected");
+		}
+		if (defaultLane < 0 || defaultLane >= weights.length) {
+			throw new IllegalArgumentException("default lane " + defaultLane + " does not exist");
+		}
+		this.lanes = new ArrayDeque[weights.length];
+		for (int i = 0; i < lanes.length; i++) {
+			if (weights[i] <= 0 || capacities[i] <= 0) {
+				throw new IllegalArgumentException("lane weights and capacities must be positive");
+			}
+			lanes[i] = new ArrayDeque<>();
+		}
+		this.weights = weights.clone();
+		this.capacities = capacities.clone();
+		this.current = new long[weights.length];
+		this.defaultLane = defaultLane;
+		this.maxWaitNanos = unit.toNanos(maxWait);
+		this.promotions = new AtomicLongArray(weights.length);
+	}
+
+	public int getLaneCount() {
+		return lanes.length;
+	}
+
+	/** Tasks waiting in the lane. */
+	public int size(int lane) {
+		lock.lock();
+		try {
+			return lanes[lane].size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Tasks of the lane taken out of turn because they waited too long. */
+	public long getPromotions(int lane) {
+		return promotions.get(lane);
+	}
+
+	private int laneOf(Runnable task) {
+		if (task instanceof Laned) {
+			int lane = ((Laned) task).getLane();
+			if (lane >= 0 && lane < lanes.length) {
+				return lane;
+			}
+		}
+		return defaultLane;
+	}
+
+	private void enqueue(int lane, Runnable task) {
+		lanes[lane].addLast(task);
+		count++;
+		notEmpty.signal();
+	}
+
+	private Runnable dequeue() {
+		int lane = select();
+		Runnable task = lanes[lane].pollFirst();
+		count--;
+		notFull.signalAll();
+		return task;
+	}
+
+	/** Picks the lane to serve next, count must be positive. */
+	private int select() {
+		long now = System.nanoTime();
+		int starved = -1;
+		long longestWait = maxWaitNanos;
+		for (int i = 0; i < lanes.length; i++) {
+			Runnable head = lanes[i].peekFirst();
+			if (head instanceof Laned) {
+				long waited = now - ((Laned) head).getEnqueuedAt();
+				if (waited > longestWait) {
+					starved = i;
+					longestWait = waited;
+				}
+			}
+		}
+		if (starved >= 0) {
+			promotions.incrementAndGet(starved);
+			return starved;
+		}
+		int best = -1;
+		long total = 0;
+		for (int i = 0; i < lanes.length; i++) {
+			if (lanes[i].isEmpty()) {
+				// an idle lane does not bank turns for later
+				current[i] = 0;
+				continue;
+			}
+			current[i] += weights[i];
+			total += weights[i];
+			if (best < 0 || current[i] > current[best]) {
+				best = i;
+			}
+		}
+		current[best] -= total;
+		return best;
+	}
+
+	@Override
+	public boolean offer(Runnable task) {
+		if (task == null) {
+			throw new NullPointerException();
+		}
+		int lane = laneOf(task);
+		lock.lock();
+		try {
+			if (lanes[lane].size() >= capacities[lane]) {
+				return false;
+			}
+			enqueue(lane, task);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void put(Runnable task) throws InterruptedException {
+		if (task == null) {
+			throw new NullPointerException();
+		}
+		int lane = laneOf(task);
+		lock.lockInterruptibly();
+		try {
+			while (lanes[lane].size() >= capacities[lane]) {
+				notFull.await();
+			}
+			enqueue(lane, task);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+		if (task == null) {
+			throw new NullPointerException();
+		}
+		int lane = laneOf(task);
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (lanes[lane].size() >= capacities[lane]) {
+				if (nanos <= 0) {
+					return false;
+				}
+				nanos = notFull.awaitNanos(nanos);
+			}
+			enqueue(lane, task);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (count == 0) {
+				notEmpty.await();
+			}
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (count == 0) {
+				if (nanos <= 0) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable poll() {
+		lock.lock();
+		try {
+			return count == 0 ? null : dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Head of the most urgent non empty lane, which is not always the next task taken. */
+	@Override
+	public Runnable peek() {
+		lock.lock();
+		try {
+			for (ArrayDeque<Runnable> lane : lanes) {
+				if (!lane.isEmpty()) {
+					return lane.peekFirst();
+				}
+			}
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(Object task) {
+		lock.lock();
+		try {
+			for (ArrayDeque<Runnable> lane : lanes) {
+				if (lane.remove(task)) {
+					count--;
+					notFull.signalAll();
+					return true;
+				}
+			}
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int remainingCapacity() {
+		lock.lock();
+		try {
+			int remaining = 0;
+			for (int i = 0; i < lanes.length; i++) {
+				remaining += capacities[i] - lanes[i].size();
+			}
+			return remaining;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> target) {
+		return drainTo(target, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> target, int maxElements) {
+		if (target == this) {
+			throw new IllegalArgumentException();
+		}
+		lock.lock();
+		try {
+			int drained = 0;
+			while (count > 0 && drained < maxElements) {
+				target.add(dequeue());
+				drained++;
+			}
+			return drained;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Iterates over a snapshot, lane by lane. */
+	@Override
+	public Iterator<Runnable> iterator() {
+		lock.lock();
+		try {
+			List<Runnable> snapshot = new ArrayList<>(count);
+			for (ArrayDeque<Runnable> lane : lanes) {
+				snapshot.addAll(lane);
+			}
+			Iterator<Runnable> iterator = snapshot.iterator();
+			return new Iterator<Runnable>() {
+
+				private Runnable last;
+
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public Runnable next() {
+					last = iterator.next();
+					return last;
+				}
+
+				@Override
+				public void remove() {
+					PriorityLaneQueue.this.remove(last);
+				}
+			};
+		} finally {
+			lock.unlock();
+		}
+	}
+}
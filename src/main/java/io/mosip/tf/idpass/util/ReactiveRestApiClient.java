@@ -0,0 +1,173 @@
+package io.mosip.tf.idpass.util;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.mosip.tf.idpass.dto.Metadata;
+import io.mosip.tf.idpass.dto.SecretKeyRequest;
+import io.mosip.tf.idpass.dto.TokenRequestDTO;
+import io.mosip.tf.idpass.exception.TokenGenerationFailedException;
+import io.mosip.tf.idpass.logger.PrintLogger;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non blocking counterpart of {@link RestApiClient} for the reactive profile.
+ *
+ * Requests carry the Authorization cookie of the print client, obtained from
+ * KEYBASEDTOKENAPI with the token.request.* credentials. The token is shared
+ * by all requests, fetched again once it expires or a request is refused
+ * with 401.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveRestApiClient {
+
+	private Logger logger = PrintLogger.getLogger(ReactiveRestApiClient.class);
+
+	private static final String AUTHORIZATION = "Authorization";
+
+	@Autowired
+	@Qualifier("printWebClient")
+	private WebClient webClient;
+
+	@Autowired
+	private Environment environment;
+
+	@Value("${mosip.print.reactive.response-timeout-millis:60000}")
+	private long responseTimeoutMillis;
+
+	@Value("${mosip.print.reactive.token-ttl-seconds:1800}")
+	private long tokenTtlSeconds;
+
+	/** Token being fetched or fetched, null when it has to be fetched again. */
+	private final AtomicReference<Mono<String>> token = new AtomicReference<>();
+
+	/**
+	 * Get the api.
+	 *
+	 * @param uri
+	 * @param responseType
+	 * @return empty when the response has no body
+	 */
+	public <T> Mono<T> getApi(URI uri, Class<T> responseType) {
+		logger.debug("ReactiveRestApiClient::getApi()::entry uri : {}", uri);
+		return exchange(HttpMethod.GET, uri, null, null, responseType);
+	}
+
+	/**
+	 * Post api. The request may be an {@link HttpEntity}, whose headers are
+	 * sent along.
+	 *
+	 * @param uri
+	 * @param mediaType
+	 * @param requestType
+	 * @param responseType
+	 * @return empty when the response has no body
+	 */
+	public <T> Mono<T> postApi(URI uri, MediaType mediaType, Object requestType, Class<T> responseType) {
+		logger.debug("ReactiveRestApiClient::postApi()::entry uri : {}", uri);
+		return exchange(HttpMethod.POST, uri, mediaType, requestType, responseType);
+	}
+
+	private <T> Mono<T> exchange(HttpMethod method, URI uri, MediaType mediaType, Object requestType,
+			Class<T> responseType) {
+		return getToken().flatMap(value -> send(method, uri, mediaType, requestType, value))
+				.flatMap(response -> {
+					if (response.statusCode() != HttpStatus.UNAUTHORIZED) {
+						return Mono.just(response);
+					}
+					// the token was revoked or expired early, fetch a new one once
+					return response.bodyToMono(Void.class).then(renewToken())
+							.flatMap(value -> send(method, uri, mediaType, requestType, value));
+				})
+				.flatMap(response -> response.statusCode().isError()
+						? response.bodyToMono(String.class).defaultIfEmpty("")
+								.flatMap(body -> Mono.<T>error(new IllegalStateException(
+										method + " " + uri + " failed with " + response.statusCode() + " " + body)))
+						: response.bodyToMono(responseType))
+				.timeout(Duration.ofMillis(responseTimeoutMillis));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Mono<ClientResponse> send(HttpMethod method, URI uri, MediaType mediaType, Object requestType,
+			String tokenValue) {
+		WebClient.RequestBodySpec request = webClient.method(method).uri(uri)
+				.cookie(AUTHORIZATION, tokenValue);
+		if (mediaType != null) {
+			request.contentType(mediaType);
+		}
+		Object body = requestType;
+		if (requestType instanceof HttpEntity) {
+			HttpEntity<Object> entity = (HttpEntity<Object>) requestType;
+			request.headers(headers -> entity.getHeaders().forEach((name, values) -> {
+				if (mediaType == null || !name.equalsIgnoreCase("Content-Type")) {
+					headers.put(name, values);
+				}
+			}));
+			body = entity.getBody();
+		}
+		if (body == null) {
+			return request.exchange();
+		}
+		return request.body(BodyInserters.fromObject(body)).exchange();
+	}
+
+	private Mono<String> getToken() {
+		Mono<String> current = token.get();
+		if (current != null) {
+			return current;
+		}
+		Mono<String> fetched = fetchToken().cache(Duration.ofSeconds(tokenTtlSeconds));
+		return token.compareAndSet(null, fetched) ? fetched : token.get();
+	}
+
+	private Mono<String> renewToken() {
+		token.set(null);
+		return getToken();
+	}
+
+	private Mono<String> fetchToken() {
+		SecretKeyRequest secretKeyRequest = new SecretKeyRequest();
+		secretKeyRequest.setClientId(environment.getProperty("token.request.clientId"));
+		secretKeyRequest.setSecretKey(environment.getProperty("token.request.secretKey"));
+		secretKeyRequest.setAppId(environment.getProperty("token.request.appid"));
+		TokenRequestDTO<SecretKeyRequest> tokenRequest = new TokenRequestDTO<>();
+		tokenRequest.setId(environment.getProperty("token.request.id"));
+		tokenRequest.setMetadata(new Metadata());
+		tokenRequest.setRequest(secretKeyRequest);
+		tokenRequest.setRequesttime(DateUtils.getUTCCurrentDateTimeString());
+		tokenRequest.setVersion(environment.getProperty("token.request.version"));
+		return webClient.post().uri(URI.create(environment.getProperty("KEYBASEDTOKENAPI")))
+				.contentType(MediaType.APPLICATION_JSON).body(BodyInserters.fromObject(tokenRequest)).exchange()
+				.flatMap(response -> {
+					ResponseCookie cookie = response.cookies().getFirst(AUTHORIZATION);
+					Mono<Void> drained = response.bodyToMono(Void.class);
+					if (response.statusCode().isError() || cookie == null) {
+						return drained.then(Mono.<String>error(new TokenGenerationFailedException(
+								"no token from KEYBASEDTOKENAPI, status " + response.statusCode())));
+					}
+					return drained.thenReturn(cookie.getValue());
+				})
+				.doOnError(e -> {
+					logger.error("ReactiveRestApiClient::fetchToken()::error {}", e.getMessage());
+					token.set(null);
+				});
+	}
+}
@@ -19,7 +19,6 @@ import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.mosip.kernel.core.templatemanager.exception.TemplateMethodInvocationException;
 import io.mosip.kernel.core.templatemanager.exception.TemplateParsingException;
@@ -63,9 +62,6 @@ public class TemplateGenerator {
 	@Autowired
 	private PrintRestClientService<Object> restClientService;
 
-	@Autowired
-	private ObjectMapper mapper;
-
 	/**
 	 * Gets the template.
 	 *
@@ -83,32 +79,66 @@ public class TemplateGenerator {
 	 */
 	public InputStream getTemplate(String templateTypeCode, Map<String, Object> attributes, String langCode)
 			throws IOException, ApisResourceAccessException {
-
-		ResponseWrapper<?> responseWrapper;
-		TemplateResponseDto template;
 		printLogger.debug(LoggerFileConstant.SESSIONID.toString(), LoggerFileConstant.USERID.toString(), "",
 				"TemplateGenerator::getTemplate()::entry");
+		String templateText = getTemplateText(templateTypeCode, langCode);
+		InputStream fileTextStream = null;
+		if (templateText != null) {
+			fileTextStream = merge(templateText, attributes, getTemplateManager());
+		}
+		printLogger.debug(LoggerFileConstant.SESSIONID.toString(), LoggerFileConstant.USERID.toString(), "",
+				"TemplateGenerator::getTemplate()::exit");
+		return fileTextStream;
+	}
 
-		try {
-			List<String> pathSegments = new ArrayList<>();
-			pathSegments.add(langCode);
-			pathSegments.add(templateTypeCode);
-
-			responseWrapper = (ResponseWrapper<?>) restClientService.getApi(ApiName.TEMPLATES, pathSegments, "", "",
-					ResponseWrapper.class);
-			template = mapper.readValue(mapper.writeValueAsString(responseWrapper.getResponse()),
-					TemplateResponseDto.class);
-
-			InputStream fileTextStream = null;
-			if (template != null) {
-				InputStream stream = new ByteArrayInputStream(
-						template.getTemplates().iterator().next().getFileText().getBytes());
-				fileTextStream = getTemplateManager().merge(stream, attributes);
-			}
-			printLogger.debug(LoggerFileConstant.SESSIONID.toString(), LoggerFileConstant.USERID.toString(), "",
-					"TemplateGenerator::getTemplate()::exit");
-			return fileTextStream;
+	/**
+	 * Gets the template text from masterdata, without merging any attributes.
+	 * Callers printing many cards with the same template fetch it once and merge
+	 * it with {@link #merge(String, Map, TemplateManager)}.
+	 *
+	 * @param templateTypeCode
+	 *            the template type code
+	 * @param langCode
+	 *            the lang code
+	 * @return the template text, null if there is no template
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws ApisResourceAccessException
+	 *             the apis resource access exception
+	 */
+	public String getTemplateText(String templateTypeCode, String langCode)
+			throws IOException, ApisResourceAccessException {
+		List<String> pathSegments = new ArrayList<>();
+		pathSegments.add(langCode);
+		pathSegments.add(templateTypeCode);
+
+		ResponseWrapper<?> responseWrapper = (ResponseWrapper<?>) restClientService.getApi(ApiName.TEMPLATES,
+				pathSegments, "", "", ResponseWrapper.class);
+		TemplateResponseDto template = JsonUtil.readTemplateResponse(responseWrapper.getResponse());
+		if (template == null) {
+			return null;
+		}
+		return template.getTemplates().iterator().next().getFileText();
+	}
 
+	/**
+	 * Merges the attributes into the template text.
+	 *
+	 * @param templateText
+	 *            the template text
+	 * @param attributes
+	 *            the attributes
+	 * @param templateManager
+	 *            the template manager, can be shared between cards
+	 * @return the merged template
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public InputStream merge(String templateText, Map<String, Object> attributes, TemplateManager templateManager)
+			throws IOException {
+		try {
+			InputStream stream = new ByteArrayInputStream(templateText.getBytes());
+			return templateManager.merge(stream, attributes);
 		} catch (TemplateResourceNotFoundException | TemplateParsingException | TemplateMethodInvocationException e) {
 			printLogger.error(LoggerFileConstant.SESSIONID.toString(), LoggerFileConstant.REGISTRATIONID.toString(),
 					null, PlatformErrorMessages.PRT_TEM_PROCESSING_FAILURE.name() + e.getMessage()
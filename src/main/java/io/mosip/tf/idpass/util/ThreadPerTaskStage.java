@@ -0,0 +1,118 @@
+package io.mosip.tf.idpass.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Pipeline stage that starts a new thread for every task, meant for virtual
+ * threads, which are cheap to create and must not be pooled.
+ *
+ * A semaphore limits the tasks in flight instead of a pool size. A task
+ * waits for a permit the way it waits for room in the queue of a pooled
+ * stage, so the stage pushes back the same way, and print.pipeline.queue
+ * counts the tasks waiting for a permit.
+ */
+public class ThreadPerTaskStage extends PipelineStage {
+
+	private final int maxInFlight;
+
+	private final Semaphore permits;
+
+	private final ThreadFactory threadFactory;
+
+	private volatile boolean shutdown;
+
+	public ThreadPerTaskStage(String name, int maxInFlight, ThreadFactory threadFactory,
+			MeterRegistry meterRegistry) {
+		super(name, meterRegistry);
+		this.maxInFlight = maxInFlight;
+		this.permits = new Semaphore(maxInFlight, true);
+		this.threadFactory = threadFactory;
+		Gauge.builder("print.pipeline.queue", permits, Semaphore::getQueueLength).tag("stage", name)
+				.description("tasks waiting for the stage").register(meterRegistry);
+	}
+
+	/**
+	 * Start the task, waiting for a permit. The returned future fails with
+	 * RejectedExecutionException if the stage is shut down.
+	 */
+	@Override
+	public <T> CompletableFuture<T> submit(StageTask<T> task) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		long queuedAt = System.nanoTime();
+		try {
+			// the wait is cut short to notice a shutdown while every permit is taken
+			do {
+				if (shutdown) {
+					reject(result);
+					return result;
+				}
+			} while (!permits.tryAcquire(SHUTDOWN_CHECK_MILLIS, TimeUnit.MILLISECONDS));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			result.completeExceptionally(e);
+			return result;
+		}
+		start(task, result, queuedAt);
+		return result;
+	}
+
+	/**
+	 * Start the task if a permit is free.
+	 *
+	 * @throws RejectedExecutionException if every permit is taken or the stage
+	 *                                    is shut down
+	 */
+	@Override
+	public <T> CompletableFuture<T> trySubmit(StageTask<T> task) {
+		if (shutdown || !permits.tryAcquire()) {
+			throw new RejectedExecutionException("stage " + getName() + " is full");
+		}
+		CompletableFuture<T> result = new CompletableFuture<>();
+		start(task, result, System.nanoTime());
+		return result;
+	}
+
+	/** Runs the task on a new thread, which gives back the permit taken for it. */
+	private <T> void start(StageTask<T> task, CompletableFuture<T> result, long queuedAt) {
+		if (shutdown) {
+			permits.release();
+			reject(result);
+			return;
+		}
+		try {
+			threadFactory.newThread(() -> {
+				try {
+					run(task, result, queuedAt);
+				} finally {
+					permits.release();
+				}
+			}).start();
+		} catch (RuntimeException | Error e) {
+			permits.release();
+			result.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Stop taking work and wait for the tasks in flight, which are left to
+	 * finish if they do not in time.
+	 *
+	 * @return false if the stage did not drain in time
+	 */
+	@Override
+	public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+		shutdown = true;
+		if (!permits.tryAcquire(maxInFlight, timeout, unit)) {
+			return false;
+		}
+		permits.release(maxInFlight);
+		return true;
+	}
+}
@@ -0,0 +1,463 @@
+package io.mosip.tf.idpass.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.CacheRequest;
+import java.net.CacheResponse;
+import java.net.HttpURLConnection;
+import java.net.ResponseCache;
+import java.net.SecureCacheResponse;
+import java.net.URI;
+import java.net.URLConnection;
+import java.security.Principal;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.mosip.tf.idpass.logger.PrintLogger;
+
+/**
+ * Keeps the documents the credential verifier downloads, the issuer public
+ * keys of the verification methods and the JSON-LD contexts, so verifying a
+ * credential does not wait for the network.
+ *
+ * The verifier library fetches them itself through java.net, so the cache is
+ * installed as the JVM {@link ResponseCache} and only answers GET requests
+ * for the configured url prefixes, everything else goes to the network as
+ * before. A miss is loaded once, requests for the same url arriving
+ * meanwhile wait for that load. A document is refreshed in the background
+ * once it is older than the ttl less refresh-ahead-seconds and dropped after
+ * the ttl.
+ *
+ * Documents listed in mosip.print.verify.cache.seed are loaded at startup
+ * from files or classpath resources and never expire. In offline mode
+ * nothing is downloaded, a url of the prefixes that was not seeded is
+ * answered with 404 and fails the verification.
+ *
+ * java.net only takes a cached answer for an https url when it is a
+ * {@link SecureCacheResponse}. Such answers report the TLS session the
+ * document was downloaded over. Seeded documents and the offline 404 come
+ * from no session, so they report the cipher suite SSL_NULL_WITH_NULL_NULL,
+ * no local certificates, and an unverified peer.
+ *
+ * Publishes print.verify.cache.requests (counter, result=hit|miss),
+ * print.verify.cache.loads (counter, result=success|failure) and
+ * print.verify.cache.size (gauge).
+ */
+@Component
+public class VerificationMaterialCache extends ResponseCache {
+
+	private Logger printLogger = PrintLogger.getLogger(VerificationMaterialCache.class);
+
+	private static final String GET = "GET";
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private ResourceLoader resourceLoader;
+
+	@Value("${mosip.print.verify.credentials.flag:true}")
+	private boolean verifyCredentialsFlag;
+
+	@Value("${mosip.print.verify.cache.enabled:true}")
+	private boolean enabled;
+
+	/** Comma separated url prefixes of verification methods and contexts. */
+	@Value("${mosip.print.verify.cache.url-prefixes:https://www.w3.org/2018/credentials/}")
+	private String urlPrefixes;
+
+	@Value("${mosip.print.verify.cache.ttl-seconds:3600}")
+	private long ttlSeconds;
+
+	@Value("${mosip.print.verify.cache.refresh-ahead-seconds:300}")
+	private long refreshAheadSeconds;
+
+	@Value("${mosip.print.verify.cache.max-entries:1000}")
+	private int maxEntries;
+
+	@Value("${mosip.print.verify.cache.load-timeout-millis:10000}")
+	private int loadTimeoutMillis;
+
+	/** Never downloads, only seeded documents are served. */
+	@Value("${mosip.print.verify.cache.offline:false}")
+	private boolean offline;
+
+	/** url to file path or classpath: resource. */
+	@Value("#{${mosip.print.verify.cache.seed:{}}}")
+	private Map<String, String> seed;
+
+	private static final String HTTPS = "https";
+
+	private static final Material NOT_SEEDED = new Material("HTTP/1.1 404 Not Found", new byte[0],
+			"application/json", null, Long.MAX_VALUE, Long.MAX_VALUE);
+
+	private final ConcurrentHashMap<URI, Material> documents = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<URI, CompletableFuture<Material>> loads = new ConcurrentHashMap<>();
+
+	private List<String> prefixes;
+
+	private ExecutorService loader;
+
+	private ResponseCache previous;
+
+	private Counter hitCounter;
+
+	private Counter missCounter;
+
+	private Counter loadedCounter;
+
+	private Counter failedCounter;
+
+	private static final class Material {
+
+		private final byte[] body;
+
+		private final Map<String, List<String>> headers;
+
+		/** TLS session of the download, null if not downloaded over https. */
+		private final TlsSession session;
+
+		/** System.nanoTime() based, Long.MAX_VALUE for seeded documents. */
+		private final long refreshAt;
+
+		private final long expiry;
+
+		private Material(byte[] body, String contentType, TlsSession session, long refreshAt, long expiry) {
+			this("HTTP/1.1 200 OK", body, contentType, session, refreshAt, expiry);
+		}
+
+		private Material(String status, byte[] body, String contentType, TlsSession session, long refreshAt,
+				long expiry) {
+			this.body = body;
+			this.session = session;
+			Map<String, List<String>> headers = new HashMap<>();
+			headers.put(null, Collections.singletonList(status));
+			headers.put("Content-Type", Collections.singletonList(contentType));
+			headers.put("Content-Length", Collections.singletonList(String.valueOf(body.length)));
+			this.headers = Collections.unmodifiableMap(headers);
+			this.refreshAt = refreshAt;
+			this.expiry = expiry;
+		}
+
+		private boolean isSeeded() {
+			return expiry == Long.MAX_VALUE;
+		}
+	}
+
+	/** What the https download of a document negotiated. */
+	private static final class TlsSession {
+
+		private final String cipherSuite;
+
+		private final List<Certificate> localCertificates;
+
+		private final List<Certificate> serverCertificates;
+
+		private final Principal peerPrincipal;
+
+		private final Principal localPrincipal;
+
+		private TlsSession(HttpsURLConnection connection) {
+			this.cipherSuite = connection.getCipherSuite();
+			this.localCertificates = certificates(connection.getLocalCertificates());
+			List<Certificate> serverCertificates = null;
+			Principal peerPrincipal = null;
+			try {
+				serverCertificates = certificates(connection.getServerCertificates());
+				peerPrincipal = connection.getPeerPrincipal();
+			} catch (SSLPeerUnverifiedException e) {
+				// the server sent no certificate, answered as unverified
+			}
+			this.serverCertificates = serverCertificates;
+			this.peerPrincipal = peerPrincipal;
+			this.localPrincipal = connection.getLocalPrincipal();
+		}
+
+		private static List<Certificate> certificates(Certificate[] certificates) {
+			return certificates == null ? null : Collections.unmodifiableList(Arrays.asList(certificates.clone()));
+		}
+	}
+
+	private static final class MaterialResponse extends CacheResponse {
+
+		private final Material material;
+
+		private MaterialResponse(Material material) {
+			this.material = material;
+		}
+
+		@Override
+		public Map<String, List<String>> getHeaders() {
+			return material.headers;
+		}
+
+		@Override
+		public InputStream getBody() {
+			return new ByteArrayInputStream(material.body);
+		}
+	}
+
+	/** Answer for an https url, java.net ignores any other. */
+	private static final class SecureMaterialResponse extends SecureCacheResponse {
+
+		/** Cipher suite name of a connection without a TLS session. */
+		private static final String NO_CIPHER_SUITE = "SSL_NULL_WITH_NULL_NULL";
+
+		private final Material material;
+
+		private SecureMaterialResponse(Material material) {
+			this.material = material;
+		}
+
+		@Override
+		public Map<String, List<String>> getHeaders() {
+			return material.headers;
+		}
+
+		@Override
+		public InputStream getBody() {
+			return new ByteArrayInputStream(material.body);
+		}
+
+		@Override
+		public String getCipherSuite() {
+			return material.session == null ? NO_CIPHER_SUITE : material.session.cipherSuite;
+		}
+
+		@Override
+		public List<Certificate> getLocalCertificateChain() {
+			return material.session == null ? null : material.session.localCertificates;
+		}
+
+		@Override
+		public List<Certificate> getServerCertificateChain() throws SSLPeerUnverifiedException {
+			if (material.session == null || material.session.serverCertificates == null) {
+				throw new SSLPeerUnverifiedException("document was not downloaded over TLS");
+			}
+			return material.session.serverCertificates;
+		}
+
+		@Override
+		public Principal getPeerPrincipal() throws SSLPeerUnverifiedException {
+			if (material.session == null || material.session.peerPrincipal == null) {
+				throw new SSLPeerUnverifiedException("document was not downloaded over TLS");
+			}
+			return material.session.peerPrincipal;
+		}
+
+		@Override
+		public Principal getLocalPrincipal() {
+			return material.session == null ? null : material.session.localPrincipal;
+		}
+	}
+
+	@PostConstruct
+	public void init() throws IOException {
+		if (!enabled || !verifyCredentialsFlag) {
+			return;
+		}
+		prefixes = new ArrayList<>();
+		for (String prefix : urlPrefixes.split(",")) {
+			if (!prefix.trim().isEmpty()) {
+				prefixes.add(prefix.trim());
+			}
+		}
+		hitCounter = Counter.builder("print.verify.cache.requests").tag("result", "hit")
+				.description("verification documents requested by the credential verifier").register(meterRegistry);
+		missCounter = Counter.builder("print.verify.cache.requests").tag("result", "miss")
+				.description("verification documents requested by the credential verifier").register(meterRegistry);
+		loadedCounter = Counter.builder("print.verify.cache.loads").tag("result", "success")
+				.description("verification documents downloaded").register(meterRegistry);
+		failedCounter = Counter.builder("print.verify.cache.loads").tag("result", "failure")
+				.description("verification documents downloaded").register(meterRegistry);
+		Gauge.builder("print.verify.cache.size", documents, ConcurrentHashMap::size)
+				.description("verification documents held in memory").register(meterRegistry);
+		if (seed != null) {
+			for (Map.Entry<String, String> entry : seed.entrySet()) {
+				Resource resource = resourceLoader.getResource(entry.getValue());
+				try (InputStream in = resource.getInputStream()) {
+					documents.put(URI.create(entry.getKey()), new Material(IOUtils.toByteArray(in),
+							contentType(entry.getKey()), null, Long.MAX_VALUE, Long.MAX_VALUE));
+				}
+			}
+		}
+		loader = Executors.newCachedThreadPool(new CustomizableThreadFactory("print-verify-cache-"));
+		previous = ResponseCache.getDefault();
+		ResponseCache.setDefault(this);
+		printLogger.info("verification documents of {} cached{}, {} seeded", prefixes, offline ? " offline" : "",
+				documents.size());
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (ResponseCache.getDefault() == this) {
+			ResponseCache.setDefault(previous);
+		}
+		if (loader != null) {
+			loader.shutdownNow();
+		}
+	}
+
+	@Override
+	public CacheResponse get(URI uri, String requestMethod, Map<String, List<String>> requestHeaders)
+			throws IOException {
+		if (!GET.equals(requestMethod) || !isCached(uri)) {
+			return null;
+		}
+		long now = System.nanoTime();
+		Material material = documents.get(uri);
+		if (material != null && (material.isSeeded() || material.expiry - now > 0)) {
+			hitCounter.increment();
+			if (!material.isSeeded() && material.refreshAt - now <= 0 && !offline) {
+				load(uri);
+			}
+			return response(uri, material);
+		}
+		missCounter.increment();
+		if (offline) {
+			// an exception would only make the connection go to the network
+			return response(uri, NOT_SEEDED);
+		}
+		try {
+			material = load(uri).get(loadTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException | TimeoutException e) {
+			// the verifier downloads it itself and reports the failure
+			return null;
+		}
+		return response(uri, material);
+	}
+
+	private static CacheResponse response(URI uri, Material material) {
+		return HTTPS.equalsIgnoreCase(uri.getScheme()) ? new SecureMaterialResponse(material)
+				: new MaterialResponse(material);
+	}
+
+	@Override
+	public CacheRequest put(URI uri, URLConnection connection) {
+		// documents are downloaded by the cache itself
+		return null;
+	}
+
+	/** Whether requests for the url are answered by the cache. */
+	public boolean isCached(URI uri) {
+		if (prefixes == null) {
+			return false;
+		}
+		String url = uri.toString();
+		for (String prefix : prefixes) {
+			if (url.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Drops the downloaded documents, seeded ones are kept. */
+	public void clear() {
+		documents.values().removeIf(material -> !material.isSeeded());
+	}
+
+	private CompletableFuture<Material> load(URI uri) {
+		return loads.computeIfAbsent(uri, key -> {
+			CompletableFuture<Material> future = CompletableFuture.supplyAsync(() -> download(key), loader);
+			future.whenComplete((material, e) -> loads.remove(key));
+			return future;
+		});
+	}
+
+	private Material download(URI uri) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+			// or the download would be answered by this cache
+			connection.setUseCaches(false);
+			connection.setConnectTimeout(loadTimeoutMillis);
+			connection.setReadTimeout(loadTimeoutMillis);
+			try {
+				if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+					throw new IOException("HTTP " + connection.getResponseCode());
+				}
+				byte[] body;
+				try (InputStream in = connection.getInputStream()) {
+					body = IOUtils.toByteArray(in);
+				}
+				TlsSession session = connection instanceof HttpsURLConnection
+						? new TlsSession((HttpsURLConnection) connection)
+						: null;
+				long now = System.nanoTime();
+				long expiry = now + TimeUnit.SECONDS.toNanos(ttlSeconds);
+				Material material = new Material(body, connection.getContentType() == null ? contentType(uri.toString())
+						: connection.getContentType(), session, expiry - TimeUnit.SECONDS.toNanos(refreshAheadSeconds),
+						expiry);
+				store(uri, material);
+				loadedCounter.increment();
+				return material;
+			} finally {
+				connection.disconnect();
+			}
+		} catch (IOException e) {
+			failedCounter.increment();
+			printLogger.warn("verification document {} could not be downloaded: {}", uri, e.getMessage());
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void store(URI uri, Material material) {
+		documents.put(uri, material);
+		long now = System.nanoTime();
+		documents.values().removeIf(stored -> !stored.isSeeded() && stored.expiry - now <= 0);
+		while (documents.size() > maxEntries) {
+			// the document expiring first goes, seeded ones stay
+			URI eldest = null;
+			long eldestExpiry = 0;
+			for (Map.Entry<URI, Material> entry : documents.entrySet()) {
+				if (!entry.getValue().isSeeded()
+						&& (eldest == null || entry.getValue().expiry - eldestExpiry < 0)) {
+					eldest = entry.getKey();
+					eldestExpiry = entry.getValue().expiry;
+				}
+			}
+			if (eldest == null) {
+				break;
+			}
+			documents.remove(eldest);
+		}
+	}
+
+	private static String contentType(String url) {
+		return url.endsWith(".pem") ? "application/x-pem-file" : "application/json";
+	}
+}
@@ -0,0 +1,156 @@
+package io.mosip.tf.idpass.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Remembers for a short time whether a decoded credential passed the
+ * verification, so a reissued or redelivered credential that is byte for
+ * byte the same is not canonicalized and checked again.
+ *
+ * Outcomes are keyed by the SHA-256 of the credential text, any change to the
+ * credential makes it a new one that is verified. Only the outcomes the
+ * verifier returned are kept, a verification that failed with an exception
+ * is tried again next time.
+ *
+ * Publishes print.verify.result-cache.requests (counter, result=hit|miss) and
+ * print.verify.result-cache.size (gauge).
+ */
+@Component
+public class VerificationResultCache {
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${mosip.print.verify.result-cache.enabled:true}")
+	private boolean enabled;
+
+	@Value("${mosip.print.verify.result-cache.ttl-seconds:300}")
+	private long ttlSeconds;
+
+	@Value("${mosip.print.verify.result-cache.max-entries:10000}")
+	private int maxEntries;
+
+	/** credential digest to outcome. */
+	private final ConcurrentHashMap<String, Outcome> outcomes = new ConcurrentHashMap<>();
+
+	/** Same entries in insertion order, which is also expiry order. */
+	private final ConcurrentLinkedQueue<Entry> expiryOrder = new ConcurrentLinkedQueue<>();
+
+	private Counter hitCounter;
+
+	private Counter missCounter;
+
+	@PostConstruct
+	public void init() {
+		if (!enabled) {
+			return;
+		}
+		hitCounter = Counter.builder("print.verify.result-cache.requests").tag("result", "hit")
+				.description("credential verifications looked up").register(meterRegistry);
+		missCounter = Counter.builder("print.verify.result-cache.requests").tag("result", "miss")
+				.description("credential verifications looked up").register(meterRegistry);
+		Gauge.builder("print.verify.result-cache.size", outcomes, ConcurrentHashMap::size)
+				.description("credential verification outcomes remembered").register(meterRegistry);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Key of the credential, its SHA-256 in hex.
+	 *
+	 * @param credential decoded credential text
+	 * @return null when the cache is disabled, the credential is then not hashed
+	 */
+	public String key(String credential) {
+		if (!enabled) {
+			return null;
+		}
+		return DigestUtils.sha256Hex(credential);
+	}
+
+	/**
+	 * Outcome of the earlier verification of the credential.
+	 *
+	 * @param key from {@link #key(String)}
+	 * @return null if it has to be verified
+	 */
+	public Boolean get(String key) {
+		if (!enabled) {
+			return null;
+		}
+		Outcome outcome = outcomes.get(key);
+		if (outcome == null || outcome.expiry - System.nanoTime() <= 0) {
+			missCounter.increment();
+			return null;
+		}
+		hitCounter.increment();
+		return outcome.verified;
+	}
+
+	/**
+	 * Remembers the outcome of a verification.
+	 *
+	 * @param key from {@link #key(String)}
+	 */
+	public void put(String key, boolean verified) {
+		if (!enabled) {
+			return;
+		}
+		long now = System.nanoTime();
+		Outcome outcome = new Outcome(verified, now + TimeUnit.SECONDS.toNanos(ttlSeconds));
+		outcomes.put(key, outcome);
+		expiryOrder.add(new Entry(key, outcome));
+		Entry head;
+		while ((head = expiryOrder.peek()) != null
+				&& (outcomes.size() > maxEntries || head.outcome.expiry - now <= 0)) {
+			if (expiryOrder.remove(head)) {
+				outcomes.remove(head.key, head.outcome);
+			}
+		}
+	}
+
+	/** Forgets every outcome, as when the trusted keys change. */
+	public void clear() {
+		outcomes.clear();
+		expiryOrder.clear();
+	}
+
+	private static class Outcome {
+
+		private final boolean verified;
+
+		private final long expiry;
+
+		private Outcome(boolean verified, long expiry) {
+			this.verified = verified;
+			this.expiry = expiry;
+		}
+	}
+
+	private static class Entry {
+
+		private final String key;
+
+		private final Outcome outcome;
+
+		private Entry(String key, Outcome outcome) {
+			this.key = key;
+			this.outcome = outcome;
+		}
+	}
+}
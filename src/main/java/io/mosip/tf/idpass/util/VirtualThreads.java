@@ -0,0 +1,59 @@
+package io.mosip.tf.idpass.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to Java 21 virtual threads from code compiled for Java 11. The
+ * builder API is looked up reflectively, so this class loads on any runtime
+ * and {@link #isSupported()} tells whether virtual threads are available.
+ */
+public final class VirtualThreads {
+
+	private static final Method OF_VIRTUAL;
+
+	private static final Method NAME;
+
+	private static final Method FACTORY;
+
+	static {
+		Method ofVirtual = null;
+		Method name = null;
+		Method factory = null;
+		try {
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			name = builder.getMethod("name", String.class, long.class);
+			factory = builder.getMethod("factory");
+		} catch (ReflectiveOperationException e) {
+			ofVirtual = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		NAME = name;
+		FACTORY = factory;
+	}
+
+	private VirtualThreads() {
+	}
+
+	public static boolean isSupported() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * Factory of virtual threads named prefix0, prefix1, ...
+	 *
+	 * @throws UnsupportedOperationException before Java 21
+	 */
+	public static ThreadFactory factory(String prefix) {
+		if (!isSupported()) {
+			throw new UnsupportedOperationException("virtual threads need Java 21");
+		}
+		try {
+			Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L);
+			return (ThreadFactory) FACTORY.invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("virtual threads could not be created", e);
+		}
+	}
+}
@@ -42,6 +42,10 @@ public class WebSubSubscriptionHelper {
 	@Value("${mosip.event.topic}")
 	private String topic;
 
+	/** Set when running as the offline bulk printer, which does not subscribe. */
+	@Value("${mosip.print.bulk.input:}")
+	private String bulkInput;
+
 	@Autowired
 	private PublisherClient<String, CredentialStatusEvent, HttpHeaders> pb;
 
@@ -60,6 +64,9 @@ public class WebSubSubscriptionHelper {
 	@Scheduled(fixedDelayString = "${print-websub-resubscription-delay-millisecs}",
 			initialDelayString = "${mosip.event.delay-millisecs}")
 	public void initSubsriptions() {
+		if (!bulkInput.isEmpty()) {
+			return;
+		}
 		LOGGER.info("Initializing subscribptions... {} {}", WEBSUBSUBSCRIPTIONHEPLER, INITSUBSCRIPTION);
 		subscribeForPrintServiceEvents();
 	}
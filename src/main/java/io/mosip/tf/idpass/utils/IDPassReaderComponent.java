@@ -21,6 +21,7 @@ import io.mosip.tf.idpass.exception.PDFGeneratorException;
 import io.mosip.tf.idpass.exception.PDFSignatureException;
 import io.mosip.tf.idpass.service.PrintRestClientService;
 import io.mosip.tf.idpass.spi.PDFGenerator;
+import io.mosip.tf.idpass.util.JsonUtil;
 import io.mosip.tf.idpass.util.RestApiClient.IdPassTokenRequest;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -58,7 +59,6 @@ import static io.mosip.tf.idpass.service.impl.PrintServiceImpl.DATETIME_PATTERN;
 
 import java.awt.image.BufferedImage;
 import java.io.*;
-import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -165,22 +165,29 @@ public class IDPassReaderComponent {
 	 * @return Returns Object data holder of computed values
 	 */
 	public IDPassLiteDTO generateQrCode(String cs, String photob64, String pincode) throws IOException {
+		return generateQrCode(mapper.readTree(cs), photob64, pincode);
+	}
+
+	/**
+	 * Same as {@link #generateQrCode(String, String, String)} for a credential
+	 * subject that is already parsed.
+	 */
+	public IDPassLiteDTO generateQrCode(JsonNode cs, String photob64, String pincode) throws IOException {
 
-		LOGGER.info(cs);
+		LOGGER.info(cs::toString);
 		LOGGER.info(pincode);
 
 		IDPassLiteDTO ret = new IDPassLiteDTO();
 		IdentFieldsConstraint idfc = null;
 
 		try {
-			idfc = (IdentFieldsConstraint) IdentFields.parse(cs, IdentFieldsConstraint.class);
+			idfc = IdentFields.parse(cs);
 			ret.setIdfc(idfc);
 			if (idfc == null || !idfc.isValid()) { // in terms of identfieldsconstraint.json
 				return null;
 			}
 
-		} catch (NoSuchMethodException | IllegalAccessException | InstantiationException
-				| InvocationTargetException e) {
+		} catch (IllegalArgumentException e) {
 			return null;
 		}
 
@@ -307,7 +314,17 @@ public class IDPassReaderComponent {
 
 	public byte[] generateUinCard(InputStream in, UinCardType type, String password, IDPassLiteDTO sd)
 			throws ApisResourceAccessException {
-		byte[] pdfSignatured = null;
+		return signUinCard(renderUinCard(sd), password);
+	}
+
+	/**
+	 * Generates the initial pdf through editor.idpass.org and appends the
+	 * signature page. This is the unsigned first half of generateUinCard.
+	 *
+	 * @param sd Session data computed values holder
+	 * @return Returns pdf bytes of the unsigned pdf
+	 */
+	public byte[] renderUinCard(IDPassLiteDTO sd) {
 		try {
 			// Calls editor.idpass.org REST API to generate initial PDF
 			byte[] pdfbuf = editorGenerate(sd);
@@ -320,7 +337,24 @@ public class IDPassReaderComponent {
 			pdfList.add(signaturePageURL);
 			byte[] threepages = pdfGenerator.mergePDF(pdfList);
 			tmp1.toFile().delete();
+			return threepages;
+		} catch (IOException | PDFGeneratorException e) {
+			throw new PDFGeneratorException(PDFGeneratorExceptionCodeConstant.PDF_EXCEPTION.getErrorCode(),
+					e.getMessage() + ExceptionUtils.getStackTrace(e));
+		}
+	}
 
+	/**
+	 * Sends the rendered pdf to the kernel PDFSIGN service. This is the second
+	 * half of generateUinCard.
+	 *
+	 * @param threepages pdf returned by {@link #renderUinCard(IDPassLiteDTO)}
+	 * @param password   password
+	 * @return Returns pdf bytes of signed pdf
+	 */
+	public byte[] signUinCard(byte[] threepages, String password) {
+		byte[] pdfSignatured = null;
+		try {
 			PDFSignatureRequestDto request = new PDFSignatureRequestDto(5, 2, 232, 72, reason, 3, password);
 
 			request.setApplicationId("KERNEL");
@@ -345,8 +379,7 @@ public class IDPassReaderComponent {
 				ErrorDTO error = responseWrapper.getErrors().get(0);
 				throw new PDFSignatureException(error.getMessage());
 			}
-			signatureResponseDto = mapper.readValue(mapper.writeValueAsString(responseWrapper.getResponse()),
-					SignatureResponseDto.class);
+			signatureResponseDto = JsonUtil.readSignatureResponse(responseWrapper.getResponse());
 
 			pdfSignatured = CryptoUtil.decodeBase64(signatureResponseDto.getData());
 			whenWriteStringUsingBufferedWritte_thenCorrect(pdfSignatured);
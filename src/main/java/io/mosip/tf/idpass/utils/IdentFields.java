@@ -1,22 +1,15 @@
 package io.mosip.tf.idpass.utils;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.exc.MismatchedInputException;
 
-import io.mosip.tf.idpass.dto.JsonValue;
+import io.mosip.tf.idpass.util.JsonUtil;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * The IdentFields::parse() method will walk into the json tree and extracts out
@@ -28,55 +21,43 @@ import java.util.stream.Collectors;
  *
  * Lastly, a preset fields is populated with their values.
  *
+ * The walk writes every value found straight into a new IdentFieldsConstraint
+ * and keeps no state between calls, so credentials may be parsed on any number
+ * of threads at once.
  */
 
-public class IdentFields {
+public final class IdentFields {
 
-	/**
-	 * The stack stk variable keeps track of nested key paths as the json tree is
-	 * being traversed. It's possible future use is to be able to express json full
-	 * path key name for extraction, such as:
-	 *
-	 * Record.Person.Id
-	 *
-	 * To specifically and unambiguously extract the 'Id' field.
-	 */
-
-	private Stack<String> stk = new Stack<>();
-
-	/**
-	 * The parseFields contains the gathered fields based on the configured list of
-	 * fields of interest.
-	 */
-
-	private Map<String, Object> parsedFields = new HashMap<>();
+	private static final String LANGUAGE = "language";
 
-	// Values populated from json config
-	public static List<String> prefLangs = new ArrayList<>();
+	private static final String VALUE = "value";
 
 	/**
-	 * The fieldsOfInterest member field are the member fields of the type class
-	 * that contains the constrained type input fields for Ident.Builder class. The
-	 * member field's name is search for in the configuration json, and the found
-	 * json value must render to the member's type.
+	 * First characters of a string value that may hold json, anything else is
+	 * taken as text without trying to parse it.
 	 */
+	private static final String JSON_START = "{[\"-0123456789tfn";
 
-	List<String> fieldsOfInterest = new ArrayList<>();
+	private IdentFields() {
+	}
 
 	/**
 	 * The GenderMap class is a DTO that reads the configured values in the json
 	 * file corresponding to gender for each preferred language.
 	 */
 
-	static class GenderMap {
-		public List<String> male;
-		public List<String> female;
-	}
+	static final class GenderMap {
+		final List<String> male;
+		final List<String> female;
 
-	public static Map<String, IdentFields.GenderMap> genderMap = new HashMap<>();
+		private GenderMap(List<String> male, List<String> female) {
+			this.male = male;
+			this.female = female;
+		}
+	}
 
 	/**
-	 * Sets the json configuration that defines the additional constraint rules
+	 * The json configuration that defines the additional constraint rules
 	 * associated with the IdentFieldsConstraint.java class. Whereas the class
 	 * defines the type, the json defines the rest of the configurable parameters
 	 * that includes the following:
@@ -84,150 +65,182 @@ public class IdentFields {
 	 * - which member fields are mandatory - the date format - preferred languages -
 	 * the gender map to int for gender
 	 *
-	 * @param is Is the json input stream
-	 * @throws IOException Standard exception
+	 * Read once from identfieldsconstraint.json and never changed.
 	 */
 
-	public static void setConfig(InputStream is) throws IOException {
-		String jsonstr = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8)).lines()
-				.collect(Collectors.joining());
+	static final class Config {
 
-		ObjectMapper mapper = new ObjectMapper();
-		JsonNode node = mapper.readTree(jsonstr);
-		JsonNode langs = node.get("prefLangs");
+		private static final Config INSTANCE = load();
 
-		for (JsonNode lang : langs) {
-			Iterator<Map.Entry<String, JsonNode>> kv = lang.fields();
-			if (kv.hasNext()) {
-				Map.Entry<String, JsonNode> obj = kv.next();
-				String langName = obj.getKey();
-				prefLangs.add(langName);
-				IdentFields.GenderMap gmap = mapper.treeToValue(obj.getValue(), IdentFields.GenderMap.class);
-				genderMap.put(langName, gmap);
+		final List<String> prefLangs;
+
+		final Map<String, GenderMap> genderMap;
+
+		private Config(List<String> prefLangs, Map<String, GenderMap> genderMap) {
+			this.prefLangs = Collections.unmodifiableList(prefLangs);
+			this.genderMap = Collections.unmodifiableMap(genderMap);
+		}
+
+		/**
+		 * @param is Is the json input stream
+		 * @throws IOException Standard exception
+		 */
+		static Config read(InputStream is) throws IOException {
+			JsonNode node = JsonUtil.readTree(new InputStreamReader(is, StandardCharsets.UTF_8));
+			List<String> prefLangs = new ArrayList<>();
+			Map<String, GenderMap> genderMap = new HashMap<>();
+			for (JsonNode lang : node.path("prefLangs")) {
+				Iterator<Map.Entry<String, JsonNode>> kv = lang.fields();
+				if (kv.hasNext()) {
+					Map.Entry<String, JsonNode> obj = kv.next();
+					String langName = obj.getKey();
+					prefLangs.add(langName);
+					genderMap.put(langName,
+							new GenderMap(texts(obj.getValue().path("male")), texts(obj.getValue().path("female"))));
+				}
 			}
+			return new Config(prefLangs, genderMap);
 		}
-	}
 
-	/**
-	 * The defined member fields in 'clazz' are the fields of interest to look for.
-	 * 
-	 * @param clazz A decoupled type whose member fields defines the fields of
-	 *              interest to search for in the input json
-	 */
+		private static Config load() {
+			try (InputStream is = IdentFields.class.getClassLoader()
+					.getResourceAsStream("identfieldsconstraint.json")) {
+				return read(is);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private static List<String> texts(JsonNode array) {
+			List<String> texts = new ArrayList<>();
+			for (JsonNode text : array) {
+				texts.add(text.asText());
+			}
+			return Collections.unmodifiableList(texts);
+		}
 
-	public IdentFields(Class<?> clazz) throws IOException {
-		Field[] fields = clazz.getDeclaredFields();
-		for (int i = 0; i < fields.length; i++) {
-			fieldsOfInterest.add(fields[i].getName());
+		/** Gender of the first preferred language, 1 for female, 2 for male. */
+		int gender(String gender) {
+			GenderMap map = genderMap.get(prefLangs.get(0));
+			if (map.female.contains(gender)) {
+				return 1;
+			}
+			if (map.male.contains(gender)) {
+				return 2;
+			}
+			return 0;
 		}
+	}
 
-		InputStream is = IdentFields.class.getClassLoader().getResourceAsStream("identfieldsconstraint.json");
-		IdentFields.setConfig(is);
+	static Config getConfig() {
+		return Config.INSTANCE;
 	}
 
 	/**
-	 * The parse method is a decoupled method, and currently it is indirectly
-	 * associated with the IdentFieldsConstraint.java class.
-	 *
-	 * The IdentFields class extracts every fields of interest. These fields of
-	 * interest are the member fields of 'clazz' parameter.
+	 * The IdentFields class extracts every fields of interest, the member fields
+	 * of IdentFieldsConstraint, from any input json.
 	 *
 	 * @param jsonstr Any input json string
-	 * @param clazz   The target type to construct based from the input json
-	 * @return
-	 * @throws IOException               Standard exception
-	 * @throws NoSuchMethodException     Standard exception
-	 * @throws IllegalAccessException    Standard exception
-	 * @throws InvocationTargetException Standard exception
-	 * @throws InstantiationException    Standard exception
+	 * @return the fields found
+	 * @throws IOException              Standard exception
+	 * @throws IllegalArgumentException if a value does not fit its field
 	 */
 
-	public static Object parse(String jsonstr, Class<?> clazz) throws IOException, NoSuchMethodException,
-			IllegalAccessException, InstantiationException, InvocationTargetException {
-		ObjectMapper objectMapper = new ObjectMapper();
-		JsonNode jnode = objectMapper.readTree(jsonstr);
-
-		IdentFields idf = new IdentFields(clazz);
-		idf.traverse(jnode);
-
-		@SuppressWarnings("rawtypes")
-		Constructor ctor = clazz.getDeclaredConstructor(Map.class);
-		Object obj = ctor.newInstance(idf.parsedFields);
-		return obj;
+	public static IdentFieldsConstraint parse(String jsonstr) throws IOException {
+		return parse(JsonUtil.readTree(jsonstr));
 	}
 
-	@SuppressWarnings({ "incomplete-switch", "unused" })
-	private void traverse(JsonNode node) throws JsonProcessingException {
-		String keyname = "";
-
-		if (!stk.empty()) {
-			Iterator<String> iter = stk.listIterator();
-			List<String> keynames = new ArrayList<>();
-			iter.forEachRemaining(keynames::add);
-			keyname = keynames.get(keynames.size() - 1);
-		}
+	/**
+	 * Same as {@link #parse(String)} for json that is already parsed.
+	 */
+	public static IdentFieldsConstraint parse(JsonNode jnode) {
+		IdentFieldsConstraint idfc = new IdentFieldsConstraint(getConfig());
+		traverse(jnode, "", idfc);
+		return idfc;
+	}
 
+	/**
+	 * @param keyname name of the innermost key the node is found under, a value
+	 *                of an array or of json text belongs to the key holding it
+	 */
+	@SuppressWarnings("incomplete-switch")
+	private static void traverse(JsonNode node, String keyname, IdentFieldsConstraint idfc) {
 		switch (node.getNodeType()) {
 		case OBJECT:
 			Iterator<Map.Entry<String, JsonNode>> kv = node.fields();
 			while (kv.hasNext()) {
 				Map.Entry<String, JsonNode> obj = kv.next();
-				String key = obj.getKey();
-				stk.push(key);
-				traverse(obj.getValue());
-				stk.pop();
+				traverse(obj.getValue(), obj.getKey(), idfc);
 			}
-
 			break;
 
 		case ARRAY:
-			outer: for (JsonNode elem : node) {
-				ObjectMapper mapper = new ObjectMapper();
-				JsonValue localizedValue = null;
-
-				try {
-					localizedValue = mapper.treeToValue(elem, JsonValue.class);
-				} catch (MismatchedInputException e) {
-					continue;
+			for (JsonNode elem : node) {
+				if (isLocalizedValue(elem)) {
+					JsonNode value = elem.get(VALUE);
+					idfc.bind(keyname, value == null || value.isNull() ? null : value.asText());
 				}
-
-				/*
-				 * skip check prefLangs for now for (String pref : prefLangs) { if
-				 * (localizedValue.getLanguage().equals(pref)) { addKeyValue(keyname,
-				 * localizedValue.getValue()); break outer; } }
-				 */
-
-				addKeyValue(keyname, localizedValue.getValue());
 			}
 			break;
 
 		case STRING:
+			if (node.asText().trim().isEmpty()) {
+				// blank text holds no json value and no text value either
+				break;
+			}
 			// still need to check if the string is a json string
-			try {
-				JsonNode jsonnode = new ObjectMapper().readTree(node.asText());
-				traverse(jsonnode);
-			} catch (Exception e) {
-				addKeyValue(keyname, node.asText());
+			JsonNode jsonnode = embeddedJson(node.asText());
+			if (jsonnode != null) {
+				traverse(jsonnode, keyname, idfc);
+			} else {
+				idfc.bind(keyname, node.asText());
 			}
 			break;
 
 		case NUMBER:
-			addKeyValue(keyname, node.numberValue());
+			idfc.bind(keyname, node.numberValue());
 			break;
 
 		case BOOLEAN:
-			addKeyValue(keyname, node.booleanValue());
+			idfc.bind(keyname, node.booleanValue());
 			break;
 
 		case NULL:
-			addKeyValue(keyname, "");
+			idfc.bind(keyname, "");
 			break;
 		}
 	}
 
-	private void addKeyValue(String key, Object value) {
-		if (fieldsOfInterest.contains(key)) {
-			parsedFields.put(key, value);
+	/**
+	 * Whether an array element is a {language, value} pair. Elements with other
+	 * members or with nested values are not, and are skipped.
+	 */
+	private static boolean isLocalizedValue(JsonNode elem) {
+		if (!elem.isObject()) {
+			return false;
+		}
+		Iterator<Map.Entry<String, JsonNode>> kv = elem.fields();
+		while (kv.hasNext()) {
+			Map.Entry<String, JsonNode> obj = kv.next();
+			if (!LANGUAGE.equals(obj.getKey()) && !VALUE.equals(obj.getKey()) || obj.getValue().isContainerNode()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The json a non blank string value holds, null if it is plain text.
+	 */
+	private static JsonNode embeddedJson(String text) {
+		String trimmed = text.trim();
+		if (JSON_START.indexOf(trimmed.charAt(0)) < 0) {
+			return null;
+		}
+		try {
+			return JsonUtil.readTree(text);
+		} catch (IOException e) {
+			return null;
 		}
 	}
 }
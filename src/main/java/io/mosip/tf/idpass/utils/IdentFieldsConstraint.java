@@ -5,7 +5,6 @@ import org.api.proto.Ident;
 import org.idpass.lite.proto.Pair;
 import org.idpass.lite.proto.PostalAddress;
 
-import java.lang.reflect.Field;
 import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -55,6 +54,12 @@ public class IdentFieldsConstraint {
     private String firstName;
     private String fullName;
 
+    /** Date format of dateOfBirth. TODO: move to config? or list of possible combinations */
+    private static final DateTimeFormatter DATE_OF_BIRTH_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/d");
+
+    /** The identfieldsconstraint.json configuration. */
+    private final IdentFields.Config config;
+
     public String getFullName() {
         return fullName;
     }
@@ -123,24 +128,31 @@ public class IdentFieldsConstraint {
     }
 
     /**
-     * This maps a member fields of this class to an associated
-     * display string value in the map. For example,
+     * This maps an extra to its member field of this class. For example,
      * "Email" is the key and its value is from the "email"
      * member field of this class instance.
-     *
-     * This is just to avoid the long repeated 'if' checks, when
-     * done manually.
      */
 
-    private static Map<String, Extras> mbuilde = new HashMap<>() {{
-        put("age", Extras.AGE);
-        put("phone",Extras.PHONE);
-        put("parentOrGuardianName",Extras.GUARDIANNAME);
-        put("parentOrGuardianRID",Extras.GUARDIANRID);
-        put("parentOrGuardianUIN",Extras.GUARDIANUIN);
-        put("id",Extras.ID);
-        put("email",Extras.EMAIL);
-    }};
+    private Object extraValue(Extras extra) {
+        switch (extra) {
+            case AGE:
+                return age;
+            case PHONE:
+                return phone;
+            case GUARDIANNAME:
+                return parentOrGuardianName;
+            case GUARDIANRID:
+                return parentOrGuardianRID;
+            case GUARDIANUIN:
+                return parentOrGuardianUIN;
+            case ID:
+                return id;
+            case EMAIL:
+                return email;
+            default:
+                return null;
+        }
+    }
 
     public Number getId() {
         return id;
@@ -215,46 +227,75 @@ public class IdentFieldsConstraint {
     }
 
     /**
-     * The only constructor that accepts a map of found key/value pairs
-     * when the input json is traversed and using this class to provide the
-     * fields of interest.
-     * @param m Is a map of found key/value pairs from an input json
+     * Creates an empty instance that IdentFields fills in while the input
+     * json is traversed, using this class to provide the fields of interest.
+     * @param config Is the identfieldsconstraint.json configuration
      */
 
-    public IdentFieldsConstraint(Map<String, Object> m)
-            throws IllegalAccessException, NoSuchFieldException
-    {
-        for (Map.Entry<String, Object> melem : m.entrySet()) {
-
-            String k = melem.getKey(); // k comes from m
-
-            Field kfield = IdentFieldsConstraint.class.getDeclaredField(k);
-            String ktyp = kfield.getType().getCanonicalName(); // ktyp comes from IdentFieldsConstraint field
-
-            try {
-                switch (ktyp) {
-                    case "java.lang.String":
-                        String v = new String(melem.getValue().toString());
-                        kfield.set(this, v);
-                        break;
-
-                    case "java.lang.Number":
-                        Number num = (Number) melem.getValue();
-                        kfield.set(this, num);
-                        break;
-
-                    case "java.time.LocalDate":
-                        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy/MM/d"); /// TODO: move to config? or list of possible combinations
-                        LocalDate dob = LocalDate.parse(melem.getValue().toString(), formatter);
-                        kfield.set(this, dob);
-                        break;
-                }
+    IdentFieldsConstraint(IdentFields.Config config) {
+        this.config = config;
+    }
 
-            } catch (DateTimeException e) {
-                // Continue parsing the fields because the error fields could be
-                // optional. The final check of field presence/absence is checked
-                // within isValid() method
-            }
+    /**
+     * Sets the member field of the key name to a value found in the input
+     * json, keys that are not fields of interest are ignored. A later value
+     * replaces an earlier one.
+     * @param k Is the key name the value was found under
+     * @param value Is the value found
+     * @throws IllegalArgumentException if the value does not render to the
+     *         field type
+     */
+
+    void bind(String k, Object value) {
+        switch (k) {
+            case "UIN": UIN = number(k, value); break;
+            case "gender": gender = string(k, value); break;
+            case "placeOfBirth": placeOfBirth = string(k, value); break;
+            case "dateOfBirth": dateOfBirth = date(k, value); break;
+            case "addressLine1": addressLine1 = string(k, value); break;
+            case "addressLine2": addressLine2 = string(k, value); break;
+            case "addressLine3": addressLine3 = string(k, value); break;
+            case "region": region = string(k, value); break;
+            case "province": province = string(k, value); break;
+            case "city": city = string(k, value); break;
+            case "postalCode": postalCode = string(k, value); break;
+            case "age": age = number(k, value); break;
+            case "phone": phone = string(k, value); break;
+            case "email": email = string(k, value); break;
+            case "localAdministrativeAuthority": localAdministrativeAuthority = string(k, value); break;
+            case "parentOrGuardianName": parentOrGuardianName = string(k, value); break;
+            case "parentOrGuardianRID": parentOrGuardianRID = number(k, value); break;
+            case "parentOrGuardianUIN": parentOrGuardianUIN = number(k, value); break;
+            case "id": id = number(k, value); break;
+            case "lastName": lastName = string(k, value); break;
+            case "firstName": firstName = string(k, value); break;
+            case "fullName": fullName = string(k, value); break;
+            default: break;
+        }
+    }
+
+    private static String string(String k, Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException(k + " has no value");
+        }
+        return value.toString();
+    }
+
+    private static Number number(String k, Object value) {
+        if (value != null && !(value instanceof Number)) {
+            throw new IllegalArgumentException(k + " is not a number");
+        }
+        return (Number) value;
+    }
+
+    private static LocalDate date(String k, Object value) {
+        try {
+            return LocalDate.parse(string(k, value), DATE_OF_BIRTH_FORMAT);
+        } catch (DateTimeException e) {
+            // Continue parsing the fields because the error fields could be
+            // optional. The final check of field presence/absence is checked
+            // within isValid() method
+            return null;
         }
     }
 
@@ -302,23 +343,7 @@ public class IdentFieldsConstraint {
      */
 
     public int getGender() {
-        String lang = IdentFields.prefLangs.get(0);
-        List<String> male = IdentFields.genderMap.get(lang).male;
-        List<String> female = IdentFields.genderMap.get(lang).female;
-
-        for (String s : female) {
-            if (s.equals(gender)) {
-                return 1;
-            }
-        }
-
-        for (String s : male) {
-            if (s.equals(gender)) {
-                return 2;
-            }
-        }
-
-        return 0;
+        return config.gender(gender);
     }
 
     public String getPlaceOfBirth() {
@@ -427,26 +452,16 @@ public class IdentFieldsConstraint {
             idb.setDateOfBirth(dobProto);
         }
 
-        try {
+        for (Extras extra : Extras.values()) {
+            Object fieldValue = extraValue(extra);
 
-            for (Map.Entry<String, Extras> melem : mbuilde.entrySet()) {
-                String fieldName = melem.getKey();
-                Extras extra = melem.getValue();
-                Field field = IdentFieldsConstraint.class.getDeclaredField(fieldName);
-                Object fieldValue = field.get(this);
-
-                if (fieldValue != null) {
-                    if (extra.isVisible()) {
-                        idb.addPubExtra(Pair.newBuilder().setKey(extra.toString()).setValue(fieldValue.toString()));
-                    } else {
-                        idb.addPrivExtra(Pair.newBuilder().setKey(extra.toString()).setValue(fieldValue.toString()));
-                    }
+            if (fieldValue != null) {
+                if (extra.isVisible()) {
+                    idb.addPubExtra(Pair.newBuilder().setKey(extra.toString()).setValue(fieldValue.toString()));
+                } else {
+                    idb.addPrivExtra(Pair.newBuilder().setKey(extra.toString()).setValue(fieldValue.toString()));
                 }
             }
-
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-            // only goes here if there is incorrectly spelled
-            // member field
         }
 
         return idb;
@@ -0,0 +1,106 @@
+package io.mosip.id.pass.test.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.mosip.tf.idpass.util.IdentityMappingPlan;
+import io.mosip.tf.idpass.util.JsonUtil;
+
+/**
+ * Template attributes of one card, from the mapping json parsed for the card
+ * as before and from the compiled plan.
+ *
+ * Run with mvn -Pbenchmark test -Dbenchmark=IdentityMappingBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdentityMappingBenchmark {
+
+	private static final String IDENTITY = "identity";
+
+	private static final String SUPPORTED_LANG = "eng,ara";
+
+	private String mappingJson;
+
+	private IdentityMappingPlan plan;
+
+	private ObjectNode credentialSubject;
+
+	@Setup
+	public void setUp() throws IOException {
+		try (InputStream in = getClass().getClassLoader().getResourceAsStream("RegistrationProcessorIdentity.json")) {
+			mappingJson = IOUtils.toString(in, StandardCharsets.UTF_8);
+		}
+		plan = IdentityMappingPlan.compile(mappingJson, IDENTITY);
+		credentialSubject = JsonNodeFactory.instance.objectNode();
+		for (String field : plan.getFields()) {
+			credentialSubject.put(field, "[{\"language\":\"eng\",\"value\":\"" + field
+					+ "\"},{\"language\":\"ara\",\"value\":\"" + field + "\"}]");
+		}
+		credentialSubject.put("dateOfBirth", "1990/01/01");
+		credentialSubject.putObject("gender").put("value", "Female");
+	}
+
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public Map<String, Object> parsedPerCard() throws IOException {
+		Map<String, Object> attributes = new LinkedHashMap<>();
+		JSONObject mapperJson = JsonUtil.objectMapperReadValue(mappingJson, JSONObject.class);
+		JSONObject mapperIdentity = JsonUtil.getJSONObject(mapperJson, IDENTITY);
+		for (Object key : mapperIdentity.keySet()) {
+			LinkedHashMap<String, String> jsonObject = JsonUtil.getJSONValue(mapperIdentity, (String) key);
+			for (String value : jsonObject.get("value").split(",")) {
+				JsonNode node = credentialSubject.get(value);
+				if (node == null || node.isNull()) {
+					continue;
+				}
+				JsonNode obj = node.isTextual() && node.asText().startsWith("[") ? JsonUtil.readTree(node.asText())
+						: node;
+				if (obj.isArray()) {
+					for (JsonNode jsonValue : obj) {
+						String language = jsonValue.path("language").asText();
+						if (SUPPORTED_LANG.contains(language))
+							attributes.put(value + "_" + language, jsonValue.path("value").asText(null));
+					}
+				} else if (node.isObject()) {
+					attributes.put(value, node.path("value").asText(null));
+				} else {
+					attributes.put(value, node.asText());
+				}
+			}
+		}
+		return attributes;
+	}
+
+	@Benchmark
+	public Map<String, Object> compiledPlan() {
+		Map<String, Object> attributes = new LinkedHashMap<>();
+		plan.apply(credentialSubject, SUPPORTED_LANG, attributes);
+		return attributes;
+	}
+}
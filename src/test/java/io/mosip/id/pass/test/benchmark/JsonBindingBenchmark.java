@@ -0,0 +1,132 @@
+package io.mosip.id.pass.test.benchmark;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.mosip.tf.idpass.dto.DataShareResponseDto;
+import io.mosip.tf.idpass.dto.JsonValue;
+import io.mosip.tf.idpass.dto.SignatureResponseDto;
+import io.mosip.tf.idpass.dto.TemplateResponseDto;
+import io.mosip.tf.idpass.util.JsonUtil;
+
+/**
+ * Binding of the kernel responses and localized values, with a mapper
+ * created per call and reflection as before, and with the shared readers of
+ * JsonUtil.
+ *
+ * Run with mvn -Pbenchmark test -Dbenchmark=JsonBindingBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBindingBenchmark {
+
+	private static final String DATA_SHARE = "{\"id\":\"mosip.data.share\",\"version\":\"1.0\","
+			+ "\"responsetime\":\"2021-01-07T16:34:08.216Z\",\"dataShare\":{\"url\":\"http://datashare/1\","
+			+ "\"validForInMinutes\":60,\"transactionsAllowed\":1,\"policyId\":\"policy\","
+			+ "\"subscriberId\":\"partner\",\"signature\":\"c2lnbmVk\"},\"errors\":[]}";
+
+	private Map<String, Object> signatureResponse;
+
+	private Map<String, Object> templateResponse;
+
+	private JSONArray localizedValues;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		signatureResponse = new LinkedHashMap<>();
+		signatureResponse.put("data", "c2lnbmVk");
+		Map<String, Object> template = new LinkedHashMap<>();
+		template.put("id", "1");
+		template.put("fileFormatCode", "html");
+		template.put("fileText", "<html>$fullName_eng</html>");
+		template.put("langCode", "eng");
+		template.put("isActive", true);
+		templateResponse = Collections.singletonMap("templates", Collections.singletonList(template));
+		localizedValues = new JSONArray();
+		for (String language : new String[] { "eng", "ara", "fra" }) {
+			Map<String, Object> value = new LinkedHashMap<>();
+			value.put("language", language);
+			value.put("value", "Taleev Aalam");
+			localizedValues.add(value);
+		}
+	}
+
+	@Benchmark
+	public SignatureResponseDto signatureMapperPerCall() throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		return mapper.readValue(mapper.writeValueAsString(signatureResponse), SignatureResponseDto.class);
+	}
+
+	@Benchmark
+	public SignatureResponseDto signatureSharedReader() throws IOException {
+		return JsonUtil.readSignatureResponse(signatureResponse);
+	}
+
+	@Benchmark
+	public TemplateResponseDto templateMapperPerCall() throws IOException {
+		ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		return mapper.readValue(mapper.writeValueAsString(templateResponse), TemplateResponseDto.class);
+	}
+
+	@Benchmark
+	public TemplateResponseDto templateSharedReader() throws IOException {
+		return JsonUtil.readTemplateResponse(templateResponse);
+	}
+
+	@Benchmark
+	public DataShareResponseDto dataShareMapperPerCall() throws IOException {
+		return new ObjectMapper().readValue(DATA_SHARE, DataShareResponseDto.class);
+	}
+
+	@Benchmark
+	public DataShareResponseDto dataShareSharedReader() throws IOException {
+		return JsonUtil.readDataShareResponse(DATA_SHARE);
+	}
+
+	@Benchmark
+	public JsonValue[] jsonValuesReflection() throws ReflectiveOperationException {
+		JsonValue[] jsonValues = new JsonValue[localizedValues.size()];
+		for (int i = 0; i < localizedValues.size(); i++) {
+			JsonValue jsonValue = JsonValue.class.getDeclaredConstructor().newInstance();
+			JSONObject object = JsonUtil.getJSONObjectFromArray(localizedValues, i);
+			Field language = jsonValue.getClass().getDeclaredField("language");
+			language.setAccessible(true);
+			language.set(jsonValue, object.get("language"));
+			Field value = jsonValue.getClass().getDeclaredField("value");
+			value.setAccessible(true);
+			value.set(jsonValue, object.get("value"));
+			jsonValues[i] = jsonValue;
+		}
+		return jsonValues;
+	}
+
+	@Benchmark
+	public JsonValue[] jsonValuesDirect() {
+		return JsonUtil.toJsonValues(localizedValues);
+	}
+}
@@ -1,7 +1,17 @@
 package io.mosip.id.pass.test.controller;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -14,8 +24,10 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -24,7 +36,11 @@ import io.mosip.id.pass.test.TestBootApplication;
 import io.mosip.tf.idpass.controller.Print;
 import io.mosip.tf.idpass.model.Event;
 import io.mosip.tf.idpass.model.EventModel;
+import io.mosip.tf.idpass.model.PrintBatch;
+import io.mosip.tf.idpass.model.PrintBatchItem;
+import io.mosip.tf.idpass.service.PrintJobDispatcher;
 import io.mosip.tf.idpass.service.PrintService;
+import io.mosip.tf.idpass.util.PrintEventDeduplicator;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(classes = TestBootApplication.class)
@@ -37,6 +53,12 @@ public class PrintControllerTest {
 	@Mock
 	PrintService printService;
 
+	@Mock
+	PrintJobDispatcher printJobDispatcher;
+
+	@Mock
+	PrintEventDeduplicator printEventDeduplicator;
+
 	private MockMvc mockMvc;
 
 	Gson gson = new GsonBuilder().serializeNulls().create();
@@ -50,6 +72,9 @@ public class PrintControllerTest {
 	@Before
 	public void setup() throws Exception {
 		MockitoAnnotations.initMocks(this);
+		ReflectionTestUtils.setField(printController, "batchMaxSize", 2);
+		Mockito.when(printEventDeduplicator.execute(Mockito.any(), Mockito.any()))
+				.thenAnswer(invocation -> invocation.<Callable<Boolean>>getArgument(1).call());
 		this.mockMvc = MockMvcBuilders.standaloneSetup(printController).build();
 		credentialEvent = new EventModel();
 		Event event=new Event();
@@ -68,4 +93,71 @@ public class PrintControllerTest {
 				.andExpect(status().isOk());
 	}
 
+	@Test
+	public void testHandleSubscribeEventAccepted() throws Exception {
+		Mockito.when(printJobDispatcher.isEnabled()).thenReturn(true);
+		Mockito.when(printJobDispatcher.dispatch(Mockito.any())).thenReturn(true);
+		mockMvc.perform(MockMvcRequestBuilders.post("/print/callback/notifyPrint")
+				.contentType(MediaType.APPLICATION_JSON_VALUE).content(reqCredentialEventJson.getBytes()))
+				.andExpect(status().isAccepted());
+		Mockito.verify(printService, Mockito.never()).generateCard(Mockito.any());
+	}
+
+	@Test
+	public void testHandleSubscribeEventQueueFull() throws Exception {
+		Mockito.when(printJobDispatcher.isEnabled()).thenReturn(true);
+		Mockito.when(printJobDispatcher.dispatch(Mockito.any())).thenReturn(false);
+		Mockito.when(printJobDispatcher.getRetryAfterSeconds()).thenReturn(30);
+		mockMvc.perform(MockMvcRequestBuilders.post("/print/callback/notifyPrint")
+				.contentType(MediaType.APPLICATION_JSON_VALUE).content(reqCredentialEventJson.getBytes()))
+				.andExpect(status().isServiceUnavailable()).andExpect(header().string("Retry-After", "30"));
+	}
+
+	@Test
+	public void testHandleBatchEventStreamsResults() throws Exception {
+		PrintBatchItem printed = new PrintBatchItem();
+		printed.setIndex(0);
+		printed.setEventId("test123");
+		printed.setPrinted(true);
+		PrintBatchItem failed = new PrintBatchItem();
+		failed.setIndex(1);
+		failed.setEventId("test456");
+		failed.setError("credential rejected by verification");
+		Mockito.when(printService.generateCards(Mockito.any())).thenReturn(new PrintBatch(
+				Arrays.asList(CompletableFuture.completedFuture(printed), CompletableFuture.completedFuture(failed)),
+				System.nanoTime()));
+		MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/print/batch/notifyPrint")
+				.contentType(MediaType.APPLICATION_JSON_VALUE)
+				.content(gson.toJson(Arrays.asList(credentialEvent, credentialEvent)).getBytes()))
+				.andExpect(request().asyncStarted()).andReturn();
+		String body = mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andReturn().getResponse()
+				.getContentAsString();
+		String[] lines = body.split("\n");
+		assertEquals(3, lines.length);
+		assertTrue(lines[0].contains("\"eventId\":\"test123\""));
+		assertTrue(lines[1].contains("\"printed\":false"));
+		assertTrue(lines[2].contains("\"summary\"") && lines[2].contains("\"printed\":1")
+				&& lines[2].contains("\"failed\":1"));
+	}
+
+	@Test
+	public void testHandleBatchEventRefusedByFullWorkers() throws Exception {
+		Mockito.when(printService.generateCards(Mockito.any()))
+				.thenThrow(new RejectedExecutionException("batch queue has no room for 2 cards"));
+		Mockito.when(printJobDispatcher.getRetryAfterSeconds()).thenReturn(30);
+		mockMvc.perform(MockMvcRequestBuilders.post("/print/batch/notifyPrint")
+				.contentType(MediaType.APPLICATION_JSON_VALUE)
+				.content(gson.toJson(Arrays.asList(credentialEvent, credentialEvent)).getBytes()))
+				.andExpect(status().isServiceUnavailable()).andExpect(header().string("Retry-After", "30"));
+	}
+
+	@Test
+	public void testHandleBatchEventTooLarge() throws Exception {
+		mockMvc.perform(MockMvcRequestBuilders.post("/print/batch/notifyPrint")
+				.contentType(MediaType.APPLICATION_JSON_VALUE)
+				.content(gson.toJson(Arrays.asList(credentialEvent, credentialEvent, credentialEvent)).getBytes()))
+				.andExpect(status().isPayloadTooLarge());
+		Mockito.verify(printService, Mockito.never()).generateCards(Mockito.any());
+	}
+
 }
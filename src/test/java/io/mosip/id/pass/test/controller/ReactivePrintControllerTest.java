@@ -0,0 +1,135 @@
+package io.mosip.id.pass.test.controller;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.controller.ReactivePrint;
+import io.mosip.tf.idpass.model.Event;
+import io.mosip.tf.idpass.model.EventModel;
+import io.mosip.tf.idpass.service.PrintJobDispatcher;
+import io.mosip.tf.idpass.service.PrintService;
+import io.mosip.tf.idpass.util.PrintEventDeduplicator;
+import io.mosip.tf.idpass.util.ReactiveRestApiClient;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TestBootApplication.class)
+public class ReactivePrintControllerTest {
+
+	@InjectMocks
+	private ReactivePrint reactivePrint;
+
+	@Mock
+	PrintService printService;
+
+	@Mock
+	PrintJobDispatcher printJobDispatcher;
+
+	@Mock
+	PrintEventDeduplicator printEventDeduplicator;
+
+	@Mock
+	ReactiveRestApiClient reactiveRestApiClient;
+
+	private Scheduler scheduler = Schedulers.newSingle("print-worker-test");
+
+	private EventModel eventModel;
+
+	@Before
+	public void setup() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		ReflectionTestUtils.setField(reactivePrint, "printWorkerScheduler", scheduler);
+		ReflectionTestUtils.setField(reactivePrint, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(reactivePrint, "retryAfterSeconds", 7);
+		Mockito.when(printEventDeduplicator.executeAsync(Mockito.any(), Mockito.any()))
+				.thenAnswer(invocation -> invocation.<Supplier<CompletableFuture<Boolean>>>getArgument(1).get());
+		Mockito.when(printService.printCredential(Mockito.any(), Mockito.eq("encrypted"))).thenReturn(true);
+		Map<String, Object> data = new HashMap<>();
+		data.put("credential", "encrypted");
+		Event event = new Event();
+		event.setId("test123");
+		event.setData(data);
+		eventModel = new EventModel();
+		eventModel.setEvent(event);
+	}
+
+	@After
+	public void tearDown() {
+		scheduler.dispose();
+	}
+
+	@Test
+	public void testCardIsPrintedOnTheWorkers() throws Exception {
+		ReflectionTestUtils.setField(reactivePrint, "maxInFlight", 1);
+		reactivePrint.init();
+		ResponseEntity<String> response = reactivePrint.handleSubscribeEvent(eventModel).block();
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		Mockito.verify(printService).printCredential(eventModel, "encrypted");
+		// the permit is back
+		assertEquals(HttpStatus.OK, reactivePrint.handleSubscribeEvent(eventModel).block().getStatusCode());
+	}
+
+	@Test
+	public void testEventIsRefusedWhenTooManyCardsAreInFlight() throws Exception {
+		ReflectionTestUtils.setField(reactivePrint, "maxInFlight", 0);
+		reactivePrint.init();
+		ResponseEntity<String> response = reactivePrint.handleSubscribeEvent(eventModel).block();
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+		assertEquals("7", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+		Mockito.verify(printService, Mockito.never()).printCredential(Mockito.any(), Mockito.any());
+	}
+
+	@Test
+	public void testDispatchRefusedByFullWorkersIsUnavailable() throws Exception {
+		ReflectionTestUtils.setField(reactivePrint, "printWorkerScheduler", refusingScheduler());
+		Mockito.when(printJobDispatcher.isEnabled()).thenReturn(true);
+		Mockito.when(printJobDispatcher.getRetryAfterSeconds()).thenReturn(9);
+		reactivePrint.init();
+		ResponseEntity<String> response = reactivePrint.handleSubscribeEvent(eventModel).block();
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+		assertEquals("9", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+		Mockito.verify(printJobDispatcher, Mockito.never()).dispatch(Mockito.any());
+	}
+
+	@Test
+	public void testBatchRefusedByFullWorkersIsUnavailable() throws Exception {
+		ReflectionTestUtils.setField(reactivePrint, "printWorkerScheduler", refusingScheduler());
+		ReflectionTestUtils.setField(reactivePrint, "batchMaxSize", 10);
+		reactivePrint.init();
+		ResponseEntity<?> response = reactivePrint.handleBatchEvent(Collections.singletonList(eventModel)).block();
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+		assertEquals("7", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+	}
+
+	/** Workers whose queue is full, they refuse every task. */
+	private Scheduler refusingScheduler() {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		executor.shutdown();
+		return Schedulers.fromExecutorService(executor);
+	}
+}
@@ -1,11 +1,23 @@
 package io.mosip.id.pass.test.service.impl;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
@@ -18,12 +30,19 @@ import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.env.Environment;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import io.mosip.id.pass.test.TestBootApplication;
 import io.mosip.kernel.core.util.CryptoUtil;
 import io.mosip.tf.idpass.constant.QrVersion;
+import io.mosip.tf.idpass.dto.CryptoWithPinRequestDto;
+import io.mosip.tf.idpass.dto.CryptoWithPinResponseDto;
 import io.mosip.tf.idpass.dto.IdResponseDTO1;
 import io.mosip.tf.idpass.dto.ResponseDTO;
+import io.mosip.tf.idpass.exception.CryptoManagerException;
 import io.mosip.tf.idpass.model.EventModel;
 import io.mosip.tf.idpass.service.PrintRestClientService;
 import io.mosip.tf.idpass.service.UinCardGenerator;
@@ -34,6 +53,8 @@ import io.mosip.tf.idpass.util.CryptoCoreUtil;
 import io.mosip.tf.idpass.util.JsonUtil;
 import io.mosip.tf.idpass.util.TemplateGenerator;
 import io.mosip.tf.idpass.util.Utilities;
+import io.mosip.tf.idpass.util.VerificationResultCache;
+import io.mosip.vercred.CredentialsVerifier;
 
 
 @SpringBootTest(classes = TestBootApplication.class)
@@ -76,9 +97,18 @@ public class PrintServiceTest {
 	@Mock
 	private CryptoUtil cryptoUtil;
 
+	@Mock
+	private io.mosip.tf.idpass.util.CryptoUtil pinCryptoUtil;
+
 	@Mock
 	private CbeffUtil cbeffutil;
 
+	@Mock
+	private CredentialsVerifier credentialsVerifier;
+
+	@Mock
+	private VerificationResultCache verificationResultCache;
+
 	private ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
 
 	private EventModel eventModel;
@@ -111,7 +141,8 @@ public class PrintServiceTest {
 		Mockito.when(utility.getConfigServerFileStorageURL()).thenReturn("configUrl");
 		Mockito.when(utility.getGetRegProcessorIdentityJson()).thenReturn(mappingFileJson);
 		Mockito.when(utility.getRegistrationProcessorPrintTextFile()).thenReturn(printTextFileJson);
-		Mockito.when(cryptoCoreUtil.decrypt(any())).thenReturn(decryptedJson);
+		Mockito.when(cryptoCoreUtil.decryptReader(any())).thenAnswer(invocation -> new StringReader(decryptedJson));
+		ReflectionTestUtils.setField(printServiceImpl, "batchQueueCapacity", 100);
 
 	}
 
@@ -124,4 +155,128 @@ public class PrintServiceTest {
 		printServiceImpl.generateCard(eventModel);
 	}
 
+	@Test
+	public void testProtectedAttributesAreDecryptedTogether() throws Exception {
+		ReflectionTestUtils.setField(printServiceImpl, "batchThreads", 1);
+		ReflectionTestUtils.setField(printServiceImpl, "attributeThreads", 2);
+		printServiceImpl.init();
+		try {
+			Mockito.when(pinCryptoUtil.decryptWithPin(any())).thenAnswer(invocation -> {
+				CryptoWithPinRequestDto request = invocation.getArgument(0);
+				CryptoWithPinResponseDto response = new CryptoWithPinResponseDto();
+				response.setData("plain " + request.getData());
+				return response;
+			});
+			ObjectNode data = JsonNodeFactory.instance.objectNode().put("a", "A").put("b", "B").put("c", "C").put("d", "D");
+			printServiceImpl.decryptAttribute(data, "pin", Arrays.asList("a", "b", "c"));
+			assertEquals("plain A", data.get("a").asText());
+			assertEquals("plain B", data.get("b").asText());
+			assertEquals("plain C", data.get("c").asText());
+			assertEquals("D", data.get("d").asText());
+		} finally {
+			printServiceImpl.shutdown();
+		}
+	}
+
+	@Test
+	public void testNoAttributeIsReplacedWhenOneFails() throws Exception {
+		ReflectionTestUtils.setField(printServiceImpl, "batchThreads", 1);
+		ReflectionTestUtils.setField(printServiceImpl, "attributeThreads", 2);
+		printServiceImpl.init();
+		try {
+			Mockito.when(pinCryptoUtil.decryptWithPin(any())).thenAnswer(invocation -> {
+				CryptoWithPinRequestDto request = invocation.getArgument(0);
+				if (request.getData().equals("B")) {
+					throw new InvalidKeyException("wrong pin");
+				}
+				CryptoWithPinResponseDto response = new CryptoWithPinResponseDto();
+				response.setData("plain " + request.getData());
+				return response;
+			});
+			ObjectNode data = JsonNodeFactory.instance.objectNode().put("a", "A").put("b", "B").put("c", "C");
+			try {
+				printServiceImpl.decryptAttribute(data, "pin", Arrays.asList("a", "b", "c"));
+				fail("one attribute could not be decrypted");
+			} catch (CryptoManagerException e) {
+				assertEquals("A", data.get("a").asText());
+				assertEquals("C", data.get("c").asText());
+			}
+		} finally {
+			printServiceImpl.shutdown();
+		}
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void testBatchWithoutRoomIsRefused() throws Exception {
+		ReflectionTestUtils.setField(printServiceImpl, "batchThreads", 1);
+		ReflectionTestUtils.setField(printServiceImpl, "batchQueueCapacity", 2);
+		printServiceImpl.init();
+		try {
+			printServiceImpl.generateCards(Arrays.asList(eventModel, eventModel, eventModel));
+		} finally {
+			printServiceImpl.shutdown();
+		}
+	}
+
+	@Test
+	public void testRejectedCredentialStopsSpeculativeDecryption() throws Exception {
+		ReflectionTestUtils.setField(printServiceImpl, "batchThreads", 1);
+		ReflectionTestUtils.setField(printServiceImpl, "attributeThreads", 1);
+		ReflectionTestUtils.setField(printServiceImpl, "verifyCredentialsFlag", true);
+		ReflectionTestUtils.setField(printServiceImpl, "overlapVerification", true);
+		printServiceImpl.init();
+		try {
+			decryptedJson = "{\"credentialSubject\":{\"a\":\"A\",\"b\":\"B\",\"c\":\"C\"},"
+					+ "\"protectedAttributes\":[\"a\",\"b\",\"c\"]}";
+			CountDownLatch decrypting = new CountDownLatch(1);
+			AtomicInteger decryptions = new AtomicInteger();
+			Mockito.when(pinCryptoUtil.decryptWithPin(any())).thenAnswer(invocation -> {
+				decryptions.incrementAndGet();
+				decrypting.countDown();
+				Thread.sleep(100);
+				CryptoWithPinResponseDto response = new CryptoWithPinResponseDto();
+				response.setData("plain");
+				return response;
+			});
+			// the verification fails while the first attribute is decrypted
+			Mockito.when(credentialsVerifier.verifyPrintCredentials(any()))
+					.thenAnswer(invocation -> !decrypting.await(5, TimeUnit.SECONDS));
+			assertFalse(printServiceImpl.printCredential(eventModel, "credential"));
+			Thread.sleep(300);
+			assertTrue(decryptions.get() < 3);
+			Mockito.verifyNoInteractions(templateGenerator, uinCardGenerator);
+		} finally {
+			printServiceImpl.shutdown();
+		}
+	}
+
+	@Test
+	public void testRejectedCredentialStopsSpeculativeExtraction() throws Exception {
+		ReflectionTestUtils.setField(printServiceImpl, "batchThreads", 1);
+		ReflectionTestUtils.setField(printServiceImpl, "attributeThreads", 1);
+		ReflectionTestUtils.setField(printServiceImpl, "verifyCredentialsFlag", true);
+		ReflectionTestUtils.setField(printServiceImpl, "overlapVerification", true);
+		printServiceImpl.init();
+		try {
+			decryptedJson = "{\"credentialSubject\":{\"UIN\":\"4918691365\",\"biometrics\":\"Y2JlZmY=\"},"
+					+ "\"protectedAttributes\":[]}";
+			eventModel.getEvent().getData().put("credentialType", "euin");
+			CountDownLatch extracting = new CountDownLatch(1);
+			Mockito.when(cbeffutil.getBIRDataFromXML(any())).thenAnswer(invocation -> {
+				extracting.countDown();
+				Thread.sleep(200);
+				return Collections.emptyList();
+			});
+			// the verification fails while the photo is extracted
+			Mockito.when(credentialsVerifier.verifyPrintCredentials(any()))
+					.thenAnswer(invocation -> !extracting.await(5, TimeUnit.SECONDS));
+			assertFalse(printServiceImpl.printCredential(eventModel, "credential"));
+			Thread.sleep(400);
+			Mockito.verify(utility, Mockito.never()).getIdentityMappingJson(any(), any());
+			Mockito.verify(utility, Mockito.never()).getPrintTextFileJson(any(), any());
+		} finally {
+			printServiceImpl.shutdown();
+		}
+	}
+
 }
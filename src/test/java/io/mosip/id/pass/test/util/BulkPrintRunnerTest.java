@@ -0,0 +1,92 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.model.EventModel;
+import io.mosip.tf.idpass.service.PrintService;
+import io.mosip.tf.idpass.util.BulkPrintRunner;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class BulkPrintRunnerTest {
+
+	private File dir;
+
+	private PrintService printService = Mockito.mock(PrintService.class);
+
+	@Before
+	public void setUp() throws Exception {
+		dir = Files.createTempDirectory("print-bulk").toFile();
+		Mockito.when(printService.generateCardPdf(Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+			EventModel eventModel = invocation.getArgument(0);
+			if ("bad".equals(eventModel.getEvent().getData().get("credential"))) {
+				throw new IllegalStateException("cannot decrypt");
+			}
+			return ("pdf " + eventModel.getEvent().getId()).getBytes(StandardCharsets.UTF_8);
+		});
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(dir);
+	}
+
+	@Test
+	public void testRunWritesPdfsAndResumesFromCheckpoint() throws Exception {
+		File input = new File(dir, "credentials.ndjson");
+		Files.write(input.toPath(), Arrays.asList(
+				"{\"id\":\"card1\",\"credential\":\"c1\",\"protectionKey\":\"k1\"}",
+				"{\"event\":{\"id\":\"card2\",\"data\":{\"credential\":\"c2\",\"protectionKey\":\"k2\",\"credentialType\":\"euin\"}}}",
+				"{\"id\":\"card3\",\"credential\":\"bad\",\"protectionKey\":\"k3\"}"), StandardCharsets.UTF_8);
+		File output = new File(dir, "out");
+
+		runner(input, output).run();
+		assertArrayEquals("pdf card1".getBytes(StandardCharsets.UTF_8),
+				Files.readAllBytes(new File(output, "card1.pdf").toPath()));
+		assertTrue(new File(output, "card2.pdf").isFile());
+		assertFalse(new File(output, "card3.pdf").exists());
+		assertTrue(new File(output, "report.json").isFile());
+		List<String> checkpoint = Files.readAllLines(new File(output, "checkpoint.log").toPath());
+		assertEquals(2, checkpoint.size());
+
+		runner(input, output).run();
+		// only the failed record is tried again
+		Mockito.verify(printService, Mockito.times(4)).generateCardPdf(Mockito.any(), Mockito.any());
+		assertEquals(1, new ObjectMapper().readTree(new File(output, "report.json")).get("failed").asInt());
+		assertEquals(2, new ObjectMapper().readTree(new File(output, "report.json")).get("skipped").asInt());
+	}
+
+	private BulkPrintRunner runner(File input, File output) {
+		BulkPrintRunner runner = new BulkPrintRunner();
+		ReflectionTestUtils.setField(runner, "printService", printService);
+		ReflectionTestUtils.setField(runner, "mapper", new ObjectMapper());
+		ReflectionTestUtils.setField(runner, "input", input.getAbsolutePath());
+		ReflectionTestUtils.setField(runner, "output", output.getAbsolutePath());
+		ReflectionTestUtils.setField(runner, "threads", 2);
+		ReflectionTestUtils.setField(runner, "exit", false);
+		ReflectionTestUtils.setField(runner, "defaultCredentialType", "euin");
+		return runner;
+	}
+}
@@ -0,0 +1,187 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+import java.security.spec.MGF1ParameterSpec;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource.PSpecified;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.exception.CryptoManagerException;
+import io.mosip.tf.idpass.util.CredentialEnvelope;
+import io.mosip.tf.idpass.util.CryptoCoreUtil;
+import io.mosip.tf.idpass.util.CryptoEngine;
+import io.mosip.tf.idpass.util.JsonUtil;
+import io.mosip.tf.idpass.util.PartnerKeyStore;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class CryptoCoreUtilTest {
+
+	private static final String CREDENTIAL = "{\"name\":\"#KEY_SPLITTER# in the data\"}";
+
+	private CryptoCoreUtil cryptoCoreUtil;
+
+	private Certificate certificate;
+
+	private SecureRandom random = new SecureRandom();
+
+	@Before
+	public void setUp() throws Exception {
+		PartnerKeyStore partnerKeyStore = new PartnerKeyStore();
+		ReflectionTestUtils.setField(partnerKeyStore, "taskScheduler", Mockito.mock(TaskScheduler.class));
+		ReflectionTestUtils.setField(partnerKeyStore, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(partnerKeyStore, "fileName", "partner.p12");
+		ReflectionTestUtils.setField(partnerKeyStore, "cyptoPassword", "password@123");
+		ReflectionTestUtils.setField(partnerKeyStore, "passwords", "");
+		ReflectionTestUtils.setField(partnerKeyStore, "alias", "partner");
+		ReflectionTestUtils.setField(partnerKeyStore, "watchIntervalMillis", 0L);
+		partnerKeyStore.init();
+		certificate = partnerKeyStore.get().getPrivateKeyEntry().getCertificate();
+		cryptoCoreUtil = new CryptoCoreUtil();
+		ReflectionTestUtils.setField(cryptoCoreUtil, "partnerKeyStore", partnerKeyStore);
+		ReflectionTestUtils.setField(cryptoCoreUtil, "cryptoEngine", cryptoEngine("SunJCE"));
+		ReflectionTestUtils.setField(cryptoCoreUtil, "isThumbprint", true);
+	}
+
+	@Test
+	public void testVersionedEnvelopeIsDecrypted() throws Exception {
+		byte[] envelope = versionedEnvelope(CREDENTIAL.getBytes(StandardCharsets.UTF_8));
+		CredentialEnvelope parsed = CredentialEnvelope.parse(ByteBuffer.wrap(envelope), true);
+		assertTrue(parsed.isVersioned());
+		assertEquals(32, parsed.getThumbprint().remaining());
+		assertEquals(256, parsed.getEncryptedKey().remaining());
+		assertEquals(32, parsed.getAad().remaining());
+		assertEquals(12, parsed.getNonce().remaining());
+		assertEquals(CREDENTIAL, cryptoCoreUtil.decrypt(Base64.encodeBase64URLSafeString(envelope)));
+	}
+
+	@Test
+	public void testBouncyCastleProviderDecrypts() throws Exception {
+		CryptoEngine cryptoEngine = cryptoEngine("BC");
+		assertEquals("BC", cryptoEngine.getProviderName());
+		ReflectionTestUtils.setField(cryptoCoreUtil, "cryptoEngine", cryptoEngine);
+		byte[] envelope = versionedEnvelope(CREDENTIAL.getBytes(StandardCharsets.UTF_8));
+		assertEquals(CREDENTIAL, cryptoCoreUtil.decrypt(Base64.encodeBase64String(envelope)));
+		assertEquals(CREDENTIAL, IOUtils.toString(cryptoCoreUtil.decryptReader(Base64.encodeBase64String(envelope))));
+	}
+
+	@Test
+	public void testThumbprintEnvelopeIsDecrypted() throws Exception {
+		SecretKey key = aesKey();
+		byte[] iv = new byte[16];
+		random.nextBytes(iv);
+		Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+		cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+		ByteArrayOutputStream envelope = new ByteArrayOutputStream();
+		envelope.write(CryptoCoreUtil.getCertificateThumbprint(certificate));
+		envelope.write(wrap(key));
+		envelope.write(CredentialEnvelope.KEY_SPLITTER);
+		envelope.write(cipher.doFinal(CREDENTIAL.getBytes(StandardCharsets.UTF_8)));
+		envelope.write(iv);
+		CredentialEnvelope parsed = CredentialEnvelope.parse(ByteBuffer.wrap(envelope.toByteArray()), true);
+		assertFalse(parsed.isVersioned());
+		assertNull(parsed.getAad());
+		assertEquals(CREDENTIAL, new String(cryptoCoreUtil.decryptData(envelope.toByteArray(), null), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testLargeCredentialIsDecryptedAsAStream() throws Exception {
+		char[] biometrics = new char[300000];
+		Arrays.fill(biometrics, 'b');
+		String credential = "{\"biometrics\":\"" + new String(biometrics) + "\",\"name\":\"\u00e9\"}";
+		byte[] envelope = versionedEnvelope(credential.getBytes(StandardCharsets.UTF_8));
+		try (Reader reader = cryptoCoreUtil.decryptReader(Base64.encodeBase64URLSafeString(envelope))) {
+			JsonNode document = JsonUtil.readTree(reader);
+			assertEquals(300000, document.get("biometrics").asText().length());
+			assertEquals("\u00e9", document.get("name").asText());
+		}
+		// the tag is checked once the stream is read to the end
+		envelope[envelope.length - 1] ^= 1;
+		try (Reader reader = cryptoCoreUtil.decryptReader(Base64.encodeBase64String(envelope))) {
+			IOUtils.toString(reader);
+			fail("a tampered credential must not be read");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testEnvelopeWithoutSplitterIsRefused() {
+		try {
+			CredentialEnvelope.parse(ByteBuffer.wrap("VER_R2#KEY_SPLITTER".getBytes(StandardCharsets.UTF_8)), true);
+			fail("there is no splitter");
+		} catch (CryptoManagerException e) {
+			// expected
+		}
+	}
+
+	private CryptoEngine cryptoEngine(String provider) {
+		CryptoEngine cryptoEngine = new CryptoEngine();
+		ReflectionTestUtils.setField(cryptoEngine, "providerName", provider);
+		ReflectionTestUtils.setField(cryptoEngine, "passwordAlgorithm", "PBKDF2WithHmacSHA512");
+		cryptoEngine.init();
+		return cryptoEngine;
+	}
+
+	private byte[] versionedEnvelope(byte[] data) throws Exception {
+		SecretKey key = aesKey();
+		byte[] aad = new byte[32];
+		random.nextBytes(aad);
+		Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+		cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, aad, 0, 12));
+		cipher.updateAAD(aad);
+		ByteArrayOutputStream envelope = new ByteArrayOutputStream();
+		envelope.write(CredentialEnvelope.VERSION_RSA_2048);
+		envelope.write(CryptoCoreUtil.getCertificateThumbprint(certificate));
+		envelope.write(wrap(key));
+		envelope.write(CredentialEnvelope.KEY_SPLITTER);
+		envelope.write(aad);
+		envelope.write(cipher.doFinal(data));
+		return envelope.toByteArray();
+	}
+
+	private SecretKey aesKey() throws Exception {
+		KeyGenerator generator = KeyGenerator.getInstance("AES");
+		generator.init(256);
+		return generator.generateKey();
+	}
+
+	private byte[] wrap(SecretKey key) throws Exception {
+		Cipher cipher = Cipher.getInstance("RSA/ECB/OAEPWITHSHA-256ANDMGF1PADDING");
+		cipher.init(Cipher.ENCRYPT_MODE, certificate.getPublicKey(),
+				new OAEPParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, PSpecified.DEFAULT));
+		return cipher.doFinal(key.getEncoded());
+	}
+}
@@ -0,0 +1,101 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.util.DerivedKeyCache;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class DerivedKeyCacheTest {
+
+	private static final byte[] SALT = { 1, 2, 3, 4 };
+
+	private DerivedKeyCache derivedKeyCache;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	@Before
+	public void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		derivedKeyCache = cache(true, 300, 2);
+	}
+
+	@Test
+	public void testCachedKeyIsACopy() {
+		byte[] key = { 9, 9, 9 };
+		derivedKeyCache.put("abc123".toCharArray(), SALT, 1000, 256, key);
+		key[0] = 0;
+		byte[] cached = derivedKeyCache.get("abc123".toCharArray(), SALT, 1000, 256);
+		assertArrayEquals(new byte[] { 9, 9, 9 }, cached);
+		cached[1] = 0;
+		assertArrayEquals(new byte[] { 9, 9, 9 }, derivedKeyCache.get("abc123".toCharArray(), SALT, 1000, 256));
+		assertEquals(2, meterRegistry.get("print.key-cache.requests").tag("result", "hit").counter().count(), 0);
+	}
+
+	@Test
+	public void testOtherPinSaltOrParametersMiss() {
+		derivedKeyCache.put("abc123".toCharArray(), SALT, 1000, 256, new byte[] { 9 });
+		assertNull(derivedKeyCache.get("abc124".toCharArray(), SALT, 1000, 256));
+		assertNull(derivedKeyCache.get("abc123".toCharArray(), new byte[] { 1, 2, 3 }, 1000, 256));
+		assertNull(derivedKeyCache.get("abc123".toCharArray(), SALT, 1001, 256));
+		assertNull(derivedKeyCache.get("abc123".toCharArray(), SALT, 1000, 128));
+		// PIN and salt bytes moved across the boundary
+		assertNull(derivedKeyCache.get("abc1231".toCharArray(), new byte[] { 2, 3, 4 }, 1000, 256));
+		assertEquals(5, meterRegistry.get("print.key-cache.requests").tag("result", "miss").counter().count(), 0);
+	}
+
+	@Test
+	public void testExpiredKeyIsDropped() {
+		derivedKeyCache = cache(true, 0, 2);
+		derivedKeyCache.put("abc123".toCharArray(), SALT, 1000, 256, new byte[] { 9 });
+		assertNull(derivedKeyCache.get("abc123".toCharArray(), SALT, 1000, 256));
+		assertEquals(0, derivedKeyCache.size());
+		assertEquals(1, meterRegistry.get("print.key-cache.evictions").tag("cause", "expired").counter().count(), 0);
+	}
+
+	@Test
+	public void testLeastRecentlyUsedKeyIsEvicted() {
+		derivedKeyCache.put("1".toCharArray(), SALT, 1000, 256, new byte[] { 1 });
+		derivedKeyCache.put("2".toCharArray(), SALT, 1000, 256, new byte[] { 2 });
+		derivedKeyCache.get("1".toCharArray(), SALT, 1000, 256);
+		derivedKeyCache.put("3".toCharArray(), SALT, 1000, 256, new byte[] { 3 });
+		assertEquals(2, derivedKeyCache.size());
+		assertNull(derivedKeyCache.get("2".toCharArray(), SALT, 1000, 256));
+		assertArrayEquals(new byte[] { 1 }, derivedKeyCache.get("1".toCharArray(), SALT, 1000, 256));
+		assertEquals(1, meterRegistry.get("print.key-cache.evictions").tag("cause", "size").counter().count(), 0);
+		assertEquals(2, meterRegistry.get("print.key-cache.size").gauge().value(), 0);
+	}
+
+	@Test
+	public void testDisabledCacheKeepsNothing() {
+		derivedKeyCache = cache(false, 300, 2);
+		derivedKeyCache.put("abc123".toCharArray(), SALT, 1000, 256, new byte[] { 9 });
+		assertNull(derivedKeyCache.get("abc123".toCharArray(), SALT, 1000, 256));
+		assertEquals(0, derivedKeyCache.size());
+	}
+
+	private DerivedKeyCache cache(boolean enabled, long ttlSeconds, int maxEntries) {
+		meterRegistry = new SimpleMeterRegistry();
+		DerivedKeyCache cache = new DerivedKeyCache();
+		ReflectionTestUtils.setField(cache, "taskScheduler", Mockito.mock(TaskScheduler.class));
+		ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(cache, "enabled", enabled);
+		ReflectionTestUtils.setField(cache, "ttlSeconds", ttlSeconds);
+		ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+		cache.init();
+		return cache;
+	}
+}
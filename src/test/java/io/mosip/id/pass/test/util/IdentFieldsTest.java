@@ -0,0 +1,77 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.utils.IdentFields;
+import io.mosip.tf.idpass.utils.IdentFieldsConstraint;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class IdentFieldsTest {
+
+	private static final String CREDENTIAL_SUBJECT = "{\"UIN\":\"4918691365\",\"dateOfBirth\":\"1990/01/21\","
+			+ "\"gender\":\"[{\\\"language\\\":\\\"eng\\\",\\\"value\\\":\\\"Female\\\"}]\","
+			+ "\"firstName\":[{\"language\":\"eng\",\"value\":\"Jane\"}],"
+			+ "\"addressLine1\":[{\"language\":\"eng\",\"value\":\"Main St\",\"extra\":\"x\"}],"
+			+ "\"postalCode\":\"01234\",\"phone\":\"+9112345\",\"email\":null,\"age\":30,"
+			+ "\"biometrics\":{\"city\":\"Rabat\"}}";
+
+	@Test
+	public void testFieldsOfInterestAreExtracted() throws Exception {
+		IdentFieldsConstraint idfc = IdentFields.parse(CREDENTIAL_SUBJECT);
+		assertEquals("4918691365", idfc.getUIN());
+		assertEquals(LocalDate.of(1990, 1, 21), idfc.getDateOfBirth());
+		assertEquals(1, idfc.getGender());
+		assertEquals("Jane", idfc.getFirstName());
+		assertEquals("01234", idfc.getPostalCode());
+		assertEquals("+9112345", idfc.getPhone());
+		assertEquals("", idfc.getEmail());
+		assertEquals(30, idfc.getAge().intValue());
+		assertEquals("Rabat", idfc.getCity());
+		// not a {language, value} pair
+		assertNull(idfc.getAddressLine1());
+	}
+
+	@Test
+	public void testInvalidDateIsLeftOut() throws Exception {
+		IdentFieldsConstraint idfc = IdentFields.parse("{\"dateOfBirth\":\"21-01-1990\",\"gender\":\"boy\"}");
+		assertNull(idfc.getDateOfBirth());
+		assertEquals(2, idfc.getGender());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testValueOfOtherTypeIsRejected() throws Exception {
+		IdentFields.parse("{\"UIN\":\"not a number\"}");
+	}
+
+	@Test
+	public void testConcurrentParsing() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<IdentFieldsConstraint>> results = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				results.add(executor.submit(() -> IdentFields.parse(CREDENTIAL_SUBJECT)));
+			}
+			for (Future<IdentFieldsConstraint> result : results) {
+				assertEquals("4918691365", result.get().getUIN());
+				assertEquals(1, result.get().getGender());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.util.IdentityMappingPlan;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class IdentityMappingPlanTest {
+
+	private String mappingJson;
+
+	private IdentityMappingPlan plan;
+
+	@Before
+	public void setUp() throws IOException {
+		File mappingFile = new File(
+				getClass().getClassLoader().getResource("RegistrationProcessorIdentity.json").getFile());
+		mappingJson = FileUtils.readFileToString(mappingFile, StandardCharsets.UTF_8);
+		plan = IdentityMappingPlan.compile(mappingJson, "identity");
+	}
+
+	@Test
+	public void testFieldsFollowTheMapping() {
+		assertEquals("fullName", plan.getFields().get(0));
+		assertTrue(plan.getFields().contains("addressLine2"));
+		assertTrue(plan.isCompiledFrom(mappingJson));
+		assertTrue(plan.isCompiledFrom(new String(mappingJson)));
+		assertFalse(plan.isCompiledFrom("{}"));
+	}
+
+	@Test
+	public void testLocalizedValuesOfSupportedLanguages() {
+		ObjectNode credentialSubject = JsonNodeFactory.instance.objectNode();
+		credentialSubject.put("fullName",
+				"[{\"language\":\"eng\",\"value\":\"Jane\"},{\"language\":\"fra\",\"value\":\"Jeanne\"}]");
+		credentialSubject.putArray("addressLine1").addObject().put("language", "eng").put("value", "Main St");
+		Map<String, Object> attributes = new LinkedHashMap<>();
+		plan.apply(credentialSubject, "eng,ara", attributes);
+		assertEquals("Jane", attributes.get("fullName_eng"));
+		assertEquals("Main St", attributes.get("addressLine1_eng"));
+		assertFalse(attributes.containsKey("fullName_fra"));
+		assertFalse(attributes.containsKey("fullName"));
+	}
+
+	@Test
+	public void testLocalizedValuesWithoutLanguageAreSkipped() {
+		ObjectNode credentialSubject = JsonNodeFactory.instance.objectNode();
+		credentialSubject.put("fullName", "[{\"value\":\"Jane\"},{\"language\":\" \",\"value\":\"Jeanne\"},"
+				+ "{\"language\":\"eng\",\"value\":\"Jane Doe\"}]");
+		Map<String, Object> attributes = new LinkedHashMap<>();
+		plan.apply(credentialSubject, "eng,ara", attributes);
+		assertEquals("Jane Doe", attributes.get("fullName_eng"));
+		assertFalse(attributes.containsKey("fullName_"));
+		assertFalse(attributes.containsKey("fullName_ "));
+	}
+
+	@Test
+	public void testPlainAndObjectValues() {
+		ObjectNode credentialSubject = JsonNodeFactory.instance.objectNode();
+		credentialSubject.put("dateOfBirth", "1990/01/01");
+		credentialSubject.put("age", 30);
+		credentialSubject.putObject("gender").put("value", "Female");
+		credentialSubject.putNull("email");
+		Map<String, Object> attributes = new LinkedHashMap<>();
+		plan.apply(credentialSubject, "eng", attributes);
+		assertEquals("1990/01/01", attributes.get("dateOfBirth"));
+		assertEquals("30", attributes.get("age"));
+		assertEquals("Female", attributes.get("gender"));
+		assertFalse(attributes.containsKey("email"));
+		assertNull(attributes.get("phone"));
+	}
+}
@@ -0,0 +1,77 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.dto.DataShareResponseDto;
+import io.mosip.tf.idpass.dto.JsonValue;
+import io.mosip.tf.idpass.dto.SignatureResponseDto;
+import io.mosip.tf.idpass.dto.TemplateResponseDto;
+import io.mosip.tf.idpass.util.JsonUtil;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class JsonUtilTest {
+
+	@Test
+	public void testResponsesAreReadIgnoringUnknownProperties() throws Exception {
+		Map<String, Object> template = new LinkedHashMap<>();
+		template.put("fileText", "$fullName_eng");
+		template.put("createdBy", "admin");
+		TemplateResponseDto templateResponse = JsonUtil
+				.readTemplateResponse(Collections.singletonMap("templates", Collections.singletonList(template)));
+		assertEquals("$fullName_eng", templateResponse.getTemplates().get(0).getFileText());
+
+		Map<String, Object> signature = new LinkedHashMap<>();
+		signature.put("data", "c2lnbmVk");
+		signature.put("timestamp", "2021-01-07T16:34:08.216Z");
+		assertEquals("c2lnbmVk", JsonUtil.readSignatureResponse(signature).getData());
+		assertNull(JsonUtil.readSignatureResponse(null));
+
+		DataShareResponseDto dataShare = JsonUtil.readDataShareResponse(
+				"{\"id\":\"mosip.data.share\",\"dataShare\":{\"url\":\"http://datashare/1\"},\"errors\":[],\"metadata\":{}}");
+		assertEquals("http://datashare/1", dataShare.getDataShare().getUrl());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testJsonValuesWithoutReflection() throws Exception {
+		JSONObject eng = new JSONObject();
+		eng.put("language", "eng");
+		eng.put("value", "Taleev Aalam");
+		JSONArray array = new JSONArray();
+		array.add(new LinkedHashMap<>(eng));
+		array.add(eng);
+		JsonValue[] jsonValues = JsonUtil.mapJsonNodeToJavaObject(JsonValue.class, array);
+		assertEquals(2, jsonValues.length);
+		assertEquals("eng", jsonValues[0].getLanguage());
+		assertEquals("Taleev Aalam", jsonValues[1].getValue());
+
+		JsonValue[] read = JsonUtil.readJsonValues(
+				JsonUtil.readTree("[{\"language\":\"ara\",\"value\":\"Taleev\",\"other\":1}]"));
+		assertEquals("ara", read[0].getLanguage());
+		assertEquals("Taleev", read[0].getValue());
+	}
+
+	@Test
+	public void testInputStreamToJavaObject() throws Exception {
+		SignatureResponseDto signature = (SignatureResponseDto) JsonUtil.inputStreamtoJavaObject(
+				new ByteArrayInputStream("{\"data\":\"c2lnbmVk\"}".getBytes(StandardCharsets.UTF_8)),
+				SignatureResponseDto.class);
+		assertEquals("c2lnbmVk", signature.getData());
+	}
+}
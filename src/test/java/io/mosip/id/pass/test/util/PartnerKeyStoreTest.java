@@ -0,0 +1,150 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.codec.binary.Hex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.exception.CryptoManagerException;
+import io.mosip.tf.idpass.model.PartnerKey;
+import io.mosip.tf.idpass.util.PartnerKeyStore;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class PartnerKeyStoreTest {
+
+	private File keystore;
+
+	private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private PartnerKeyStore partnerKeyStore;
+
+	@Before
+	public void setUp() throws Exception {
+		keystore = File.createTempFile("partner", ".p12");
+		copyPartnerKeystore();
+		partnerKeyStore = new PartnerKeyStore();
+		ReflectionTestUtils.setField(partnerKeyStore, "taskScheduler", Mockito.mock(TaskScheduler.class));
+		ReflectionTestUtils.setField(partnerKeyStore, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(partnerKeyStore, "fileName", keystore.getAbsolutePath());
+		ReflectionTestUtils.setField(partnerKeyStore, "cyptoPassword", "password@123");
+		ReflectionTestUtils.setField(partnerKeyStore, "passwords", "");
+		ReflectionTestUtils.setField(partnerKeyStore, "alias", "partner");
+		ReflectionTestUtils.setField(partnerKeyStore, "watchIntervalMillis", 0L);
+		partnerKeyStore.init();
+	}
+
+	@After
+	public void tearDown() {
+		keystore.delete();
+	}
+
+	@Test
+	public void testKeyIsLoadedOnce() {
+		PartnerKey key = partnerKeyStore.get();
+		assertEquals("partner", key.getAlias());
+		assertSame(key, partnerKeyStore.get());
+		assertEquals(32, key.getThumbprint().length);
+		assertEquals(1, meterRegistry.get("print.key.load").tag("result", "success").timer().count());
+	}
+
+	@Test
+	public void testBrokenKeystoreKeepsTheCurrentKey() throws Exception {
+		PartnerKey key = partnerKeyStore.get();
+		Files.write(keystore.toPath(), new byte[] { 1, 2, 3 });
+		try {
+			partnerKeyStore.reload();
+			fail("a broken keystore must not load");
+		} catch (CryptoManagerException e) {
+			assertSame(key, partnerKeyStore.get());
+		}
+		assertEquals(1, meterRegistry.get("print.key.load").tag("result", "failure").timer().count());
+	}
+
+	@Test
+	public void testChangedKeystoreIsReloaded() throws Exception {
+		PartnerKey key = partnerKeyStore.get();
+		ReflectionTestUtils.invokeMethod(partnerKeyStore, "reloadIfModified");
+		assertSame(key, partnerKeyStore.get());
+		copyPartnerKeystore();
+		keystore.setLastModified(keystore.lastModified() + 10000);
+		ReflectionTestUtils.invokeMethod(partnerKeyStore, "reloadIfModified");
+		assertNotSame(key, partnerKeyStore.get());
+		assertArrayEquals(key.getThumbprint(), partnerKeyStore.get().getThumbprint());
+	}
+
+	@Test
+	public void testKeyIsFoundByThumbprint() {
+		PartnerKey key = partnerKeyStore.get();
+		byte[] data = new byte[40];
+		System.arraycopy(key.getThumbprint(), 0, data, 6, 32);
+		assertSame(key, partnerKeyStore.get(data, 6));
+		assertNull(partnerKeyStore.get(data, 0));
+		// unknown thumbprints fall back to the primary key
+		assertSame(key, partnerKeyStore.select(data, 0));
+		assertEquals(1, meterRegistry.get("print.key.thumbprint.miss").counter().count(), 0);
+	}
+
+	@Test
+	public void testLastKeyIsNotRetired() throws Exception {
+		PartnerKey key = partnerKeyStore.get();
+		assertFalse(partnerKeyStore.retire(Hex.encodeHexString(new byte[32])));
+		try {
+			partnerKeyStore.retire(Hex.encodeHexString(key.getThumbprint()));
+			fail("the last key must stay in the ring");
+		} catch (CryptoManagerException e) {
+			assertSame(key, partnerKeyStore.get());
+		}
+		// the same key added from a second keystore is not held twice
+		File second = File.createTempFile("partner", ".p12");
+		try {
+			Files.copy(keystore.toPath(), second.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			assertEquals(1, partnerKeyStore.add(second.getAbsolutePath(), "password@123", "*").size());
+			assertEquals(1, partnerKeyStore.getKeys().size());
+			assertNotNull(partnerKeyStore.get(key.getThumbprint(), 0));
+		} finally {
+			second.delete();
+		}
+	}
+
+	@Test
+	public void testLastKeyRefusedRetirementStillReloads() throws Exception {
+		PartnerKey key = partnerKeyStore.get();
+		try {
+			partnerKeyStore.retire(Hex.encodeHexString(key.getThumbprint()));
+			fail("the last key must stay in the ring");
+		} catch (CryptoManagerException e) {
+			// the ring is unchanged
+		}
+		assertEquals(1, partnerKeyStore.reload().size());
+		assertArrayEquals(key.getThumbprint(), partnerKeyStore.get().getThumbprint());
+	}
+
+	private void copyPartnerKeystore() throws Exception {
+		try (InputStream in = getClass().getClassLoader().getResourceAsStream("partner.p12")) {
+			Files.copy(in, keystore.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
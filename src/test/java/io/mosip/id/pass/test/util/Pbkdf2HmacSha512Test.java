@@ -0,0 +1,84 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.apache.commons.codec.binary.Hex;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.util.CryptoEngine;
+import io.mosip.tf.idpass.util.Pbkdf2HmacSha512;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class Pbkdf2HmacSha512Test {
+
+	@Test
+	public void testKnownAnswer() throws Exception {
+		assertArrayEquals(Hex.decodeHex(("867f70cf1ade02cff3752599a3a53dc4af34c7a669815ae5d513554e1c8cf252"
+				+ "c02d470a285a0501bad999bfe943c08f050235d7d68b1da55e63f73b60a57fce").toCharArray()),
+				Pbkdf2HmacSha512.derive("password".getBytes(StandardCharsets.UTF_8),
+						"salt".getBytes(StandardCharsets.UTF_8), 1, 64));
+	}
+
+	@Test
+	public void testSameKeyAsTheJca() throws Exception {
+		Random random = new Random(42);
+		String[] passwords = { "abc123", "1", "été 中", new String(new char[200]).replace('\0', 'p') };
+		int[] saltLengths = { 32, 1, 111, 112, 128, 300 };
+		int[] keyLengths = { 32, 64, 100, 1 };
+		for (String password : passwords) {
+			for (int saltLength : saltLengths) {
+				for (int keyLength : keyLengths) {
+					byte[] salt = new byte[saltLength];
+					random.nextBytes(salt);
+					int iterations = 1 + random.nextInt(300);
+					assertArrayEquals(password + " " + saltLength + " " + keyLength,
+							jca(password, salt, iterations, keyLength),
+							Pbkdf2HmacSha512.derive(password.getBytes(StandardCharsets.UTF_8), salt, iterations,
+									keyLength));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSameKeyAsTheJcaForTheConfiguredIterations() throws Exception {
+		byte[] salt = new byte[32];
+		new Random(7).nextBytes(salt);
+		assertArrayEquals(jca("abc123", salt, 100000, 32),
+				Pbkdf2HmacSha512.derive("abc123".getBytes(StandardCharsets.UTF_8), salt, 100000, 32));
+	}
+
+	@Test
+	public void testEngineDerivesTheSameKeyEitherWay() throws Exception {
+		byte[] salt = new byte[32];
+		new Random(11).nextBytes(salt);
+		assertArrayEquals(engine("jca").deriveKey("été".toCharArray(), salt, 1000, 256),
+				engine("builtin").deriveKey("été".toCharArray(), salt, 1000, 256));
+	}
+
+	private CryptoEngine engine(String pbkdf2) {
+		CryptoEngine cryptoEngine = new CryptoEngine();
+		ReflectionTestUtils.setField(cryptoEngine, "providerName", "SunJCE");
+		ReflectionTestUtils.setField(cryptoEngine, "passwordAlgorithm", "PBKDF2WithHmacSHA512");
+		ReflectionTestUtils.setField(cryptoEngine, "pbkdf2", pbkdf2);
+		cryptoEngine.init();
+		return cryptoEngine;
+	}
+
+	private byte[] jca(String password, byte[] salt, int iterations, int keyLength) throws Exception {
+		return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512")
+				.generateSecret(new PBEKeySpec(password.toCharArray(), salt, iterations, keyLength * 8)).getEncoded();
+	}
+}
@@ -0,0 +1,105 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.util.PipelineStage;
+import io.mosip.tf.idpass.util.ThreadPerTaskStage;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class PipelineStageTest {
+
+	@Test
+	public void testSubmitAfterShutdownIsRejected() throws Exception {
+		PipelineStage stage = new PipelineStage("test", 1, 1, new SimpleMeterRegistry());
+		assertEquals("done", stage.submit(() -> "done").get(5, TimeUnit.SECONDS));
+		stage.shutdown(5, TimeUnit.SECONDS);
+		assertRejected(stage.submit(() -> "late"));
+	}
+
+	@Test
+	public void testSubmitWaitingOnFullQueueIsRejectedOnShutdown() throws Exception {
+		PipelineStage stage = new PipelineStage("test", 1, 1, new SimpleMeterRegistry());
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		stage.submit(() -> {
+			running.countDown();
+			return release.await(10, TimeUnit.SECONDS);
+		});
+		running.await(5, TimeUnit.SECONDS);
+		CompletableFuture<String> queued = stage.submit(() -> "queued");
+		CompletableFuture<CompletableFuture<String>> waiting = CompletableFuture
+				.supplyAsync(() -> stage.submit(() -> "waiting"));
+		Thread.sleep(200);
+		stage.shutdown(0, TimeUnit.MILLISECONDS);
+		assertRejected(queued);
+		assertRejected(waiting.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testThreadPerTaskStageLimitsTasksInFlight() throws Exception {
+		AtomicInteger threads = new AtomicInteger();
+		PipelineStage stage = new ThreadPerTaskStage("test", 2, task -> {
+			threads.incrementAndGet();
+			return new Thread(task);
+		}, new SimpleMeterRegistry());
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		List<CompletableFuture<Integer>> results = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			results.add(stage.submit(() -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				Thread.sleep(50);
+				running.decrementAndGet();
+				return 1;
+			}));
+		}
+		for (CompletableFuture<Integer> result : results) {
+			assertEquals(1, result.get(5, TimeUnit.SECONDS).intValue());
+		}
+		assertEquals(6, threads.get());
+		assertEquals(2, maxRunning.get());
+		assertTrue(stage.shutdown(5, TimeUnit.SECONDS));
+		assertRejected(stage.submit(() -> "late"));
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void testThreadPerTaskStageRefusesWorkWhenFull() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		PipelineStage stage = new ThreadPerTaskStage("test", 1, Thread::new, new SimpleMeterRegistry());
+		try {
+			stage.trySubmit(() -> release.await(5, TimeUnit.SECONDS));
+			stage.trySubmit(() -> "refused");
+		} finally {
+			release.countDown();
+			stage.shutdown(5, TimeUnit.SECONDS);
+		}
+	}
+
+	private void assertRejected(CompletableFuture<?> future) throws Exception {
+		try {
+			future.get(5, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+			return;
+		}
+		throw new AssertionError("task ran after shutdown");
+	}
+}
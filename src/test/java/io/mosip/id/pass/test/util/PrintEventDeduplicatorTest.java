@@ -0,0 +1,133 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.model.Event;
+import io.mosip.tf.idpass.model.EventModel;
+import io.mosip.tf.idpass.util.PrintEventDeduplicator;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class PrintEventDeduplicatorTest {
+
+	private File bloomDir;
+
+	private AtomicInteger prints = new AtomicInteger();
+
+	private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Before
+	public void setUp() throws Exception {
+		bloomDir = Files.createTempDirectory("print-dedup").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(bloomDir);
+	}
+
+	@Test
+	public void testRedeliveryIsSkippedAfterPrint() throws Exception {
+		PrintEventDeduplicator deduplicator = openDeduplicator("");
+		assertTrue(deduplicator.execute(event("event1"), this::print));
+		assertTrue(deduplicator.execute(event("event1"), this::print));
+		assertTrue(deduplicator.isDuplicate(event("event1")));
+		assertFalse(deduplicator.isDuplicate(event("event2")));
+		assertEquals(1, prints.get());
+	}
+
+	@Test
+	public void testFailedPrintIsNotRemembered() throws Exception {
+		PrintEventDeduplicator deduplicator = openDeduplicator("");
+		assertFalse(deduplicator.execute(event("event1"), () -> false));
+		assertTrue(deduplicator.execute(event("event1"), this::print));
+		assertEquals(1, prints.get());
+	}
+
+	@Test
+	public void testRedeliveryAttachesToRunningPrint() throws Exception {
+		PrintEventDeduplicator deduplicator = openDeduplicator("");
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Boolean> first = executor.submit(() -> deduplicator.execute(event("event1"), () -> {
+				started.countDown();
+				release.await();
+				return print();
+			}));
+			started.await();
+			Future<Boolean> second = executor.submit(() -> deduplicator.execute(event("event1"), this::print));
+			assertTrue(deduplicator.isDuplicate(event("event1")));
+			release.countDown();
+			assertTrue(first.get(10, TimeUnit.SECONDS));
+			assertTrue(second.get(10, TimeUnit.SECONDS));
+			assertEquals(1, prints.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testBloomFileSurvivesRestart() throws Exception {
+		String bloomFile = new File(bloomDir, "dedup.bloom").getAbsolutePath();
+		PrintEventDeduplicator deduplicator = openDeduplicator(bloomFile);
+		deduplicator.execute(event("event1"), this::print);
+		deduplicator.close();
+
+		PrintEventDeduplicator restarted = openDeduplicator(bloomFile);
+		assertTrue(restarted.isDuplicate(event("event1")));
+		assertFalse(restarted.isDuplicate(event("event2")));
+		// only the bloom filter knows the event after the restart
+		assertEquals(1, meterRegistry.get("print.dedup.bloom-only").counter().count(), 0);
+		assertEquals(0, meterRegistry.get("print.dedup.duplicates").counter().count(), 0);
+	}
+
+	private boolean print() {
+		prints.incrementAndGet();
+		return true;
+	}
+
+	private PrintEventDeduplicator openDeduplicator(String bloomFile) {
+		PrintEventDeduplicator deduplicator = new PrintEventDeduplicator();
+		ReflectionTestUtils.setField(deduplicator, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(deduplicator, "enabled", true);
+		ReflectionTestUtils.setField(deduplicator, "ttlMinutes", 60L);
+		ReflectionTestUtils.setField(deduplicator, "maxEntries", 1000);
+		ReflectionTestUtils.setField(deduplicator, "bloomFile", bloomFile);
+		ReflectionTestUtils.setField(deduplicator, "bloomExpectedInsertions", 1000L);
+		ReflectionTestUtils.setField(deduplicator, "bloomFalsePositiveProbability", 0.0001);
+		deduplicator.init();
+		return deduplicator;
+	}
+
+	private EventModel event(String id) {
+		Event event = new Event();
+		event.setId(id);
+		EventModel eventModel = new EventModel();
+		eventModel.setEvent(event);
+		return eventModel;
+	}
+}
@@ -0,0 +1,96 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.model.Event;
+import io.mosip.tf.idpass.model.EventModel;
+import io.mosip.tf.idpass.model.PrintJob;
+import io.mosip.tf.idpass.util.PrintEventJournal;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class PrintEventJournalTest {
+
+	private File journalDir;
+
+	@Before
+	public void setUp() throws Exception {
+		journalDir = Files.createTempDirectory("print-journal").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(journalDir);
+	}
+
+	@Test
+	public void testUnfinishedEventsAreReplayed() throws Exception {
+		PrintEventJournal journal = openJournal();
+		long printed = journal.append(event("printed"));
+		journal.append(event("pending"));
+		journal.markDone(printed);
+		journal.close();
+
+		PrintEventJournal reopened = openJournal();
+		List<PrintJob> recovered = reopened.drainRecovered();
+		assertEquals(1, recovered.size());
+		assertEquals("pending", recovered.get(0).getEventId());
+		assertTrue(reopened.drainRecovered().isEmpty());
+
+		reopened.markDone(recovered.get(0).getJournalId());
+		assertTrue(reopened.append(event("next")) > recovered.get(0).getJournalId());
+		reopened.close();
+	}
+
+	@Test
+	public void testFinishedSegmentsAreCompacted() throws Exception {
+		PrintEventJournal journal = openJournal();
+		for (int i = 0; i < 3; i++) {
+			journal.markDone(journal.append(event("event" + i)));
+		}
+		journal.close();
+
+		PrintEventJournal reopened = openJournal();
+		assertTrue(reopened.drainRecovered().isEmpty());
+		reopened.close();
+		assertEquals(1, journalDir.listFiles().length);
+	}
+
+	private PrintEventJournal openJournal() throws Exception {
+		PrintEventJournal journal = new PrintEventJournal();
+		ReflectionTestUtils.setField(journal, "mapper", new ObjectMapper());
+		ReflectionTestUtils.setField(journal, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(journal, "enabled", true);
+		ReflectionTestUtils.setField(journal, "directory", journalDir.getAbsolutePath());
+		ReflectionTestUtils.setField(journal, "segmentSizeMb", 1);
+		ReflectionTestUtils.setField(journal, "groupCommitMillis", 0L);
+		journal.init();
+		return journal;
+	}
+
+	private EventModel event(String id) {
+		Event event = new Event();
+		event.setId(id);
+		EventModel eventModel = new EventModel();
+		eventModel.setEvent(event);
+		return eventModel;
+	}
+}
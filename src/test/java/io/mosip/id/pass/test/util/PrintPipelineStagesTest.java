@@ -0,0 +1,50 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.util.PrintPipelineStages;
+import io.mosip.tf.idpass.util.ThreadPerTaskStage;
+import io.mosip.tf.idpass.util.VirtualThreads;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class PrintPipelineStagesTest {
+
+	@Test
+	public void testVirtualThreadsFallBackToPlatformThreads() throws Exception {
+		Assume.assumeFalse(VirtualThreads.isSupported());
+		PrintPipelineStages stages = new PrintPipelineStages();
+		ReflectionTestUtils.setField(stages, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(stages, "queueCapacity", 10);
+		ReflectionTestUtils.setField(stages, "fetchThreads", 2);
+		ReflectionTestUtils.setField(stages, "verifyThreads", 2);
+		ReflectionTestUtils.setField(stages, "renderThreads", 2);
+		ReflectionTestUtils.setField(stages, "signThreads", 2);
+		ReflectionTestUtils.setField(stages, "publishThreads", 2);
+		ReflectionTestUtils.setField(stages, "virtualThreads", true);
+		ReflectionTestUtils.setField(stages, "virtualMaxInFlight", 1000);
+		ReflectionTestUtils.setField(stages, "shutdownTimeoutSeconds", 5);
+		stages.init();
+		try {
+			assertTrue(stages.isEnabled());
+			assertFalse(stages.fetch() instanceof ThreadPerTaskStage);
+			assertFalse(stages.publish() instanceof ThreadPerTaskStage);
+			String thread = stages.fetch().submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+			assertTrue(thread.startsWith("print-fetch-"));
+		} finally {
+			stages.shutdown();
+		}
+	}
+}
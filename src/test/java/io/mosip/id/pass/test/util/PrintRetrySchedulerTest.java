@@ -0,0 +1,110 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.constant.PDFGeneratorExceptionCodeConstant;
+import io.mosip.tf.idpass.exception.ApisResourceAccessException;
+import io.mosip.tf.idpass.exception.CryptoManagerException;
+import io.mosip.tf.idpass.exception.DataShareException;
+import io.mosip.tf.idpass.exception.PDFGeneratorException;
+import io.mosip.tf.idpass.exception.PlatformErrorMessages;
+import io.mosip.tf.idpass.exception.TemplateProcessingFailureException;
+import io.mosip.tf.idpass.model.Event;
+import io.mosip.tf.idpass.model.EventModel;
+import io.mosip.tf.idpass.model.PrintJob;
+import io.mosip.tf.idpass.util.PrintRetryScheduler;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class PrintRetrySchedulerTest {
+
+	private TaskScheduler taskScheduler = Mockito.mock(TaskScheduler.class);
+
+	private PrintRetryScheduler retryScheduler;
+
+	@Before
+	public void setUp() {
+		// run the scheduled task straight away
+		Mockito.when(taskScheduler.schedule(Mockito.any(Runnable.class), Mockito.any(Date.class)))
+				.thenAnswer(invocation -> {
+					invocation.<Runnable>getArgument(0).run();
+					return null;
+				});
+		retryScheduler = new PrintRetryScheduler();
+		ReflectionTestUtils.setField(retryScheduler, "taskScheduler", taskScheduler);
+		ReflectionTestUtils.setField(retryScheduler, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(retryScheduler, "enabled", true);
+		ReflectionTestUtils.setField(retryScheduler, "maxAttempts", 3);
+		ReflectionTestUtils.setField(retryScheduler, "initialDelayMillis", 1000L);
+		ReflectionTestUtils.setField(retryScheduler, "multiplier", 2.0);
+		ReflectionTestUtils.setField(retryScheduler, "maxDelayMillis", 5000L);
+		retryScheduler.init();
+	}
+
+	@Test
+	public void testFailuresAreClassified() {
+		assertTrue(retryScheduler.isRetryable(new DataShareException()));
+		assertTrue(retryScheduler.isRetryable(new PDFGeneratorException(
+				PDFGeneratorExceptionCodeConstant.PDF_EXCEPTION.getErrorCode(), "sign failed",
+				new ResourceAccessException("timeout"))));
+		assertFalse(retryScheduler.isRetryable(new CryptoManagerException(
+				PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getCode(),
+				PlatformErrorMessages.PRT_INVALID_KEY_EXCEPTION.getMessage())));
+		// a template that does not merge fails again, one that could not be fetched may not
+		assertFalse(retryScheduler.isRetryable(
+				new TemplateProcessingFailureException(PlatformErrorMessages.PRT_TEM_PROCESSING_FAILURE.getCode())));
+		assertTrue(retryScheduler.isRetryable(new PDFGeneratorException(
+				PDFGeneratorExceptionCodeConstant.PDF_EXCEPTION.getErrorCode(), "template not fetched",
+				new ApisResourceAccessException("masterdata unavailable"))));
+	}
+
+	@Test
+	public void testBackoffGrowsWithJitterUpToTheCap() {
+		for (int i = 0; i < 100; i++) {
+			long first = retryScheduler.backoff(1);
+			assertTrue(first >= 500 && first <= 1000);
+			long third = retryScheduler.backoff(3);
+			assertTrue(third >= 2000 && third <= 4000);
+			long tenth = retryScheduler.backoff(10);
+			assertTrue(tenth >= 2500 && tenth <= 5000);
+		}
+	}
+
+	@Test
+	public void testJobIsRetriedUntilOutOfAttempts() {
+		PrintJob job = new PrintJob(event("event1"));
+		AtomicInteger redispatched = new AtomicInteger();
+		job.setAttempts(1);
+		assertTrue(retryScheduler.retry(job, new DataShareException(), j -> redispatched.incrementAndGet()));
+		job.setAttempts(3);
+		assertFalse(retryScheduler.retry(job, new DataShareException(), j -> redispatched.incrementAndGet()));
+		assertFalse(retryScheduler.retry(new PrintJob(event("event2")),
+				new IllegalStateException("bad credential"), j -> redispatched.incrementAndGet()));
+		assertEquals(1, redispatched.get());
+	}
+
+	private EventModel event(String id) {
+		Event event = new Event();
+		event.setId(id);
+		EventModel eventModel = new EventModel();
+		eventModel.setEvent(event);
+		return eventModel;
+	}
+}
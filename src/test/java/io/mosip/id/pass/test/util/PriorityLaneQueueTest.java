@@ -0,0 +1,102 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.util.PriorityLaneQueue;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class PriorityLaneQueueTest {
+
+	@Test
+	public void testLanesAreServedByWeight() {
+		PriorityLaneQueue queue = new PriorityLaneQueue(new int[] { 3, 1 }, new int[] { 100, 100 }, 1, 1,
+				TimeUnit.HOURS);
+		for (int i = 0; i < 20; i++) {
+			assertTrue(queue.offer(new Task(0, System.nanoTime())));
+			assertTrue(queue.offer(new Task(1, System.nanoTime())));
+		}
+		List<Integer> lanes = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			lanes.add(((Task) queue.poll()).getLane());
+		}
+		assertEquals(6, lanes.stream().filter(lane -> lane == 0).count());
+		assertEquals(2, lanes.stream().filter(lane -> lane == 1).count());
+	}
+
+	@Test
+	public void testIdleLaneGivesWayToBusyLane() {
+		PriorityLaneQueue queue = new PriorityLaneQueue(new int[] { 3, 1 }, new int[] { 100, 100 }, 1, 1,
+				TimeUnit.HOURS);
+		for (int i = 0; i < 5; i++) {
+			queue.offer(new Task(1, System.nanoTime()));
+		}
+		for (int i = 0; i < 5; i++) {
+			assertEquals(1, ((Task) queue.poll()).getLane());
+		}
+		assertEquals(null, queue.poll());
+	}
+
+	@Test
+	public void testStarvedTaskIsTakenFirst() {
+		PriorityLaneQueue queue = new PriorityLaneQueue(new int[] { 100, 1 }, new int[] { 100, 100 }, 1, 1,
+				TimeUnit.SECONDS);
+		for (int i = 0; i < 10; i++) {
+			queue.offer(new Task(0, System.nanoTime()));
+		}
+		queue.offer(new Task(1, System.nanoTime() - TimeUnit.SECONDS.toNanos(5)));
+		assertEquals(1, ((Task) queue.poll()).getLane());
+		assertEquals(1, queue.getPromotions(1));
+	}
+
+	@Test
+	public void testFullLaneDoesNotBlockOtherLanes() {
+		PriorityLaneQueue queue = new PriorityLaneQueue(new int[] { 3, 1 }, new int[] { 1, 1 }, 1, 1,
+				TimeUnit.HOURS);
+		assertTrue(queue.offer(new Task(1, System.nanoTime())));
+		assertFalse(queue.offer(new Task(1, System.nanoTime())));
+		assertTrue(queue.offer(new Task(0, System.nanoTime())));
+		assertFalse(queue.offer(() -> {
+		}));
+		assertEquals(2, queue.size());
+		assertEquals(0, queue.remainingCapacity());
+	}
+
+	private static class Task implements Runnable, PriorityLaneQueue.Laned {
+
+		private final int lane;
+
+		private final long enqueuedAt;
+
+		private Task(int lane, long enqueuedAt) {
+			this.lane = lane;
+			this.enqueuedAt = enqueuedAt;
+		}
+
+		@Override
+		public void run() {
+		}
+
+		@Override
+		public int getLane() {
+			return lane;
+		}
+
+		@Override
+		public long getEnqueuedAt() {
+			return enqueuedAt;
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.CacheResponse;
+import java.net.InetSocketAddress;
+import java.net.SecureCacheResponse;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.util.VerificationMaterialCache;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class VerificationMaterialCacheTest {
+
+	private static final String HTTPS_URL = "https://nohost.invalid/.well-known/";
+
+	private static final String PUBLIC_KEY = "{\"publicKeyPem\":\"-----BEGIN PUBLIC KEY-----\"}";
+
+	private HttpServer server;
+
+	private AtomicInteger downloads = new AtomicInteger();
+
+	private String baseUrl;
+
+	private VerificationMaterialCache verificationMaterialCache;
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", exchange -> {
+			downloads.incrementAndGet();
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			byte[] body = PUBLIC_KEY.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+		baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	@After
+	public void tearDown() {
+		if (verificationMaterialCache != null) {
+			verificationMaterialCache.shutdown();
+		}
+		server.stop(0);
+	}
+
+	@Test
+	public void testDocumentIsDownloadedOnce() throws Exception {
+		verificationMaterialCache = cache(false, Collections.emptyMap());
+		assertEquals(PUBLIC_KEY, fetch(baseUrl + ".well-known/public-key.json"));
+		assertEquals(PUBLIC_KEY, fetch(baseUrl + ".well-known/public-key.json"));
+		assertEquals(1, downloads.get());
+	}
+
+	@Test
+	public void testConcurrentMissesShareOneDownload() throws Exception {
+		verificationMaterialCache = cache(false, Collections.emptyMap());
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(() -> fetch(baseUrl + ".well-known/public-key.json")));
+			}
+			for (Future<String> result : results) {
+				assertEquals(PUBLIC_KEY, result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, downloads.get());
+	}
+
+	@Test
+	public void testOtherUrlsAreNotCached() throws Exception {
+		verificationMaterialCache = cache(false, Collections.emptyMap());
+		fetch(baseUrl + "v1/masterdata");
+		fetch(baseUrl + "v1/masterdata");
+		assertEquals(2, downloads.get());
+	}
+
+	@Test
+	public void testOfflineServesSeededDocumentsOnly() throws Exception {
+		File seeded = File.createTempFile("public-key", ".json");
+		seeded.deleteOnExit();
+		Files.write(seeded.toPath(), "{\"seeded\":true}".getBytes(StandardCharsets.UTF_8));
+		verificationMaterialCache = cache(true,
+				Collections.singletonMap(baseUrl + ".well-known/public-key.json", "file:" + seeded.getAbsolutePath()));
+		assertEquals("{\"seeded\":true}", fetch(baseUrl + ".well-known/public-key.json"));
+		HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + ".well-known/other-key.json")
+				.openConnection();
+		assertEquals(404, connection.getResponseCode());
+		assertEquals(0, downloads.get());
+	}
+
+	@Test
+	public void testOfflineHttpsServesSeededDocuments() throws Exception {
+		File seeded = File.createTempFile("public-key", ".json");
+		seeded.deleteOnExit();
+		Files.write(seeded.toPath(), "{\"seeded\":true}".getBytes(StandardCharsets.UTF_8));
+		verificationMaterialCache = cache(true,
+				Collections.singletonMap(HTTPS_URL + "public-key.json", "file:" + seeded.getAbsolutePath()));
+		// the host does not resolve, any request that bypasses the cache fails
+		assertEquals("{\"seeded\":true}", fetch(HTTPS_URL + "public-key.json"));
+		HttpsURLConnection connection = (HttpsURLConnection) new URL(HTTPS_URL + "other-key.json").openConnection();
+		assertEquals(404, connection.getResponseCode());
+	}
+
+	@Test
+	public void testHttpsIsAnsweredWithSecureCacheResponse() throws Exception {
+		File seeded = File.createTempFile("public-key", ".json");
+		seeded.deleteOnExit();
+		Files.write(seeded.toPath(), "{\"seeded\":true}".getBytes(StandardCharsets.UTF_8));
+		verificationMaterialCache = cache(true,
+				Collections.singletonMap(HTTPS_URL + "public-key.json", "file:" + seeded.getAbsolutePath()));
+		CacheResponse response = verificationMaterialCache.get(URI.create(HTTPS_URL + "public-key.json"), "GET",
+				Collections.emptyMap());
+		assertTrue(response instanceof SecureCacheResponse);
+		SecureCacheResponse secure = (SecureCacheResponse) response;
+		assertEquals("SSL_NULL_WITH_NULL_NULL", secure.getCipherSuite());
+		try {
+			secure.getServerCertificateChain();
+			throw new AssertionError("seeded document has no server certificates");
+		} catch (SSLPeerUnverifiedException e) {
+			// not downloaded over tls
+		}
+		assertTrue(verificationMaterialCache.get(URI.create(HTTPS_URL + "other-key.json"), "GET",
+				Collections.emptyMap()) instanceof SecureCacheResponse);
+		assertTrue(!(verificationMaterialCache.get(URI.create(baseUrl + ".well-known/public-key.json"), "GET",
+				Collections.emptyMap()) instanceof SecureCacheResponse));
+	}
+
+	private VerificationMaterialCache cache(boolean offline, Map<String, String> seed) throws IOException {
+		VerificationMaterialCache cache = new VerificationMaterialCache();
+		ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(cache, "resourceLoader", new DefaultResourceLoader());
+		ReflectionTestUtils.setField(cache, "verifyCredentialsFlag", true);
+		ReflectionTestUtils.setField(cache, "enabled", true);
+		ReflectionTestUtils.setField(cache, "urlPrefixes", baseUrl + ".well-known/," + HTTPS_URL);
+		ReflectionTestUtils.setField(cache, "ttlSeconds", 3600L);
+		ReflectionTestUtils.setField(cache, "refreshAheadSeconds", 300L);
+		ReflectionTestUtils.setField(cache, "maxEntries", 10);
+		ReflectionTestUtils.setField(cache, "loadTimeoutMillis", 5000);
+		ReflectionTestUtils.setField(cache, "offline", offline);
+		ReflectionTestUtils.setField(cache, "seed", seed);
+		cache.init();
+		return cache;
+	}
+
+	private String fetch(String url) throws IOException {
+		try (InputStream in = new URL(url).openConnection().getInputStream()) {
+			return IOUtils.toString(in, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package io.mosip.id.pass.test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.mosip.id.pass.test.TestBootApplication;
+import io.mosip.tf.idpass.util.VerificationResultCache;
+
+@SpringBootTest(classes = TestBootApplication.class)
+@RunWith(SpringRunner.class)
+public class VerificationResultCacheTest {
+
+	private static final String CREDENTIAL = "{\"credentialSubject\":{\"UIN\":\"1\"},\"proof\":{}}";
+
+	private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	public void testSameCredentialIsAnsweredFromTheCache() {
+		VerificationResultCache cache = cache(300, 10);
+		String key = cache.key(CREDENTIAL);
+		assertNull(cache.get(key));
+		cache.put(key, true);
+		assertTrue(cache.get(cache.key(CREDENTIAL)));
+		cache.put(cache.key(CREDENTIAL + " "), false);
+		assertFalse(cache.get(cache.key(CREDENTIAL + " ")));
+		assertEquals(2, meterRegistry.get("print.verify.result-cache.requests").tag("result", "hit").counter().count(), 0);
+	}
+
+	@Test
+	public void testChangedCredentialIsVerifiedAgain() {
+		VerificationResultCache cache = cache(300, 10);
+		cache.put(cache.key(CREDENTIAL), true);
+		String changed = CREDENTIAL.replace("\"1\"", "\"2\"");
+		assertNotEquals(cache.key(CREDENTIAL), cache.key(changed));
+		assertNull(cache.get(cache.key(changed)));
+	}
+
+	@Test
+	public void testOutcomesExpireAndAreBounded() {
+		VerificationResultCache cache = cache(0, 10);
+		cache.put(cache.key(CREDENTIAL), true);
+		assertNull(cache.get(cache.key(CREDENTIAL)));
+		cache = cache(300, 2);
+		for (int i = 0; i < 5; i++) {
+			cache.put(cache.key(CREDENTIAL + i), true);
+		}
+		assertEquals(2, meterRegistry.get("print.verify.result-cache.size").gauge().value(), 0);
+		assertNull(cache.get(cache.key(CREDENTIAL + 0)));
+		assertTrue(cache.get(cache.key(CREDENTIAL + 4)));
+	}
+
+	@Test
+	public void testDisabledCacheDoesNotHash() {
+		VerificationResultCache cache = new VerificationResultCache();
+		ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(cache, "enabled", false);
+		cache.init();
+		String key = cache.key(CREDENTIAL);
+		assertNull(key);
+		cache.put(key, true);
+		assertNull(cache.get(key));
+	}
+
+	private VerificationResultCache cache(long ttlSeconds, int maxEntries) {
+		meterRegistry = new SimpleMeterRegistry();
+		VerificationResultCache cache = new VerificationResultCache();
+		ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(cache, "enabled", true);
+		ReflectionTestUtils.setField(cache, "ttlSeconds", ttlSeconds);
+		ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+		cache.init();
+		return cache;
+	}
+}